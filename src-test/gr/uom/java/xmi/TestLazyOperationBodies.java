@@ -0,0 +1,118 @@
+package gr.uom.java.xmi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import gr.uom.java.xmi.decomposition.AbstractStatement;
+import gr.uom.java.xmi.decomposition.CompositeStatementObject;
+import gr.uom.java.xmi.decomposition.OperationBody;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+import org.refactoringminer.api.Refactoring;
+
+public class TestLazyOperationBodies {
+	private static final String VALID =
+			"package p;\n" +
+			"public class A {\n" +
+			"\tint total;\n" +
+			"\tpublic void add(int value) {\n" +
+			"\t\tif(value > 0) {\n" +
+			"\t\t\ttotal += value;\n" +
+			"\t\t}\n" +
+			"\t}\n" +
+			"\tpublic int get() {\n" +
+			"\t\treturn total;\n" +
+			"\t}\n" +
+			"}\n";
+
+	//a missing semicolon, a missing parenthesis and an unterminated block
+	private static final String MALFORMED =
+			"package p;\n" +
+			"public class B {\n" +
+			"\tint count;\n" +
+			"\tpublic void missingSemicolon() {\n" +
+			"\t\tint x = 1\n" +
+			"\t\tfoo(x);\n" +
+			"\t}\n" +
+			"\tpublic void missingParenthesis(int y) {\n" +
+			"\t\tif(y > 0 {\n" +
+			"\t\t\tcount = y;\n" +
+			"\t\t}\n" +
+			"\t\tcount++;\n" +
+			"\t}\n" +
+			"\tpublic int valid() {\n" +
+			"\t\treturn count * 2;\n" +
+			"\t}\n" +
+			"\tpublic void unterminated() {\n" +
+			"\t\tfor(int i = 0; i < count; i++) {\n" +
+			"\t\t\tfoo(i);\n" +
+			"\t}\n" +
+			"\tvoid foo(int z) {\n" +
+			"\t}\n" +
+			"}\n";
+
+	@Test
+	public void testLazyBodiesEqualEagerBodies() {
+		Map<String, String> contents = new LinkedHashMap<String, String>();
+		contents.put("src/p/A.java", VALID);
+		contents.put("src/p/B.java", MALFORMED);
+		Map<String, List<String>> eager = statements(model(contents, false));
+		Map<String, List<String>> lazy = statements(model(contents, true));
+		assertEquals(eager, lazy);
+		assertTrue(eager.toString(), eager.containsKey("missingSemicolon") && eager.containsKey("valid"));
+	}
+
+	@Test
+	public void testLazyDiffEqualsEagerDiffOnMalformedInput() {
+		Map<String, String> before = new LinkedHashMap<String, String>();
+		before.put("src/p/A.java", VALID);
+		before.put("src/p/B.java", MALFORMED);
+		Map<String, String> after = new LinkedHashMap<String, String>();
+		after.put("src/p/A.java", VALID.replace("add(", "increment("));
+		after.put("src/p/B.java", MALFORMED.replace("missingSemicolon", "semicolonMissing").replace("count * 2", "count * 3"));
+		List<String> eager = descriptions(model(before, false).diff(model(after, false)).getRefactorings());
+		List<String> lazy = descriptions(model(before, true).diff(model(after, true)).getRefactorings());
+		assertEquals(eager, lazy);
+		assertTrue(eager.toString(), eager.size() >= 1);
+	}
+
+	private static UMLModel model(Map<String, String> contents, boolean lazy) {
+		return new UMLModelASTReader(new File("."), contents, Collections.singleton("src/p"), null, lazy).getUmlModel();
+	}
+
+	private static Map<String, List<String>> statements(UMLModel model) {
+		Map<String, List<String>> statements = new LinkedHashMap<String, List<String>>();
+		for(UMLClass umlClass : model.getClassList()) {
+			for(UMLOperation operation : umlClass.getOperations()) {
+				OperationBody body = operation.getBody();
+				List<String> list = new ArrayList<String>();
+				if(body != null) {
+					CompositeStatementObject composite = body.getCompositeStatement();
+					for(AbstractStatement statement : composite.getInnerNodes()) {
+						list.add(statement.getString());
+					}
+					for(AbstractStatement statement : composite.getLeaves()) {
+						list.add(statement.getString() + " " + statement.getLocationInfo().getStartLine());
+					}
+				}
+				statements.put(operation.getName(), list);
+			}
+		}
+		return statements;
+	}
+
+	private static List<String> descriptions(List<Refactoring> refactorings) {
+		List<String> descriptions = new ArrayList<String>();
+		for(Refactoring refactoring : refactorings) {
+			descriptions.add(refactoring.toString());
+		}
+		return descriptions;
+	}
+}
@@ -0,0 +1,85 @@
+package gr.uom.java.xmi;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.eclipse.jdt.core.dom.AST;
+import org.eclipse.jdt.core.dom.ASTParser;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.junit.Test;
+
+public class TestLineTable {
+	private static final String[] TERMINATORS = {"\n", "\r\n", "\r"};
+
+	@Test
+	public void testSimpleSources() {
+		compareWithCompilationUnit("");
+		compareWithCompilationUnit("class A {}");
+		compareWithCompilationUnit("\n");
+		compareWithCompilationUnit("class A {}\n");
+		compareWithCompilationUnit("\n\nclass A {\n}\n\n");
+		compareWithCompilationUnit("class A {\r\n\tint x;\r\n}");
+		compareWithCompilationUnit("class A {\r\r\tint x;\r}\r");
+		compareWithCompilationUnit("class A {\n\tString s = \"\u03b1\u4e00\";\r\n}\r");
+	}
+
+	@Test
+	public void testRandomSources() {
+		Random random = new Random(31);
+		for(int i = 0; i < 500; i++) {
+			StringBuilder sb = new StringBuilder("class A {");
+			int members = random.nextInt(10);
+			for(int j = 0; j < members; j++) {
+				sb.append(TERMINATORS[random.nextInt(TERMINATORS.length)]);
+				for(int k = random.nextInt(3); k > 0; k--) {
+					sb.append(TERMINATORS[random.nextInt(TERMINATORS.length)]);
+				}
+				sb.append("\tint x").append(j).append(" = ").append(random.nextInt(1000)).append(';');
+			}
+			sb.append(TERMINATORS[random.nextInt(TERMINATORS.length)]).append('}');
+			if(random.nextBoolean()) {
+				sb.append(TERMINATORS[random.nextInt(TERMINATORS.length)]);
+			}
+			compareWithCompilationUnit(sb.toString());
+		}
+	}
+
+	@Test
+	public void testCompilationUnitNotParsedFromSource() {
+		CompilationUnit cu = AST.newAST(AST.JLS8).newCompilationUnit();
+		compare(cu, LineTable.of(cu, "A.java"), 10);
+	}
+
+	@Test
+	public void testSharedByCompilationUnit() {
+		CompilationUnit cu = parse("class A {\n}\n");
+		LineTable lineTable = LineTable.of(cu, "A.java");
+		assertEquals(lineTable, LineTable.of(cu, "A.java"));
+	}
+
+	private static void compareWithCompilationUnit(String source) {
+		CompilationUnit cu = parse(source);
+		LineTable lineTable = LineTable.of(cu, "A.java");
+		compare(cu, lineTable, source.length());
+		//a line table read back from its encoding answers the same
+		ModelOutput output = new ModelOutput();
+		lineTable.write(output);
+		byte[] bytes = output.toByteArray();
+		compare(cu, new LineTable(new ModelInput(bytes, 0, bytes.length, output.getStrings())), source.length());
+	}
+
+	private static void compare(CompilationUnit cu, LineTable lineTable, int length) {
+		for(int position = -3; position <= length + 3; position++) {
+			assertEquals("line of " + position, cu.getLineNumber(position), lineTable.getLineNumber(position));
+			assertEquals("column of " + position, cu.getColumnNumber(position), lineTable.getColumnNumber(position));
+		}
+	}
+
+	private static CompilationUnit parse(String source) {
+		ASTParser parser = ASTParser.newParser(AST.JLS8);
+		parser.setKind(ASTParser.K_COMPILATION_UNIT);
+		parser.setSource(source.toCharArray());
+		return (CompilationUnit)parser.createAST(null);
+	}
+}
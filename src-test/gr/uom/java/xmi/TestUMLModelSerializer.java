@@ -0,0 +1,198 @@
+package gr.uom.java.xmi;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+import org.refactoringminer.api.Refactoring;
+
+import gr.uom.java.xmi.decomposition.AbstractStatement;
+import gr.uom.java.xmi.decomposition.CompositeStatementObject;
+import gr.uom.java.xmi.decomposition.OperationBody;
+
+public class TestUMLModelSerializer {
+	private static final String BEFORE =
+			"package p;\n" +
+			"import java.util.*;\n" +
+			"public class A<T extends Comparable<T>> extends Base implements Runnable {\n" +
+			"\tprivate List<T> items = new ArrayList<T>();\n" +
+			"\tprivate String name = \"\u03b1\u03b2\u03b3 \u4e00\";\n" +
+			"\tpublic void run() {\n" +
+			"\t\tfor(T item : items) {\n" +
+			"\t\t\tif(item != null) {\n" +
+			"\t\t\t\tSystem.out.println(name + item);\n" +
+			"\t\t\t\tSystem.out.println(item.compareTo(item));\n" +
+			"\t\t\t}\n" +
+			"\t\t}\n" +
+			"\t\ttry {\n" +
+			"\t\t\tThread.sleep(10);\n" +
+			"\t\t} catch(InterruptedException e) {\n" +
+			"\t\t\tnew Runnable() {\n" +
+			"\t\t\t\tpublic void run() { items.clear(); }\n" +
+			"\t\t\t}.run();\n" +
+			"\t\t}\n" +
+			"\t}\n" +
+			"\tprotected abstract int size(int[] values, String... names) throws Exception;\n" +
+			"}\n";
+
+	private static final String AFTER =
+			"package p;\n" +
+			"import java.util.*;\n" +
+			"public class A<T extends Comparable<T>> extends Base implements Runnable {\n" +
+			"\tprivate List<T> elements = new ArrayList<T>();\n" +
+			"\tprivate String name = \"\u03b1\u03b2\u03b3 \u4e00\";\n" +
+			"\tpublic void run() {\n" +
+			"\t\tfor(T item : elements) {\n" +
+			"\t\t\tif(item != null) {\n" +
+			"\t\t\t\tprint(item);\n" +
+			"\t\t\t}\n" +
+			"\t\t}\n" +
+			"\t\ttry {\n" +
+			"\t\t\tThread.sleep(10);\n" +
+			"\t\t} catch(InterruptedException e) {\n" +
+			"\t\t\tnew Runnable() {\n" +
+			"\t\t\t\tpublic void run() { elements.clear(); }\n" +
+			"\t\t\t}.run();\n" +
+			"\t\t}\n" +
+			"\t}\n" +
+			"\tprivate void print(T item) {\n" +
+			"\t\tSystem.out.println(name + item);\n" +
+			"\t\tSystem.out.println(item.compareTo(item));\n" +
+			"\t}\n" +
+			"\tprotected abstract int size(int[] values, String... names) throws Exception;\n" +
+			"}\n";
+
+	@Test
+	public void testRoundTripPreservesModel() throws IOException {
+		UMLModel model = model(BEFORE);
+		byte[] bytes = write(model);
+		UMLModel readModel = UMLModelSerializer.read(new ByteArrayInputStream(bytes));
+		assertEquals(dump(model), dump(readModel));
+		//a model read from a stream is written back to the same bytes
+		assertArrayEquals(bytes, write(readModel));
+	}
+
+	@Test
+	public void testRoundTripPreservesRefactorings() throws IOException {
+		UMLModel before = model(BEFORE);
+		UMLModel after = model(AFTER);
+		List<String> expected = refactorings(before, after);
+		assertFalse(expected.isEmpty());
+		UMLModel readBefore = UMLModelSerializer.read(new ByteArrayInputStream(write(before)));
+		UMLModel readAfter = UMLModelSerializer.read(new ByteArrayInputStream(write(after)));
+		assertEquals(expected, refactorings(readBefore, readAfter));
+	}
+
+	@Test
+	public void testRejectsWrongMagic() throws IOException {
+		byte[] bytes = write(model(BEFORE));
+		bytes[0] = 'X';
+		assertRejected(bytes, "Not a serialized UML model");
+	}
+
+	@Test
+	public void testRejectsWrongVersion() throws IOException {
+		byte[] bytes = write(model(BEFORE));
+		//the version follows the four bytes of the magic number
+		bytes[4]++;
+		assertRejected(bytes, "Unsupported UML model format version " + bytes[4]);
+	}
+
+	@Test
+	public void testRejectsTruncatedStream() throws IOException {
+		byte[] bytes = write(model(BEFORE));
+		assertRejected(Arrays.copyOf(bytes, bytes.length / 2), null);
+	}
+
+	private static void assertRejected(byte[] bytes, String message) {
+		try {
+			UMLModelSerializer.read(new ByteArrayInputStream(bytes));
+			fail("the stream was not rejected");
+		}
+		catch(IOException e) {
+			if(message != null) {
+				assertEquals(message, e.getMessage());
+			}
+		}
+	}
+
+	private static UMLModel model(String source) {
+		Map<String, String> contents = new LinkedHashMap<String, String>();
+		contents.put("p/A.java", source);
+		return new UMLModelASTReader(new File("."), contents, new HashSet<String>(Arrays.asList("p"))).getUmlModel();
+	}
+
+	private static byte[] write(UMLModel model) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		UMLModelSerializer.write(model, out);
+		return out.toByteArray();
+	}
+
+	private static List<String> refactorings(UMLModel before, UMLModel after) {
+		List<String> refactorings = new ArrayList<String>();
+		for(Refactoring refactoring : before.diff(after).getRefactorings()) {
+			refactorings.add(refactoring.toString());
+		}
+		return refactorings;
+	}
+
+	private static String dump(UMLModel model) {
+		StringBuilder sb = new StringBuilder();
+		sb.append(model.getProjectRoot()).append(' ').append(model.getRepositoryDirectories()).append('\n');
+		for(UMLClass umlClass : model.getClassList()) {
+			sb.append(umlClass).append(' ').append(location(umlClass.getLocationInfo())).append(' ')
+				.append(umlClass.getTypeParameters()).append(' ').append(umlClass.getSuperclass()).append(' ')
+				.append(umlClass.getImplementedInterfaces()).append(' ').append(umlClass.getImportedTypes()).append('\n');
+			for(UMLAttribute attribute : umlClass.getAttributes()) {
+				sb.append(attribute).append(' ').append(location(attribute.getLocationInfo())).append('\n');
+			}
+			for(UMLOperation operation : umlClass.getOperations()) {
+				sb.append(operation).append(' ').append(location(operation.getLocationInfo())).append(' ')
+					.append(operation.getParameters()).append('\n');
+				OperationBody body = operation.getBody();
+				if(body != null) {
+					dump(body.getCompositeStatement(), sb);
+				}
+			}
+			for(UMLAnonymousClass anonymousClass : umlClass.getAnonymousClassList()) {
+				sb.append(anonymousClass).append(' ').append(location(anonymousClass.getLocationInfo())).append('\n');
+			}
+		}
+		sb.append(model.getGeneralizationList()).append('\n');
+		sb.append(model.getRealizationList()).append('\n');
+		return sb.toString();
+	}
+
+	private static void dump(AbstractStatement statement, StringBuilder sb) {
+		sb.append(statement.getDepth()).append(' ').append(statement).append(' ').append(location(statement.getLocationInfo())).append(' ')
+			.append(statement.getVariables()).append(' ').append(statement.getTypes()).append(' ')
+			.append(statement.getVariableDeclarations()).append(' ').append(statement.getMethodInvocationMap().keySet()).append(' ')
+			.append(statement.getCreationMap().keySet()).append(' ').append(statement.getStringLiterals()).append(' ')
+			.append(statement.getAnonymousClassDeclarations()).append('\n');
+		if(statement instanceof CompositeStatementObject) {
+			CompositeStatementObject composite = (CompositeStatementObject)statement;
+			sb.append(composite.getExpressions()).append('\n');
+			for(AbstractStatement child : composite.getStatements()) {
+				dump(child, sb);
+			}
+		}
+	}
+
+	private static String location(LocationInfo locationInfo) {
+		return locationInfo.getFilePath() + ":" + locationInfo.getStartOffset() + "-" + locationInfo.getEndOffset() + ":" +
+				locationInfo.getStartLine() + "." + locationInfo.getStartColumn() + "-" + locationInfo.getEndLine() + "." + locationInfo.getEndColumn();
+	}
+}
@@ -0,0 +1,202 @@
+package gr.uom.java.xmi.decomposition;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+import gr.uom.java.xmi.LocationInfo;
+
+public class TestReplacementUtil {
+	//regular expression metacharacters and replacement escapes must be taken literally
+	private static final String ALPHABET = "aab.$\\(,= \"+x";
+
+	@Test
+	public void testReplaceAllMatchesRegex() {
+		Random random = new Random(19);
+		for(int i = 0; i < 20000; i++) {
+			String completeString = randomString(random, random.nextInt(30));
+			String subString = randomString(random, random.nextInt(4));
+			String replacement = randomString(random, random.nextInt(4));
+			String expected = completeString.replaceAll(Pattern.quote(subString), Matcher.quoteReplacement(replacement));
+			assertEquals(completeString + " / " + subString, expected, ReplacementUtil.replaceAll(completeString, subString, replacement));
+		}
+	}
+
+	@Test
+	public void testOccurrencesMatchRegex() {
+		assertArrayEquals(new int[] {0, 2}, ReplacementUtil.occurrences("aaaa", "aa"));
+		assertArrayEquals(new int[] {0, 1, 2}, ReplacementUtil.occurrences("ab", ""));
+		Random random = new Random(23);
+		for(int i = 0; i < 20000; i++) {
+			String completeString = randomString(random, random.nextInt(30));
+			String subString = randomString(random, random.nextInt(4));
+			List<Integer> expected = new ArrayList<Integer>();
+			Matcher m = Pattern.compile(Pattern.quote(subString)).matcher(completeString);
+			while(m.find()) {
+				expected.add(m.start());
+			}
+			int[] occurrences = ReplacementUtil.occurrences(completeString, subString);
+			assertEquals(completeString + " / " + subString, expected.size(), occurrences.length);
+			for(int j = 0; j < occurrences.length; j++) {
+				assertEquals(completeString + " / " + subString, expected.get(j).intValue(), occurrences[j]);
+			}
+		}
+	}
+
+	@Test
+	public void testReplaceParametersWithArgumentsMatchesRegex() {
+		assertEquals("foo(y, \"x\", z+x)", new Fragment("foo(x, \"x\", z+x)").replaceParametersWithArguments(map("x", "y")));
+		Random random = new Random(29);
+		for(int i = 0; i < 20000; i++) {
+			String string = randomString(random, random.nextInt(30));
+			Map<String, String> parameterToArgumentMap = new LinkedHashMap<String, String>();
+			int parameters = 1 + random.nextInt(3);
+			for(int j = 0; j < parameters; j++) {
+				parameterToArgumentMap.put(randomString(random, 1 + random.nextInt(2)), randomString(random, random.nextInt(4)));
+			}
+			assertEquals(string + " / " + parameterToArgumentMap, regexReplaceParametersWithArguments(string, parameterToArgumentMap),
+					new Fragment(string).replaceParametersWithArguments(parameterToArgumentMap));
+		}
+	}
+
+	private static Map<String, String> map(String parameter, String argument) {
+		Map<String, String> map = new LinkedHashMap<String, String>();
+		map.put(parameter, argument);
+		return map;
+	}
+
+	private static String randomString(Random random, int length) {
+		StringBuilder sb = new StringBuilder();
+		for(int i = 0; i < length; i++) {
+			sb.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+		}
+		return sb.toString();
+	}
+
+	//the regex-based implementation replaced by the offset-based one
+	private static String regexReplaceParametersWithArguments(String string, Map<String, String> parameterToArgumentMap) {
+		String afterReplacements = string;
+		for(String parameter : parameterToArgumentMap.keySet()) {
+			String argument = parameterToArgumentMap.get(parameter);
+			if(!parameter.equals(argument)) {
+				StringBuffer sb = new StringBuffer();
+				Pattern p = Pattern.compile(Pattern.quote(parameter));
+				Matcher m = p.matcher(afterReplacements);
+				while(m.find()) {
+					int start = m.start();
+					boolean isArgument = false;
+					boolean isInsideStringLiteral = false;
+					if(start >= 1) {
+						String previousChar = afterReplacements.substring(start-1, start);
+						if(previousChar.equals("(") || previousChar.equals(",") || previousChar.equals(" ") || previousChar.equals("=")) {
+							isArgument = true;
+						}
+						String beforeMatch = afterReplacements.substring(0, start);
+						String afterMatch = afterReplacements.substring(start+parameter.length(), afterReplacements.length());
+						if(quoteBefore(beforeMatch) && quoteAfter(afterMatch)) {
+							isInsideStringLiteral = true;
+						}
+					}
+					else if(start == 0) {
+						isArgument = true;
+					}
+					if(isArgument && !isInsideStringLiteral) {
+						m.appendReplacement(sb, Matcher.quoteReplacement(argument));
+					}
+				}
+				m.appendTail(sb);
+				afterReplacements = sb.toString();
+			}
+		}
+		return afterReplacements;
+	}
+
+	private static boolean quoteBefore(String beforeMatch) {
+		if(beforeMatch.contains("\"")) {
+			if(beforeMatch.contains("+")) {
+				return beforeMatch.lastIndexOf("+") <= beforeMatch.lastIndexOf("\"");
+			}
+			return true;
+		}
+		return false;
+	}
+
+	private static boolean quoteAfter(String afterMatch) {
+		if(afterMatch.contains("\"")) {
+			if(afterMatch.contains("+")) {
+				return afterMatch.indexOf("+") >= afterMatch.indexOf("\"");
+			}
+			return true;
+		}
+		return false;
+	}
+
+	private static class Fragment extends AbstractCodeFragment {
+		private final String string;
+
+		private Fragment(String string) {
+			this.string = string;
+		}
+
+		public String getString() {
+			return string;
+		}
+
+		public LocationInfo getLocationInfo() {
+			return null;
+		}
+
+		public List<String> getVariables() {
+			return new ArrayList<String>();
+		}
+
+		public List<String> getTypes() {
+			return new ArrayList<String>();
+		}
+
+		public List<VariableDeclaration> getVariableDeclarations() {
+			return new ArrayList<VariableDeclaration>();
+		}
+
+		public Map<String, OperationInvocation> getMethodInvocationMap() {
+			return new LinkedHashMap<String, OperationInvocation>();
+		}
+
+		public List<String> getAnonymousClassDeclarations() {
+			return new ArrayList<String>();
+		}
+
+		public List<String> getStringLiterals() {
+			return new ArrayList<String>();
+		}
+
+		public List<String> getNumberLiterals() {
+			return new ArrayList<String>();
+		}
+
+		public Map<String, ObjectCreation> getCreationMap() {
+			return new LinkedHashMap<String, ObjectCreation>();
+		}
+
+		public List<String> getInfixOperators() {
+			return new ArrayList<String>();
+		}
+
+		public VariableDeclaration searchVariableDeclaration(String variableName) {
+			return null;
+		}
+
+		public VariableDeclaration getVariableDeclaration(String variableName) {
+			return null;
+		}
+	}
+}
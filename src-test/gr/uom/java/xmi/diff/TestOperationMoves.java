@@ -0,0 +1,71 @@
+package gr.uom.java.xmi.diff;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+import org.refactoringminer.api.Refactoring;
+import org.refactoringminer.api.RefactoringType;
+
+import gr.uom.java.xmi.UMLModel;
+import gr.uom.java.xmi.UMLModelASTReader;
+
+public class TestOperationMoves {
+	private static final String MOVED_METHOD =
+			"\tpublic String render(java.util.List<String> items) {\n" +
+			"\t\tStringBuilder html = new StringBuilder(\"<ul>\");\n" +
+			"\t\tfor(String item : items) {\n" +
+			"\t\t\thtml.append(\"<li>\").append(item.trim()).append(\"</li>\");\n" +
+			"\t\t}\n" +
+			"\t\thtml.append(\"</ul>\");\n" +
+			"\t\treturn html.toString();\n" +
+			"\t}\n";
+
+	private static final String NATIVE_METHOD = "\tpublic native int checksum(byte[] data);\n";
+
+	@Test
+	public void testMoveIsFoundBeyondTheMethodCap() {
+		Map<String, String> before = new LinkedHashMap<String, String>();
+		before.put("src/p/Source.java", "package p;\npublic class Source {\n" + methods("removed", 110) + MOVED_METHOD + NATIVE_METHOD + "}\n");
+		before.put("src/p/Target.java", "package p;\npublic class Target {\n}\n");
+		Map<String, String> after = new LinkedHashMap<String, String>();
+		after.put("src/p/Source.java", "package p;\npublic class Source {\n}\n");
+		after.put("src/p/Target.java", "package p;\npublic class Target {\n" + methods("added", 110) + MOVED_METHOD + NATIVE_METHOD + "}\n");
+		List<Refactoring> moves = new ArrayList<Refactoring>();
+		for(Refactoring refactoring : model(before).diff(model(after)).getRefactorings()) {
+			if(refactoring.getRefactoringType() == RefactoringType.MOVE_OPERATION) {
+				moves.add(refactoring);
+			}
+		}
+		//the native method has no statements to compare, so it is not a candidate
+		assertEquals(moves.toString(), 1, moves.size());
+		MoveOperationRefactoring move = (MoveOperationRefactoring)moves.get(0);
+		assertEquals("render", move.getOriginalOperation().getName());
+		assertEquals("p.Source", move.getOriginalOperation().getClassName());
+		assertEquals("p.Target", move.getMovedOperation().getClassName());
+	}
+
+	/**
+	 * @return {@code count} methods with unrelated statements
+	 */
+	private static String methods(String prefix, int count) {
+		StringBuilder sb = new StringBuilder();
+		for(int i = 0; i < count; i++) {
+			sb.append("\tpublic int ").append(prefix).append(i).append("(int ").append(prefix).append("Value) {\n");
+			sb.append("\t\tint ").append(prefix).append("Local").append(i).append(" = ").append(prefix).append("Value * ").append(i * 7 + 3).append(";\n");
+			sb.append("\t\treturn ").append(prefix).append("Local").append(i).append(" - ").append(i).append(";\n");
+			sb.append("\t}\n");
+		}
+		return sb.toString();
+	}
+
+	private static UMLModel model(Map<String, String> contents) {
+		return new UMLModelASTReader(new File("."), contents, Collections.singleton("src/p")).getUmlModel();
+	}
+}
@@ -0,0 +1,42 @@
+package gr.uom.java.xmi.diff;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+import org.refactoringminer.api.Refactoring;
+
+import gr.uom.java.xmi.UMLModel;
+
+public class TestParallelDiff {
+
+	@Test
+	public void testPoolDiffEqualsSequentialDiff() {
+		UMLModel before = TestRefactoringTypesToConsider.model(TestRefactoringTypesToConsider.before());
+		UMLModel after = TestRefactoringTypesToConsider.model(TestRefactoringTypesToConsider.after());
+		List<String> expected = descriptions(before.diff(after).getRefactorings());
+		assertTrue(expected.toString(), expected.size() >= 6);
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			for(int i = 0; i < 10; i++) {
+				assertEquals(expected, descriptions(before.diff(after, Collections.<String, String>emptyMap(), pool).getRefactorings()));
+			}
+		}
+		finally {
+			pool.shutdown();
+		}
+	}
+
+	private static List<String> descriptions(List<Refactoring> refactorings) {
+		List<String> descriptions = new ArrayList<String>();
+		for(Refactoring refactoring : refactorings) {
+			descriptions.add(refactoring.toString());
+		}
+		return descriptions;
+	}
+}
@@ -0,0 +1,281 @@
+package gr.uom.java.xmi.diff;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+import org.refactoringminer.api.Refactoring;
+import org.refactoringminer.api.RefactoringType;
+
+import gr.uom.java.xmi.UMLModel;
+import gr.uom.java.xmi.UMLModelASTReader;
+
+public class TestRefactoringTypesToConsider {
+	private static final String SHAPE_BEFORE =
+			"package p;\n" +
+			"public class Shape {\n" +
+			"\tprotected String name;\n" +
+			"\tprivate int width;\n" +
+			"\tprivate int height;\n" +
+			"\tpublic Shape(String name, int width, int height) {\n" +
+			"\t\tthis.name = name;\n" +
+			"\t\tthis.width = width;\n" +
+			"\t\tthis.height = height;\n" +
+			"\t}\n" +
+			"\tpublic int area() {\n" +
+			"\t\tint w = width;\n" +
+			"\t\tint h = height;\n" +
+			"\t\tSystem.out.println(\"computing the area of \" + name);\n" +
+			"\t\tSystem.out.println(\"width \" + w + \" height \" + h);\n" +
+			"\t\tSystem.out.println(\"ratio \" + (w / (double)h));\n" +
+			"\t\treturn w * h;\n" +
+			"\t}\n" +
+			"\tpublic String describe(String prefix) {\n" +
+			"\t\tString text = prefix + name;\n" +
+			"\t\tif(text.length() > 10) {\n" +
+			"\t\t\ttext = text.substring(0, 10);\n" +
+			"\t\t}\n" +
+			"\t\treturn text + \" with area \" + area();\n" +
+			"\t}\n" +
+			"\tint helper(int value) {\n" +
+			"\t\tint doubled = value * 2;\n" +
+			"\t\treturn doubled + width;\n" +
+			"\t}\n" +
+			"\tpublic int scaled(int factor) {\n" +
+			"\t\tint result = helper(factor);\n" +
+			"\t\tSystem.out.println(\"scaled by \" + factor);\n" +
+			"\t\treturn result + height;\n" +
+			"\t}\n" +
+			"\tpublic void draw(Canvas canvas) {\n" +
+			"\t\tcanvas.begin(name);\n" +
+			"\t\tcanvas.line(0, 0, width, 0);\n" +
+			"\t\tcanvas.line(width, 0, width, height);\n" +
+			"\t\tcanvas.line(width, height, 0, height);\n" +
+			"\t\tcanvas.line(0, height, 0, 0);\n" +
+			"\t\tcanvas.end(name);\n" +
+			"\t}\n" +
+			"}\n";
+
+	private static final String SHAPE_AFTER =
+			"package p;\n" +
+			"public class Shape {\n" +
+			"\tprotected String name;\n" +
+			"\tprivate int width;\n" +
+			"\tprivate int height;\n" +
+			"\tpublic Shape(String name, int width, int height) {\n" +
+			"\t\tthis.name = name;\n" +
+			"\t\tthis.width = width;\n" +
+			"\t\tthis.height = height;\n" +
+			"\t}\n" +
+			"\tpublic int area() {\n" +
+			"\t\tint w = width;\n" +
+			"\t\tint h = height;\n" +
+			"\t\tlogDimensions(w, h);\n" +
+			"\t\treturn w * h;\n" +
+			"\t}\n" +
+			"\tprivate void logDimensions(int w, int h) {\n" +
+			"\t\tSystem.out.println(\"computing the area of \" + name);\n" +
+			"\t\tSystem.out.println(\"width \" + w + \" height \" + h);\n" +
+			"\t\tSystem.out.println(\"ratio \" + (w / (double)h));\n" +
+			"\t}\n" +
+			"\tpublic String describe(String label) {\n" +
+			"\t\tString description = label + name;\n" +
+			"\t\tif(description.length() > 10) {\n" +
+			"\t\t\tdescription = description.substring(0, 10);\n" +
+			"\t\t}\n" +
+			"\t\treturn description + \" with area \" + area();\n" +
+			"\t}\n" +
+			"\tpublic int scale(int factor) {\n" +
+			"\t\tint doubled = factor * 2;\n" +
+			"\t\tint result = doubled + width;\n" +
+			"\t\tSystem.out.println(\"scaled by \" + factor);\n" +
+			"\t\treturn result + height;\n" +
+			"\t}\n" +
+			"\tpublic int getWidth() {\n" +
+			"\t\treturn width;\n" +
+			"\t}\n" +
+			"\tpublic int getHeight() {\n" +
+			"\t\treturn height;\n" +
+			"\t}\n" +
+			"\tpublic double roundedArea() {\n" +
+			"\t\tdouble area = width * height;\n" +
+			"\t\treturn Math.round(area * 100) / 100.0;\n" +
+			"\t}\n" +
+			"}\n";
+
+	private static final String CIRCLE_BEFORE =
+			"package p;\n" +
+			"public class Circle extends Shape {\n" +
+			"\tprivate int radius;\n" +
+			"\tpublic Circle(String name, int radius) {\n" +
+			"\t\tsuper(name, radius, radius);\n" +
+			"\t\tthis.radius = radius;\n" +
+			"\t}\n" +
+			"\tpublic double roundedArea() {\n" +
+			"\t\tdouble area = width * height;\n" +
+			"\t\treturn Math.round(area * 100) / 100.0;\n" +
+			"\t}\n" +
+			"}\n";
+
+	private static final String CIRCLE_AFTER =
+			"package p;\n" +
+			"public class Circle extends Shape {\n" +
+			"\tprivate int radius;\n" +
+			"\tpublic Circle(String name, int radius) {\n" +
+			"\t\tsuper(name, radius, radius);\n" +
+			"\t\tthis.radius = radius;\n" +
+			"\t}\n" +
+			"}\n";
+
+	private static final String CANVAS_BEFORE =
+			"package p;\n" +
+			"public class Canvas {\n" +
+			"\tprivate StringBuilder out = new StringBuilder();\n" +
+			"\tpublic void begin(String name) {\n" +
+			"\t\tout.append(\"<\" + name + \">\");\n" +
+			"\t}\n" +
+			"\tpublic void line(int x1, int y1, int x2, int y2) {\n" +
+			"\t\tout.append(x1 + \",\" + y1 + \" \" + x2 + \",\" + y2);\n" +
+			"\t}\n" +
+			"\tpublic void end(String name) {\n" +
+			"\t\tout.append(\"</\" + name + \">\");\n" +
+			"\t}\n" +
+			"}\n";
+
+	private static final String CANVAS_AFTER =
+			"package p;\n" +
+			"public class Canvas {\n" +
+			"\tprivate StringBuilder out = new StringBuilder();\n" +
+			"\tpublic void begin(String name) {\n" +
+			"\t\tout.append(\"<\" + name + \">\");\n" +
+			"\t}\n" +
+			"\tpublic void line(int x1, int y1, int x2, int y2) {\n" +
+			"\t\tout.append(x1 + \",\" + y1 + \" \" + x2 + \",\" + y2);\n" +
+			"\t}\n" +
+			"\tpublic void end(String name) {\n" +
+			"\t\tout.append(\"</\" + name + \">\");\n" +
+			"\t}\n" +
+			"\tpublic void draw(Shape shape) {\n" +
+			"\t\tbegin(shape.name);\n" +
+			"\t\tline(0, 0, shape.getWidth(), 0);\n" +
+			"\t\tline(shape.getWidth(), 0, shape.getWidth(), shape.getHeight());\n" +
+			"\t\tline(shape.getWidth(), shape.getHeight(), 0, shape.getHeight());\n" +
+			"\t\tline(0, shape.getHeight(), 0, 0);\n" +
+			"\t\tend(shape.name);\n" +
+			"\t}\n" +
+			"}\n";
+
+	private static final String UTIL =
+			"public class Util {\n" +
+			"\tprivate static final int LIMIT = 100;\n" +
+			"\tpublic static int clamp(int value) {\n" +
+			"\t\tif(value > LIMIT) {\n" +
+			"\t\t\treturn LIMIT;\n" +
+			"\t\t}\n" +
+			"\t\treturn value < 0 ? 0 : value;\n" +
+			"\t}\n" +
+			"\tpublic static String repeat(String s, int times) {\n" +
+			"\t\tStringBuilder sb = new StringBuilder();\n" +
+			"\t\tfor(int i = 0; i < times; i++) {\n" +
+			"\t\t\tsb.append(s);\n" +
+			"\t\t}\n" +
+			"\t\treturn sb.toString();\n" +
+			"\t}\n" +
+			"}\n";
+
+	private static final String REGISTRY =
+			" {\n" +
+			"\tprivate java.util.Map<String, Shape> shapes = new java.util.HashMap<String, Shape>();\n" +
+			"\tpublic void register(Shape shape) {\n" +
+			"\t\tshapes.put(shape.name, shape);\n" +
+			"\t\tSystem.out.println(\"registered \" + shape.name);\n" +
+			"\t}\n" +
+			"\tpublic Shape lookup(String name) {\n" +
+			"\t\tShape shape = shapes.get(name);\n" +
+			"\t\tif(shape == null) {\n" +
+			"\t\t\tthrow new IllegalArgumentException(name);\n" +
+			"\t\t}\n" +
+			"\t\treturn shape;\n" +
+			"\t}\n" +
+			"}\n";
+
+	@Test
+	public void testFilteredDiffEqualsFilteredRefactorings() {
+		UMLModel before = model(before());
+		UMLModel after = model(after());
+		List<Refactoring> all = before.diff(after).getRefactorings();
+		Set<RefactoringType> detectedTypes = EnumSet.noneOf(RefactoringType.class);
+		for(Refactoring refactoring : all) {
+			detectedTypes.add(refactoring.getRefactoringType());
+		}
+		//the models exercise the class, method, attribute and variable level phases
+		assertTrue(detectedTypes.toString(), detectedTypes.size() >= 6);
+		for(RefactoringType type : RefactoringType.values()) {
+			compare(before, after, all, EnumSet.of(type));
+		}
+		Random random = new Random(37);
+		List<RefactoringType> types = new ArrayList<RefactoringType>(EnumSet.allOf(RefactoringType.class));
+		for(int i = 0; i < 30; i++) {
+			Collections.shuffle(types, random);
+			compare(before, after, all, EnumSet.copyOf(types.subList(0, 2 + random.nextInt(6))));
+		}
+		compare(before, after, all, detectedTypes);
+		compare(before, after, all, EnumSet.allOf(RefactoringType.class));
+	}
+
+	private static void compare(UMLModel before, UMLModel after, List<Refactoring> all, Set<RefactoringType> refactoringTypesToConsider) {
+		UMLModelDiff modelDiff = before.diff(after, Collections.<String, String>emptyMap(), null, refactoringTypesToConsider);
+		//refactorings of other types may be reported as a by-product, and are filtered out as the miner does
+		assertEquals(refactoringTypesToConsider.toString(), filter(all, refactoringTypesToConsider),
+				filter(modelDiff.getRefactorings(), refactoringTypesToConsider));
+	}
+
+	private static List<String> filter(List<Refactoring> refactorings, Set<RefactoringType> refactoringTypesToConsider) {
+		List<String> filtered = new ArrayList<String>();
+		for(Refactoring refactoring : refactorings) {
+			if(refactoringTypesToConsider.contains(refactoring.getRefactoringType())) {
+				filtered.add(refactoring.toString());
+			}
+		}
+		return filtered;
+	}
+
+	static Map<String, String> before() {
+		Map<String, String> contents = new LinkedHashMap<String, String>();
+		contents.put("src/p/Shape.java", SHAPE_BEFORE);
+		contents.put("src/p/Circle.java", CIRCLE_BEFORE);
+		contents.put("src/p/Canvas.java", CANVAS_BEFORE);
+		contents.put("src/p/Util.java", "package p;\n" + UTIL);
+		contents.put("src/p/Registry.java", "package p;\npublic class Registry" + REGISTRY);
+		return contents;
+	}
+
+	static Map<String, String> after() {
+		Map<String, String> contents = new LinkedHashMap<String, String>();
+		contents.put("src/p/Shape.java", SHAPE_AFTER);
+		contents.put("src/p/Circle.java", CIRCLE_AFTER);
+		contents.put("src/p/Canvas.java", CANVAS_AFTER);
+		contents.put("src/q/Util.java", "package q;\n" + UTIL);
+		contents.put("src/p/ShapeRegistry.java", "package p;\npublic class ShapeRegistry" + REGISTRY);
+		return contents;
+	}
+
+	static UMLModel model(Map<String, String> contents) {
+		Set<String> repositoryDirectories = new HashSet<String>();
+		repositoryDirectories.add("src");
+		repositoryDirectories.add("src/p");
+		repositoryDirectories.add("src/q");
+		return new UMLModelASTReader(new File("."), contents, repositoryDirectories).getUmlModel();
+	}
+}
@@ -0,0 +1,115 @@
+package gr.uom.java.xmi.diff;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class TestStringDistance {
+	private static final String LATIN = "abcdefgh ();.=\"";
+	//CJK ideographs, Greek letters and characters colliding in the open-addressing table (same low bits)
+	private static final String NON_LATIN = "\u4e00\u4e01\u4e02\u4e03\u03b1\u03b2\u03b3\u0100\u0200\u0300\u0400";
+
+	@Test
+	public void testLatinStrings() {
+		compareWithReference(new Random(7), LATIN, 5000);
+	}
+
+	@Test
+	public void testNonLatinStrings() {
+		compareWithReference(new Random(11), LATIN + NON_LATIN, 5000);
+	}
+
+	@Test
+	public void testManyDistinctNonLatinCharacters() {
+		String s33 = distinctCharacters(0x4e00, 33);
+		String s64 = distinctCharacters(0x4e00, 64);
+		assertEquals(1, StringDistance.editDistance(s33, s33 + "x"));
+		assertEquals(1, StringDistance.editDistance(s64, s64 + "y"));
+		String s200 = distinctCharacters(0x3400, 200);
+		assertEquals(200, StringDistance.editDistance(s200, s64 + s64 + s64 + "abcdefgh"));
+		//the buffers of the thread are still usable by later computations
+		compareWithReference(new Random(13), LATIN + NON_LATIN, 500);
+	}
+
+	@Test
+	public void testThreshold() {
+		Random random = new Random(17);
+		for(int i = 0; i < 2000; i++) {
+			String a = randomString(random, LATIN + NON_LATIN, random.nextInt(150));
+			String b = mutate(random, a, LATIN + NON_LATIN);
+			int distance = levenshtein(a, b);
+			int threshold = random.nextInt(20);
+			assertEquals(a + " / " + b, distance <= threshold ? distance : -1, StringDistance.editDistance(a, b, threshold));
+		}
+	}
+
+	private static void compareWithReference(Random random, String alphabet, int pairs) {
+		for(int i = 0; i < pairs; i++) {
+			//lengths beyond 64 characters exercise the multi-word blocks
+			String a = randomString(random, alphabet, random.nextInt(200));
+			String b = random.nextBoolean() ? mutate(random, a, alphabet) : randomString(random, alphabet, random.nextInt(200));
+			assertEquals(a + " / " + b, levenshtein(a, b), StringDistance.editDistance(a, b));
+		}
+	}
+
+	private static String distinctCharacters(int first, int count) {
+		StringBuilder sb = new StringBuilder();
+		for(int i = 0; i < count; i++) {
+			sb.append((char)(first + i));
+		}
+		return sb.toString();
+	}
+
+	private static String randomString(Random random, String alphabet, int length) {
+		StringBuilder sb = new StringBuilder();
+		for(int i = 0; i < length; i++) {
+			sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+		}
+		return sb.toString();
+	}
+
+	private static String mutate(Random random, String s, String alphabet) {
+		StringBuilder sb = new StringBuilder(s);
+		int edits = random.nextInt(10);
+		for(int i = 0; i < edits; i++) {
+			int position = random.nextInt(sb.length() + 1);
+			char c = alphabet.charAt(random.nextInt(alphabet.length()));
+			switch(random.nextInt(3)) {
+			case 0:
+				sb.insert(position, c);
+				break;
+			case 1:
+				if(position < sb.length()) {
+					sb.deleteCharAt(position);
+				}
+				break;
+			default:
+				if(position < sb.length()) {
+					sb.setCharAt(position, c);
+				}
+			}
+		}
+		return sb.toString();
+	}
+
+	private static int levenshtein(String a, String b) {
+		int[] previous = new int[b.length() + 1];
+		int[] current = new int[b.length() + 1];
+		for(int j = 0; j <= b.length(); j++) {
+			previous[j] = j;
+		}
+		for(int i = 1; i <= a.length(); i++) {
+			current[0] = i;
+			for(int j = 1; j <= b.length(); j++) {
+				int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+				current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+			}
+			int[] swap = previous;
+			previous = current;
+			current = swap;
+		}
+		return previous[b.length()];
+	}
+}
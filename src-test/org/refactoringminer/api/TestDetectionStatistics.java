@@ -0,0 +1,103 @@
+package org.refactoringminer.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.refactoringminer.api.DetectionStatistics.Counter;
+import org.refactoringminer.api.DetectionStatistics.Phase;
+import org.refactoringminer.rm1.GitHistoryRefactoringMinerImpl;
+import org.refactoringminer.rm1.TestRepository;
+
+public class TestDetectionStatistics {
+
+	@Test
+	public void testStatisticsOfATwoCommitHistory() throws Exception {
+		//the initial commit, which is not analyzed, and an extract method
+		try (TestRepository repository = TestRepository.create(TestRepository.shapeHistory().subList(0, 2))) {
+			GitHistoryRefactoringMinerImpl miner = new GitHistoryRefactoringMinerImpl();
+			miner.setCheckoutFree(true);
+			miner.setCollectStatistics(true);
+			StatisticsHandler handler = new StatisticsHandler();
+			miner.detectAll(repository.getRepository(), "master", handler);
+			assertEquals(repository.getCommitIds().subList(1, 2), handler.commitIds);
+			assertEquals(1, handler.refactoringsCount);
+			DetectionStatistics commit = handler.statistics.get(0);
+			DetectionStatistics total = handler.total;
+			assertEquals(1, commit.getCommitsCount());
+			assertEquals(1, total.getCommitsCount());
+			for(Phase phase : new Phase[] {Phase.CHECKOUT, Phase.PARSING, Phase.MODEL_DIFF, Phase.REFACTORINGS}) {
+				assertTrue(phase.toString(), commit.getRuns(phase) > 0);
+			}
+			for(Counter counter : Counter.values()) {
+				assertTrue(counter.toString(), commit.getCount(counter) > 0);
+			}
+			//with a single analyzed commit, the totals are the statistics of that commit
+			for(Phase phase : Phase.values()) {
+				assertEquals(phase.toString(), commit.getRuns(phase), total.getRuns(phase));
+				assertEquals(phase.toString(), commit.getWallTime(phase), total.getWallTime(phase));
+				assertEquals(phase.toString(), commit.getCpuTime(phase), total.getCpuTime(phase));
+				assertEquals(phase.toString(), commit.getAllocatedBytes(phase), total.getAllocatedBytes(phase));
+			}
+			for(Counter counter : Counter.values()) {
+				assertEquals(counter.toString(), commit.getCount(counter), total.getCount(counter));
+			}
+			assertEquals(commit.getTotalWallTime(), total.getTotalWallTime());
+
+			//without collecting statistics, none are delivered
+			miner.setCollectStatistics(false);
+			handler = new StatisticsHandler();
+			miner.detectAll(repository.getRepository(), "master", handler);
+			assertEquals(1, handler.refactoringsCount);
+			assertTrue(handler.statistics.isEmpty());
+			assertNull(handler.total);
+		}
+	}
+
+	@Test
+	public void testNothingIsCountedWithoutCurrentStatistics() {
+		DetectionStatistics.setCurrent(null);
+		assertNull(DetectionStatistics.start(Phase.PARSING));
+		DetectionStatistics.count(Counter.MAPPERS);
+		DetectionStatistics statistics = new DetectionStatistics();
+		DetectionStatistics.setCurrent(statistics);
+		try {
+			DetectionStatistics.count(Counter.MAPPERS);
+			DetectionStatistics.count(Counter.MAPPERS);
+			DetectionStatistics.stop(DetectionStatistics.start(Phase.PARSING));
+		}
+		finally {
+			DetectionStatistics.setCurrent(null);
+		}
+		DetectionStatistics.count(Counter.MAPPERS);
+		assertEquals(2, statistics.getCount(Counter.MAPPERS));
+		assertEquals(1, statistics.getRuns(Phase.PARSING));
+	}
+
+	private static class StatisticsHandler extends RefactoringHandler {
+		private final List<String> commitIds = new ArrayList<String>();
+		private final List<DetectionStatistics> statistics = new ArrayList<DetectionStatistics>();
+		private DetectionStatistics total;
+		private int refactoringsCount;
+
+		@Override
+		public void handleStatistics(String commitId, DetectionStatistics statistics) {
+			commitIds.add(commitId);
+			this.statistics.add(statistics);
+		}
+
+		@Override
+		public void onFinish(DetectionStatistics statistics) {
+			total = statistics;
+		}
+
+		@Override
+		public void onFinish(int refactoringsCount, int commitsCount, int errorCommitsCount) {
+			this.refactoringsCount = refactoringsCount;
+		}
+	}
+}
@@ -0,0 +1,187 @@
+package org.refactoringminer.rm1;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import gr.uom.java.xmi.UMLModel;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.refactoringminer.api.CommitRefactorings;
+import org.refactoringminer.api.GitService;
+import org.refactoringminer.api.Refactoring;
+import org.refactoringminer.rm1.TestRepository.CollectingHandler;
+
+public class TestGitHistoryRefactoringMinerImpl {
+	private static TestRepository repository;
+
+	@BeforeClass
+	public static void createRepository() throws Exception {
+		repository = TestRepository.create();
+	}
+
+	@AfterClass
+	public static void deleteRepository() throws Exception {
+		repository.close();
+	}
+
+	@Test
+	public void testCheckoutFreeEqualsCheckout() throws Exception {
+		GitHistoryRefactoringMinerImpl miner = new GitHistoryRefactoringMinerImpl();
+		Map<String, List<String>> checkout = detectAll(miner);
+		miner.setCheckoutFree(true);
+		Map<String, List<String>> checkoutFree = detectAll(miner);
+		assertEquals(checkout, checkoutFree);
+		//every commit after the first is analyzed and the history has refactorings to compare
+		assertEquals(repository.getCommitIds().size() - 1, checkout.size());
+		assertTrue(checkout.toString(), countRefactorings(checkout) >= 5);
+	}
+
+	@Test
+	public void testModelCacheDoesNotChangeRefactorings() throws Exception {
+		GitHistoryRefactoringMinerImpl miner = new GitHistoryRefactoringMinerImpl();
+		miner.setCheckoutFree(true);
+		Map<String, List<String>> uncached = detectAll(miner);
+		miner.setModelCacheSize(100);
+		assertEquals(uncached, detectAll(miner));
+		//the files a commit shares with its parent are read from the cache
+		assertTrue(miner.getModelCache().getHits() > 0);
+		//a cache too small for the files of one commit
+		miner.setModelCacheSize(1);
+		assertEquals(uncached, detectAll(miner));
+	}
+
+	@Test
+	public void testPreviousCommitModelsAreReused() throws Exception {
+		CountingMiner miner = new CountingMiner();
+		miner.setCheckoutFree(true);
+		Map<String, List<String>> expected = detectAll(miner);
+		//both sides of the changed files of the four commits changing Java files
+		assertEquals(8, miner.parsedFiles.getAndSet(0));
+		miner.setReusePreviousCommitModels(true);
+		assertEquals(expected, detectAll(miner));
+		//the Shape.java changed by the rename commit is the one produced by the extract method commit, its parent
+		assertEquals(7, miner.parsedFiles.getAndSet(0));
+		//parallel workers reuse the models of a child only if its analysis has completed
+		miner.setNumberOfThreads(3);
+		assertEquals(expected, detectAll(miner));
+		assertTrue(miner.parsedFiles.get() <= 8);
+	}
+
+	@Test
+	public void testStreamDeliversCommitsInWalkOrder() throws Exception {
+		GitHistoryRefactoringMinerImpl miner = new GitHistoryRefactoringMinerImpl();
+		miner.setCheckoutFree(true);
+		Map<String, List<String>> expected = detectAll(miner);
+		Map<String, List<String>> streamed = streamAll(miner);
+		assertEquals(new ArrayList<String>(expected.keySet()), new ArrayList<String>(streamed.keySet()));
+		assertEquals(expected, streamed);
+	}
+
+	@Test
+	public void testSequentialStreamEqualsParallelStream() throws Exception {
+		GitHistoryRefactoringMinerImpl miner = new GitHistoryRefactoringMinerImpl();
+		miner.setCheckoutFree(true);
+		Map<String, List<String>> sequential = streamAll(miner);
+		miner.setNumberOfThreads(3);
+		Map<String, List<String>> parallel = streamAll(miner);
+		assertEquals(new ArrayList<String>(sequential.keySet()), new ArrayList<String>(parallel.keySet()));
+		assertEquals(sequential, parallel);
+	}
+
+	@Test
+	public void testLimitedStreamStopsTheAnalysis() throws Exception {
+		CountingMiner miner = new CountingMiner();
+		miner.setCheckoutFree(true);
+		List<String> commitIds = new ArrayList<String>(detectAll(miner).keySet());
+		miner.analyzedCommits.set(0);
+		try (Stream<CommitRefactorings> stream = miner.streamAll(repository.getRepository(), "master")) {
+			assertEquals(commitIds.subList(0, 2), new ArrayList<String>(TestRepository.results(stream.limit(2).collect(Collectors.toList())).keySet()));
+		}
+		//the sequential stream analyzes a commit when it is pulled
+		assertEquals(2, miner.analyzedCommits.getAndSet(0));
+		miner.setNumberOfThreads(2);
+		try (Stream<CommitRefactorings> stream = miner.streamAll(repository.getRepository(), "master")) {
+			assertEquals(commitIds.get(0), stream.findFirst().get().getCommitId());
+		}
+		//the parallel stream analyzes at most twice as many commits as threads ahead of the last one pulled
+		assertTrue(miner.analyzedCommits.get() <= 1 + 2 * 2);
+	}
+
+	@Test
+	public void testClosedStreamShutsDownItsThreads() throws Exception {
+		GitHistoryRefactoringMinerImpl miner = new GitHistoryRefactoringMinerImpl();
+		miner.setCheckoutFree(true);
+		miner.setNumberOfThreads(3);
+		try (Stream<CommitRefactorings> stream = miner.streamAll(repository.getRepository(), "master")) {
+			assertTrue(stream.findFirst().isPresent());
+		}
+		//the analyses running when the stream is closed complete, and their threads terminate
+		long deadline = System.currentTimeMillis() + 30000;
+		while (streamThreads() > 0 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(50);
+		}
+		assertEquals(0, streamThreads());
+	}
+
+	private static int streamThreads() {
+		int count = 0;
+		for (Thread thread : Thread.getAllStackTraces().keySet()) {
+			if (thread.getName().startsWith("CommitIterator-") && thread.isAlive()) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	static Map<String, List<String>> streamAll(GitHistoryRefactoringMinerImpl miner) throws Exception {
+		try (Stream<CommitRefactorings> stream = miner.streamAll(repository.getRepository(), "master")) {
+			return TestRepository.results(stream.collect(Collectors.toList()));
+		}
+	}
+
+	static Map<String, List<String>> detectAll(GitHistoryRefactoringMinerImpl miner) throws Exception {
+		CollectingHandler handler = new CollectingHandler();
+		miner.detectAll(repository.getRepository(), "master", handler);
+		assertEquals(0, handler.getErrors());
+		return handler.getResults();
+	}
+
+	private static class CountingMiner extends GitHistoryRefactoringMinerImpl {
+		private final AtomicInteger parsedFiles = new AtomicInteger();
+		private final AtomicInteger analyzedCommits = new AtomicInteger();
+
+		@Override
+		protected List<Refactoring> detectRefactoringsInMemory(GitService gitService, Repository repository, File projectFolder, RevCommit currentCommit) throws Exception {
+			analyzedCommits.incrementAndGet();
+			return super.detectRefactoringsInMemory(gitService, repository, projectFolder, currentCommit);
+		}
+
+		@Override
+		protected UMLModel createModel(File projectFolder, Map<String, String> fileContents, Set<String> repositoryDirectories) throws Exception {
+			parsedFiles.addAndGet(fileContents.size());
+			return super.createModel(projectFolder, fileContents, repositoryDirectories);
+		}
+	}
+
+	static int countRefactorings(Map<String, List<String>> results) {
+		int count = 0;
+		for(List<String> refactorings : results.values()) {
+			count += refactorings.size();
+		}
+		return count;
+	}
+}
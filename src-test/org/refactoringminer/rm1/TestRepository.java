@@ -0,0 +1,282 @@
+package org.refactoringminer.rm1;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.refactoringminer.api.CommitRefactorings;
+import org.refactoringminer.api.Refactoring;
+import org.refactoringminer.api.RefactoringHandler;
+
+/**
+ * Git repository in a temporary folder, with a linear history of small refactorings of a few classes.
+ */
+public class TestRepository implements AutoCloseable {
+	private final File folder;
+	private final Git git;
+	private final List<String> commitIds = new ArrayList<String>();
+
+	private TestRepository() throws Exception {
+		this.folder = Files.createTempDirectory("refactoringminer").toFile();
+		this.git = Git.init().setDirectory(folder).call();
+	}
+
+	/**
+	 * @return a repository whose master branch, and the master branch of its origin remote, hold the commits of {@link #shapeHistory()}, in order
+	 */
+	public static TestRepository create() throws Exception {
+		return create(shapeHistory());
+	}
+
+	/**
+	 * @param history The files of each commit, keyed by path.
+	 * @return a repository whose master branch, and the master branch of its origin remote, hold the given commits, in order
+	 */
+	public static TestRepository create(List<Map<String, String>> history) throws Exception {
+		TestRepository repository = new TestRepository();
+		try {
+			for(Map<String, String> files : history) {
+				repository.commit(files);
+			}
+			//the miner walks the branches of the remote, as in a clone
+			RefUpdate update = repository.getRepository().updateRef("refs/remotes/origin/master");
+			update.setNewObjectId(ObjectId.fromString(repository.commitIds.get(repository.commitIds.size() - 1)));
+			update.forceUpdate();
+		}
+		catch(Exception e) {
+			repository.close();
+			throw e;
+		}
+		return repository;
+	}
+
+	public Repository getRepository() {
+		return git.getRepository();
+	}
+
+	/**
+	 * @return the ids of the commits, from the first to the last
+	 */
+	public List<String> getCommitIds() {
+		return commitIds;
+	}
+
+	/**
+	 * Replaces the contents of the working tree with the given files, keyed by path, and commits them.
+	 */
+	private void commit(Map<String, String> files) throws Exception {
+		for(String path : git.getRepository().getDirectory().getParentFile().list()) {
+			if(!path.equals(".git")) {
+				delete(new File(folder, path));
+			}
+		}
+		for(Map.Entry<String, String> entry : files.entrySet()) {
+			File file = new File(folder, entry.getKey());
+			file.getParentFile().mkdirs();
+			Files.write(file.toPath(), entry.getValue().getBytes(StandardCharsets.UTF_8));
+		}
+		git.add().addFilepattern(".").call();
+		git.add().setUpdate(true).addFilepattern(".").call();
+		RevCommit commit = git.commit().setMessage("commit " + commitIds.size()).setAuthor("author", "author@example.com").call();
+		commitIds.add(commit.getId().getName());
+	}
+
+	@Override
+	public void close() throws IOException {
+		git.close();
+		delete(folder);
+	}
+
+	private static void delete(File file) {
+		File[] children = file.listFiles();
+		if(children != null) {
+			for(File child : children) {
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+
+	/**
+	 * @return the results of the commits delivered by the miner as text, keyed by commit id in the order they were handled
+	 */
+	public static Map<String, List<String>> results(List<CommitRefactorings> commits) {
+		Map<String, List<String>> results = new LinkedHashMap<String, List<String>>();
+		for(CommitRefactorings commit : commits) {
+			results.put(commit.getCommitId(), descriptions(commit.getRefactorings()));
+		}
+		return results;
+	}
+
+	static List<String> descriptions(List<Refactoring> refactorings) {
+		List<String> descriptions = new ArrayList<String>();
+		for(Refactoring refactoring : refactorings) {
+			descriptions.add(refactoring.toString());
+		}
+		return descriptions;
+	}
+
+	/**
+	 * Handler collecting the refactorings of each commit as text, keyed by commit id in the order they were handled.
+	 */
+	public static class CollectingHandler extends RefactoringHandler {
+		private final Map<String, List<String>> results = new LinkedHashMap<String, List<String>>();
+		private int errors;
+
+		@Override
+		public void handle(String commitId, List<Refactoring> refactorings) {
+			results.put(commitId, descriptions(refactorings));
+		}
+
+		@Override
+		public void handleException(String commitId, Exception e) {
+			errors++;
+		}
+
+		public Map<String, List<String>> getResults() {
+			return results;
+		}
+
+		public int getErrors() {
+			return errors;
+		}
+	}
+
+	/**
+	 * @return the files of each commit, keyed by path
+	 */
+	public static List<Map<String, String>> shapeHistory() {
+		List<Map<String, String>> history = new ArrayList<Map<String, String>>();
+		String shape = shape("", "\t\tSystem.out.println(\"width \" + w + \" height \" + h);\n\t\tSystem.out.println(\"ratio \" + (w / (double)h));\n", "describe", "prefix", "text");
+		Map<String, String> files = new LinkedHashMap<String, String>();
+		files.put("src/p/Shape.java", shape);
+		files.put("src/p/Canvas.java", CANVAS);
+		files.put("src/p/Util.java", "package p;\n" + UTIL);
+		files.put("src/p/Registry.java", "package p;\npublic class Registry" + REGISTRY);
+		files.put("README.md", "shapes\n");
+		history.add(files);
+		//extract method
+		files = new LinkedHashMap<String, String>(files);
+		files.put("src/p/Shape.java", shape("\tprivate void logDimensions(int w, int h) {\n" +
+				"\t\tSystem.out.println(\"width \" + w + \" height \" + h);\n\t\tSystem.out.println(\"ratio \" + (w / (double)h));\n\t}\n",
+				"\t\tlogDimensions(w, h);\n", "describe", "prefix", "text"));
+		history.add(files);
+		//rename method, parameter and variable
+		files = new LinkedHashMap<String, String>(files);
+		files.put("src/p/Shape.java", shape("\tprivate void logDimensions(int w, int h) {\n" +
+				"\t\tSystem.out.println(\"width \" + w + \" height \" + h);\n\t\tSystem.out.println(\"ratio \" + (w / (double)h));\n\t}\n",
+				"\t\tlogDimensions(w, h);\n", "description", "label", "description"));
+		history.add(files);
+		//no Java change
+		files = new LinkedHashMap<String, String>(files);
+		files.put("README.md", "shapes and canvases\n");
+		history.add(files);
+		//move class
+		files = new LinkedHashMap<String, String>(files);
+		files.remove("src/p/Util.java");
+		files.put("src/q/Util.java", "package q;\n" + UTIL);
+		history.add(files);
+		//rename class
+		files = new LinkedHashMap<String, String>(files);
+		files.remove("src/p/Registry.java");
+		files.put("src/p/ShapeRegistry.java", "package p;\npublic class ShapeRegistry" + REGISTRY);
+		history.add(files);
+		return history;
+	}
+
+	private static String shape(String extractedMethod, String logging, String describe, String prefix, String text) {
+		return "package p;\n" +
+				"public class Shape {\n" +
+				"\tprotected String name;\n" +
+				"\tprivate int width;\n" +
+				"\tprivate int height;\n" +
+				"\tpublic Shape(String name, int width, int height) {\n" +
+				"\t\tthis.name = name;\n" +
+				"\t\tthis.width = width;\n" +
+				"\t\tthis.height = height;\n" +
+				"\t}\n" +
+				"\tpublic int area() {\n" +
+				"\t\tint w = width;\n" +
+				"\t\tint h = height;\n" +
+				"\t\tSystem.out.println(\"computing the area of \" + name);\n" +
+				logging +
+				"\t\treturn w * h;\n" +
+				"\t}\n" +
+				extractedMethod +
+				"\tpublic String " + describe + "(String " + prefix + ") {\n" +
+				"\t\tString " + text + " = " + prefix + " + name;\n" +
+				"\t\tif(" + text + ".length() > 10) {\n" +
+				"\t\t\t" + text + " = " + text + ".substring(0, 10);\n" +
+				"\t\t}\n" +
+				"\t\treturn " + text + " + \" with area \" + area();\n" +
+				"\t}\n" +
+				"\tpublic void draw(Canvas canvas) {\n" +
+				"\t\tcanvas.begin(name);\n" +
+				"\t\tcanvas.line(0, 0, width, 0);\n" +
+				"\t\tcanvas.line(width, 0, width, height);\n" +
+				"\t\tcanvas.line(width, height, 0, height);\n" +
+				"\t\tcanvas.line(0, height, 0, 0);\n" +
+				"\t\tcanvas.end(name);\n" +
+				"\t}\n" +
+				"}\n";
+	}
+
+	private static final String CANVAS =
+			"package p;\n" +
+			"public class Canvas {\n" +
+			"\tprivate StringBuilder out = new StringBuilder();\n" +
+			"\tpublic void begin(String name) {\n" +
+			"\t\tout.append(\"<\" + name + \">\");\n" +
+			"\t}\n" +
+			"\tpublic void line(int x1, int y1, int x2, int y2) {\n" +
+			"\t\tout.append(x1 + \",\" + y1 + \" \" + x2 + \",\" + y2);\n" +
+			"\t}\n" +
+			"\tpublic void end(String name) {\n" +
+			"\t\tout.append(\"</\" + name + \">\");\n" +
+			"\t}\n" +
+			"}\n";
+
+	private static final String UTIL =
+			"public class Util {\n" +
+			"\tprivate static final int LIMIT = 100;\n" +
+			"\tpublic static int clamp(int value) {\n" +
+			"\t\tif(value > LIMIT) {\n" +
+			"\t\t\treturn LIMIT;\n" +
+			"\t\t}\n" +
+			"\t\treturn value < 0 ? 0 : value;\n" +
+			"\t}\n" +
+			"\tpublic static String repeat(String s, int times) {\n" +
+			"\t\tStringBuilder sb = new StringBuilder();\n" +
+			"\t\tfor(int i = 0; i < times; i++) {\n" +
+			"\t\t\tsb.append(s);\n" +
+			"\t\t}\n" +
+			"\t\treturn sb.toString();\n" +
+			"\t}\n" +
+			"}\n";
+
+	private static final String REGISTRY =
+			" {\n" +
+			"\tprivate java.util.Map<String, Shape> shapes = new java.util.HashMap<String, Shape>();\n" +
+			"\tpublic void register(Shape shape) {\n" +
+			"\t\tshapes.put(shape.name, shape);\n" +
+			"\t\tSystem.out.println(\"registered \" + shape.name);\n" +
+			"\t}\n" +
+			"\tpublic Shape lookup(String name) {\n" +
+			"\t\tShape shape = shapes.get(name);\n" +
+			"\t\tif(shape == null) {\n" +
+			"\t\t\tthrow new IllegalArgumentException(name);\n" +
+			"\t\t}\n" +
+			"\t\treturn shape;\n" +
+			"\t}\n" +
+			"}\n";
+}
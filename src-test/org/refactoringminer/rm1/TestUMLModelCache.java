@@ -0,0 +1,49 @@
+package org.refactoringminer.rm1;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import gr.uom.java.xmi.UMLModel;
+
+import org.eclipse.jgit.lib.ObjectId;
+import org.junit.Test;
+
+public class TestUMLModelCache {
+	private static final ObjectId BLOB_A = ObjectId.fromString("0123456789012345678901234567890123456789");
+	private static final ObjectId BLOB_B = ObjectId.fromString("9876543210987654321098765432109876543210");
+	private static final ObjectId BLOB_C = ObjectId.fromString("abcdefabcdefabcdefabcdefabcdefabcdefabcd");
+
+	@Test
+	public void testLeastRecentlyUsedEntryIsEvicted() {
+		UMLModelCache cache = new UMLModelCache(2);
+		UMLModel a = new UMLModel(null);
+		UMLModel b = new UMLModel(null);
+		UMLModel c = new UMLModel(null);
+		cache.put(BLOB_A, "A.java", a);
+		cache.put(BLOB_B, "B.java", b);
+		//reading A makes B the least recently used entry
+		assertSame(a, cache.get(BLOB_A, "A.java"));
+		cache.put(BLOB_C, "C.java", c);
+		assertEquals(2, cache.size());
+		assertNull(cache.get(BLOB_B, "B.java"));
+		assertSame(a, cache.get(BLOB_A, "A.java"));
+		assertSame(c, cache.get(BLOB_C, "C.java"));
+	}
+
+	@Test
+	public void testHitsAndMisses() {
+		UMLModelCache cache = new UMLModelCache(10);
+		UMLModel a = new UMLModel(null);
+		assertNull(cache.get(BLOB_A, "A.java"));
+		cache.put(BLOB_A, "A.java", a);
+		assertSame(a, cache.get(BLOB_A, "A.java"));
+		//the same content under another path is another entry
+		assertNull(cache.get(BLOB_A, "p/A.java"));
+		//an equal id that is another instance finds the entry
+		assertSame(a, cache.get(ObjectId.fromString(BLOB_A.name()), "A.java"));
+		assertNull(cache.get(BLOB_B, "A.java"));
+		assertEquals(2, cache.getHits());
+		assertEquals(3, cache.getMisses());
+	}
+}
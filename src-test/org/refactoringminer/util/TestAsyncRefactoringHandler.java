@@ -0,0 +1,252 @@
+package org.refactoringminer.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.refactoringminer.util.TestRefactoring.refactorings;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.Test;
+import org.refactoringminer.api.DetectionStatistics;
+import org.refactoringminer.api.Refactoring;
+import org.refactoringminer.api.RefactoringHandler;
+import org.refactoringminer.api.RefactoringType;
+import org.refactoringminer.util.AsyncRefactoringHandler.OverflowPolicy;
+
+public class TestAsyncRefactoringHandler {
+
+	@Test
+	public void testResultsAreDeliveredInOrder() {
+		RecordingHandler delegate = new RecordingHandler();
+		AsyncRefactoringHandler handler = new AsyncRefactoringHandler(delegate, 4, 1, 3, OverflowPolicy.BLOCK);
+		List<String> expected = new ArrayList<String>();
+		for(int i = 0; i < 300; i++) {
+			String commitId = "c" + i;
+			if(i % 7 == 0) {
+				handler.handleException(commitId, new IllegalStateException(commitId));
+				expected.add(commitId + " error " + new IllegalStateException(commitId));
+			}
+			else {
+				handler.handle(commitId, refactorings(commitId, i % 3));
+				expected.add(commitId + " " + descriptions(commitId, i % 3));
+			}
+		}
+		handler.onFinish(0, 300, 0);
+		assertEquals(expected, delegate.results);
+		assertEquals(1, delegate.finished);
+	}
+
+	@Test
+	public void testDropPolicy() throws InterruptedException {
+		RecordingHandler delegate = new RecordingHandler();
+		AsyncRefactoringHandler handler = new AsyncRefactoringHandler(delegate, 2, 1, 1, OverflowPolicy.DROP);
+		fillWhileBlocked(handler, delegate);
+		handler.onFinish(0, 11, 1);
+		//c0 was being delivered and c1, c2 were queued when the others arrived
+		assertEquals(8, handler.getDroppedCount());
+		assertEquals(3, delegate.results.size());
+		for(int i = 0; i < 3; i++) {
+			assertEquals("c" + i + " " + descriptions("c" + i, 2), delegate.results.get(i));
+		}
+	}
+
+	@Test
+	public void testSpillPolicy() throws InterruptedException {
+		RecordingHandler delegate = new RecordingHandler();
+		AsyncRefactoringHandler handler = new AsyncRefactoringHandler(delegate, 2, 1, 2, OverflowPolicy.SPILL);
+		fillWhileBlocked(handler, delegate);
+		handler.onFinish(0, 11, 1);
+		assertEquals(0, handler.getDroppedCount());
+		assertEquals(11, delegate.results.size());
+		for(int i = 0; i < 10; i++) {
+			assertEquals("c" + i + " " + descriptions("c" + i, 2), delegate.results.get(i));
+		}
+		//spilled exceptions are serialized
+		assertEquals("c10 error " + new IllegalStateException("c10"), delegate.results.get(10));
+		//spilled refactorings keep their type, name and description
+		Refactoring spilled = delegate.refactorings.get(9).get(1);
+		assertEquals(RefactoringType.RENAME_METHOD, spilled.getRefactoringType());
+		assertEquals(RefactoringType.RENAME_METHOD.getDisplayName(), spilled.getName());
+	}
+
+	@Test
+	public void testSpilledResultsKeepTheirCommitsAndStatistics() {
+		RecordingHandler delegate = new RecordingHandler();
+		delegate.block();
+		AsyncRefactoringHandler handler = new AsyncRefactoringHandler(delegate, 1, 1, 1, OverflowPolicy.SPILL);
+		List<String> commitIds = new ArrayList<String>();
+		List<DetectionStatistics> statistics = new ArrayList<DetectionStatistics>();
+		for(int i = 0; i < 6; i++) {
+			RevCommit commit = commit(i);
+			String commitId = commit.getName();
+			commitIds.add(commitId);
+			statistics.add(new DetectionStatistics());
+			handler.handleStatistics(commitId, statistics.get(i));
+			//the miner hands the same list over by commit id and by commit
+			List<Refactoring> refactorings = refactorings(commitId, 2);
+			handler.handle(commitId, refactorings);
+			handler.handle(commit, refactorings);
+		}
+		String failedCommitId = commit(6).getName();
+		statistics.add(new DetectionStatistics());
+		handler.handleStatistics(failedCommitId, statistics.get(6));
+		handler.handleException(failedCommitId, new IllegalStateException(failedCommitId));
+		delegate.release.countDown();
+		handler.onFinish(0, 7, 1);
+		assertEquals(commitIds, delegate.commitIds);
+		List<String> statisticsCommitIds = new ArrayList<String>(commitIds);
+		statisticsCommitIds.add(failedCommitId);
+		assertEquals(statisticsCommitIds, delegate.statisticsCommitIds);
+		for(int i = 0; i < statistics.size(); i++) {
+			assertSame(statistics.get(i), delegate.statistics.get(i));
+		}
+		assertEquals(IllegalStateException.class, delegate.exceptions.get(0).getClass());
+		assertEquals(failedCommitId, delegate.exceptions.get(0).getMessage());
+		//with room for a single result, the last results were spilled, and their refactorings are stand-ins
+		List<Refactoring> spilled = delegate.refactorings.get(5);
+		assertFalse(spilled.get(0) instanceof TestRefactoring);
+		assertEquals(refactorings(commitIds.get(5), 2).toString(), spilled.toString());
+	}
+
+	@Test
+	public void testFailureIsRethrownToTheAnalysis() throws InterruptedException {
+		final RuntimeException failure = new RuntimeException("delegate failure");
+		final CountDownLatch failed = new CountDownLatch(1);
+		RecordingHandler delegate = new RecordingHandler() {
+			@Override
+			public void handle(String commitId, List<Refactoring> refactorings) {
+				failed.countDown();
+				throw failure;
+			}
+		};
+		AsyncRefactoringHandler handler = new AsyncRefactoringHandler(delegate, 2, 1, 1, OverflowPolicy.BLOCK);
+		handler.handle("c0", refactorings("c0", 1));
+		handler.handle("c1", refactorings("c1", 1));
+		assertTrue(failed.await(10, TimeUnit.SECONDS));
+		long deadline = System.currentTimeMillis() + 10000;
+		try {
+			//the failure is recorded right after the delegate throws it
+			for(int i = 2; System.currentTimeMillis() < deadline; i++) {
+				handler.handleException("c" + i, new IllegalStateException());
+				Thread.sleep(10);
+			}
+			fail("the failure of the delegate was not rethrown");
+		}
+		catch(RuntimeException e) {
+			assertSame(failure, e);
+		}
+		try {
+			handler.onFinish(0, 0, 0);
+			fail("the failure of the delegate was not rethrown");
+		}
+		catch(RuntimeException e) {
+			assertSame(failure, e);
+		}
+		assertEquals(0, delegate.finished);
+	}
+
+	/**
+	 * Handles the results of commits c0 to c10 while the delegate is blocked in the delivery of c0, which the single
+	 * consumer takes as soon as the result of c1 is handled.
+	 */
+	private static void fillWhileBlocked(AsyncRefactoringHandler handler, RecordingHandler delegate) throws InterruptedException {
+		delegate.block();
+		handler.handle("c0", refactorings("c0", 2));
+		handler.handle("c1", refactorings("c1", 2));
+		assertTrue(delegate.started.await(10, TimeUnit.SECONDS));
+		for(int i = 2; i < 10; i++) {
+			handler.handle("c" + i, refactorings("c" + i, 2));
+		}
+		handler.handleException("c10", new IllegalStateException("c10"));
+		delegate.release.countDown();
+	}
+
+	private static RevCommit commit(int i) {
+		String raw = "tree 4b825dc642cb6eb9a060e54bf8d69288fbee4904\n" +
+				"author author <author@example.com> " + (1500000000 + i) + " +0000\n" +
+				"committer author <author@example.com> " + (1500000000 + i) + " +0000\n" +
+				"\n" +
+				"commit " + i + "\n";
+		return RevCommit.parse(raw.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static String descriptions(String commitId, int count) {
+		List<String> descriptions = new ArrayList<String>();
+		for(Refactoring refactoring : refactorings(commitId, count)) {
+			descriptions.add(refactoring.getName() + ":" + refactoring);
+		}
+		return descriptions.toString();
+	}
+
+	private static class RecordingHandler extends RefactoringHandler {
+		private final List<String> results = Collections.synchronizedList(new ArrayList<String>());
+		private final List<List<Refactoring>> refactorings = Collections.synchronizedList(new ArrayList<List<Refactoring>>());
+		private final List<String> commitIds = Collections.synchronizedList(new ArrayList<String>());
+		private final List<String> statisticsCommitIds = Collections.synchronizedList(new ArrayList<String>());
+		private final List<DetectionStatistics> statistics = Collections.synchronizedList(new ArrayList<DetectionStatistics>());
+		private final List<Exception> exceptions = Collections.synchronizedList(new ArrayList<Exception>());
+		private final CountDownLatch started = new CountDownLatch(1);
+		private final CountDownLatch release = new CountDownLatch(1);
+		private volatile boolean blocking;
+		private volatile int finished;
+
+		private void block() {
+			blocking = true;
+		}
+
+		@Override
+		public void handle(String commitId, List<Refactoring> refactorings) {
+			await();
+			List<String> descriptions = new ArrayList<String>();
+			for(Refactoring refactoring : refactorings) {
+				descriptions.add(refactoring.getName() + ":" + refactoring);
+			}
+			results.add(commitId + " " + descriptions);
+			this.refactorings.add(refactorings);
+		}
+
+		@Override
+		public void handle(RevCommit commitData, List<Refactoring> refactorings) {
+			commitIds.add(commitData.getName());
+		}
+
+		@Override
+		public void handleException(String commitId, Exception e) {
+			await();
+			results.add(commitId + " error " + e);
+			refactorings.add(Collections.<Refactoring>emptyList());
+			exceptions.add(e);
+		}
+
+		@Override
+		public void handleStatistics(String commitId, DetectionStatistics statistics) {
+			statisticsCommitIds.add(commitId);
+			this.statistics.add(statistics);
+		}
+
+		@Override
+		public void onFinish(int refactoringsCount, int commitsCount, int errorCommitsCount) {
+			finished++;
+		}
+
+		private void await() {
+			if(blocking) {
+				started.countDown();
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					throw new IllegalStateException(e);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,52 @@
+package org.refactoringminer.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.refactoringminer.api.Refactoring;
+import org.refactoringminer.api.RefactoringType;
+
+/**
+ * Refactoring with a fixed type and description, for the tests of the handlers and writers of refactorings.
+ */
+public class TestRefactoring implements Refactoring {
+	private final RefactoringType refactoringType;
+	private final String description;
+
+	public TestRefactoring(RefactoringType refactoringType, String description) {
+		this.refactoringType = refactoringType;
+		this.description = description;
+	}
+
+	/**
+	 * @return {@code count} refactorings of the given commit, alternately Extract Method and Rename Method,
+	 * whose descriptions contain characters escaped in JSON
+	 */
+	public static List<Refactoring> refactorings(String commitId, int count) {
+		if(count == 0) {
+			return Collections.emptyList();
+		}
+		List<Refactoring> refactorings = new ArrayList<Refactoring>();
+		for(int i = 0; i < count; i++) {
+			refactorings.add(new TestRefactoring(i % 2 == 0 ? RefactoringType.EXTRACT_OPERATION : RefactoringType.RENAME_METHOD,
+					commitId + "-" + i + " \"m\\()\"\t\u0001 \u03b1"));
+		}
+		return refactorings;
+	}
+
+	@Override
+	public RefactoringType getRefactoringType() {
+		return refactoringType;
+	}
+
+	@Override
+	public String getName() {
+		return refactoringType.getDisplayName();
+	}
+
+	@Override
+	public String toString() {
+		return description;
+	}
+}
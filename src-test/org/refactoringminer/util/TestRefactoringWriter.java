@@ -0,0 +1,80 @@
+package org.refactoringminer.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.refactoringminer.util.TestRefactoring.refactorings;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.refactoringminer.api.Refactoring;
+
+public class TestRefactoringWriter {
+
+	@Test
+	public void testCsv() throws IOException {
+		List<String> expected = new ArrayList<String>();
+		expected.add("CommitId;RefactoringType;RefactoringDetail");
+		for(int i = 0; i < 200; i++) {
+			for(Refactoring refactoring : refactorings("c" + i, i % 4)) {
+				expected.add("c" + i + ";" + refactoring.getName() + ";" + refactoring);
+			}
+		}
+		assertEquals(expected, write(false, false));
+		assertEquals(expected, write(false, true));
+	}
+
+	@Test
+	public void testJsonLines() throws IOException {
+		List<String> expected = new ArrayList<String>();
+		for(int i = 0; i < 200; i++) {
+			for(Refactoring refactoring : refactorings("c" + i, i % 4)) {
+				expected.add("{\"commitId\":\"c" + i + "\",\"type\":\"" + refactoring.getName() + "\",\"description\":\"" +
+						refactoring.toString().replace("\\", "\\\\").replace("\"", "\\\"").replace("\t", "\\t").replace("\u0001", "\\u0001") + "\"}");
+			}
+		}
+		assertEquals(expected, write(true, false));
+		assertEquals(expected, write(true, true));
+	}
+
+	@Test
+	public void testRecordsAreFlushedPerCommit() throws IOException {
+		File file = File.createTempFile("refactorings", ".csv");
+		file.deleteOnExit();
+		RefactoringWriter writer = RefactoringWriter.csv(file.toPath(), false);
+		try {
+			writer.write("c0", refactorings("c0", 2));
+			assertEquals(3, Files.readAllLines(file.toPath(), StandardCharsets.UTF_8).size());
+		}
+		finally {
+			writer.close();
+			file.delete();
+		}
+	}
+
+	private static List<String> write(boolean json, boolean async) throws IOException {
+		File file = File.createTempFile("refactorings", json ? ".json" : ".csv");
+		file.deleteOnExit();
+		Path path = file.toPath();
+		try {
+			RefactoringWriter writer = json ? RefactoringWriter.jsonLines(path, async) : RefactoringWriter.csv(path, async);
+			try {
+				for(int i = 0; i < 200; i++) {
+					writer.write("c" + i, refactorings("c" + i, i % 4));
+				}
+			}
+			finally {
+				writer.close();
+			}
+			return Files.readAllLines(path, StandardCharsets.UTF_8);
+		}
+		finally {
+			file.delete();
+		}
+	}
+}
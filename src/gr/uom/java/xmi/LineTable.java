@@ -0,0 +1,137 @@
+package gr.uom.java.xmi;
+
+import org.eclipse.jdt.core.dom.CompilationUnit;
+
+/**
+ * Line structure of a source file, shared by all the {@link LocationInfo} of the file, which keep only offsets
+ * and compute their lines and columns from this table when they are requested. Lines and columns are computed
+ * exactly as {@link CompilationUnit#getLineNumber(int)} and {@link CompilationUnit#getColumnNumber(int)} do.
+ */
+public class LineTable {
+	private static final String PROPERTY = LineTable.class.getName();
+
+	private final String filePath;
+	//last position of each line, i.e., the position of its line terminator (or the end of the unit for the last line); null if unknown
+	private final int[] lineEnds;
+	private final int unitEnd;
+	//line of the negative positions before the end of the unit, which depends on whether the compilation unit has line terminators
+	private final int negativePositionLine;
+
+	private LineTable(CompilationUnit cu, String filePath) {
+		this.filePath = filePath;
+		this.unitEnd = cu.getStartPosition() + cu.getLength();
+		//the end of a unit that was not parsed from a source is negative
+		this.negativePositionLine = cu.getLineNumber(Math.min(-1, unitEnd - 1));
+		if(negativePositionLine == -2) {
+			//the compilation unit has no line information
+			this.lineEnds = null;
+		}
+		else {
+			int lastLine = unitEnd > 0 ? cu.getLineNumber(unitEnd - 1) : 0;
+			this.lineEnds = new int[Math.max(lastLine, 0)];
+			for(int line = 1; line < lastLine; line++) {
+				lineEnds[line - 1] = cu.getPosition(line + 1, 0) - 1;
+			}
+			if(lastLine > 0) {
+				lineEnds[lastLine - 1] = unitEnd - 1;
+			}
+		}
+	}
+
+	LineTable(ModelInput input) {
+		this.filePath = input.readString();
+		this.unitEnd = input.readSignedVarint();
+		this.negativePositionLine = input.readSignedVarint();
+		if(input.readBoolean()) {
+			this.lineEnds = new int[input.readVarint()];
+			int previous = -1;
+			for(int i = 0; i < lineEnds.length; i++) {
+				previous += input.readVarint();
+				lineEnds[i] = previous;
+			}
+		}
+		else {
+			this.lineEnds = null;
+		}
+	}
+
+	void write(ModelOutput output) {
+		output.writeString(filePath);
+		output.writeSignedVarint(unitEnd);
+		output.writeSignedVarint(negativePositionLine);
+		output.writeBoolean(lineEnds != null);
+		if(lineEnds != null) {
+			output.writeVarint(lineEnds.length);
+			int previous = -1;
+			for(int lineEnd : lineEnds) {
+				output.writeVarint(lineEnd - previous);
+				previous = lineEnd;
+			}
+		}
+	}
+
+	/**
+	 * @return the line table of the compilation unit, built when it is first requested and then kept with the compilation unit
+	 */
+	public static LineTable of(CompilationUnit cu, String filePath) {
+		LineTable lineTable = (LineTable)cu.getProperty(PROPERTY);
+		if(lineTable == null) {
+			lineTable = new LineTable(cu, filePath);
+			cu.setProperty(PROPERTY, lineTable);
+		}
+		else if(!lineTable.filePath.equals(filePath)) {
+			return new LineTable(cu, filePath);
+		}
+		return lineTable;
+	}
+
+	/**
+	 * Makes this the line table of another compilation unit of the same source.
+	 */
+	void attachTo(CompilationUnit cu) {
+		cu.setProperty(PROPERTY, this);
+	}
+
+	String getFilePath() {
+		return filePath;
+	}
+
+	public int getLineNumber(int position) {
+		if(lineEnds == null) {
+			return -2;
+		}
+		if(position >= unitEnd) {
+			return -1;
+		}
+		if(position < 0) {
+			return negativePositionLine;
+		}
+		//the first line whose end is not before the position
+		int low = 0;
+		int high = lineEnds.length - 1;
+		while(low < high) {
+			int middle = (low + high) >>> 1;
+			if(lineEnds[middle] < position) {
+				low = middle + 1;
+			}
+			else {
+				high = middle;
+			}
+		}
+		return low + 1;
+	}
+
+	public int getColumnNumber(int position) {
+		if(lineEnds == null) {
+			return -2;
+		}
+		int line = getLineNumber(position);
+		if(line == -1) {
+			return -1;
+		}
+		if(line == 1) {
+			return position >= unitEnd ? -1 : position;
+		}
+		return position - (lineEnds[line - 2] + 1);
+	}
+}
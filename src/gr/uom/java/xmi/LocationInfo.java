@@ -5,40 +5,35 @@ import org.eclipse.jdt.core.dom.CompilationUnit;
 
 import gr.uom.java.xmi.diff.CodeRange;
 
+/**
+ * Location of a code element. Only the offsets are stored; lines and columns are computed from the line table
+ * shared by all the locations of the file.
+ */
 public class LocationInfo {
-	private String filePath;
+	private LineTable lineTable;
 	private int startOffset;
-	private int endOffset; 
 	private int length;
-	private int startLine;
-	private int startColumn;
-	private int endLine;
-	private int endColumn;
 	
 	public LocationInfo(CompilationUnit cu, String filePath, ASTNode node) {
-		this.filePath = filePath;
+		this.lineTable = LineTable.of(cu, filePath);
 		this.startOffset = node.getStartPosition();
 		this.length = node.getLength();
-		this.endOffset = startOffset + length;
-		
-		//lines are 1-based
-		this.startLine = cu.getLineNumber(startOffset);
-		this.endLine = cu.getLineNumber(endOffset);
-		//columns are 0-based
-		this.startColumn = cu.getColumnNumber(startOffset);
-		//convert to 1-based
-		if(this.startColumn > 0) {
-			this.startColumn += 1;
-		}
-		this.endColumn = cu.getColumnNumber(endOffset);
-		//convert to 1-based
-		if(this.endColumn > 0) {
-			this.endColumn += 1;
-		}
+	}
+
+	LocationInfo(ModelInput input) {
+		this.lineTable = input.readLineTable();
+		this.startOffset = input.readVarint();
+		this.length = input.readVarint();
+	}
+
+	void write(ModelOutput output) {
+		output.writeLineTable(lineTable);
+		output.writeVarint(startOffset);
+		output.writeVarint(length);
 	}
 
 	public String getFilePath() {
-		return filePath;
+		return lineTable.getFilePath();
 	}
 
 	public int getStartOffset() {
@@ -46,27 +41,33 @@ public class LocationInfo {
 	}
 
 	public int getEndOffset() {
-		return endOffset;
+		return startOffset + length;
 	}
 
 	public int getLength() {
 		return length;
 	}
 
+	//lines are 1-based
 	public int getStartLine() {
-		return startLine;
+		return lineTable.getLineNumber(startOffset);
 	}
 
 	public int getStartColumn() {
-		return startColumn;
+		return oneBasedColumn(lineTable.getColumnNumber(startOffset));
 	}
 
 	public int getEndLine() {
-		return endLine;
+		return lineTable.getLineNumber(getEndOffset());
 	}
 
 	public int getEndColumn() {
-		return endColumn;
+		return oneBasedColumn(lineTable.getColumnNumber(getEndOffset()));
+	}
+
+	//columns are 0-based
+	private static int oneBasedColumn(int column) {
+		return column > 0 ? column + 1 : column;
 	}
 
 	public CodeRange codeRange() {
@@ -76,8 +77,8 @@ public class LocationInfo {
 	}
 
 	public boolean subsumes(LocationInfo other) {
-		return this.filePath.equals(other.filePath) &&
+		return this.getFilePath().equals(other.getFilePath()) &&
 				this.startOffset <= other.startOffset &&
-				this.endOffset >= other.endOffset;
+				this.getEndOffset() >= other.getEndOffset();
 	}
 }
@@ -0,0 +1,127 @@
+package gr.uom.java.xmi;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Reader of the binary encoding written by {@link ModelOutput}. The bytes, the string table and the line tables are
+ * shared with the blocks read from this input, which are decoded independently of it.
+ */
+public class ModelInput {
+	private final byte[] data;
+	private final String[] strings;
+	private LineTable[] lineTables;
+	private int position;
+	private final int end;
+
+	public ModelInput(byte[] data, int offset, int length, String[] strings) {
+		this(data, offset, length, strings, new LineTable[0]);
+	}
+
+	private ModelInput(byte[] data, int offset, int length, String[] strings, LineTable[] lineTables) {
+		this.data = data;
+		this.strings = strings;
+		this.lineTables = lineTables;
+		this.position = offset;
+		this.end = offset + length;
+	}
+
+	/**
+	 * @return an input over the next block, which this input skips
+	 */
+	public ModelInput readBlock() {
+		int length = readVarint();
+		checkAvailable(length);
+		ModelInput block = new ModelInput(data, position, length, strings, lineTables);
+		position += length;
+		return block;
+	}
+
+	public int readVarint() {
+		int value = 0;
+		for(int shift = 0; shift < 35; shift += 7) {
+			checkAvailable(1);
+			byte b = data[position++];
+			value |= (b & 0x7F) << shift;
+			if((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IllegalStateException("Malformed varint at position " + position);
+	}
+
+	public int readSignedVarint() {
+		int value = readVarint();
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	public boolean readBoolean() {
+		checkAvailable(1);
+		return data[position++] != 0;
+	}
+
+	public String readString() {
+		int index = readVarint();
+		if(index == 0) {
+			return null;
+		}
+		if(index > strings.length) {
+			throw new IllegalStateException("String index " + index + " out of bounds");
+		}
+		return strings[index - 1];
+	}
+
+	/**
+	 * @return the strings of the list, or a shared immutable list if it is empty
+	 */
+	public List<String> readStringList() {
+		int count = readVarint();
+		if(count == 0) {
+			return Collections.emptyList();
+		}
+		List<String> values = new ArrayList<String>(count);
+		for(int i=0; i<count; i++) {
+			values.add(readString());
+		}
+		return values;
+	}
+
+	public UMLType readType() {
+		return readBoolean() ? new UMLType(this) : null;
+	}
+
+	public LocationInfo readLocationInfo() {
+		return new LocationInfo(this);
+	}
+
+	LineTable readLineTable() {
+		int index = readVarint();
+		if(index < 0 || index >= lineTables.length) {
+			throw new IllegalStateException("Line table index " + index + " out of bounds");
+		}
+		return lineTables[index];
+	}
+
+	/**
+	 * Reads the line tables written by {@link ModelOutput#writeLineTables(ModelOutput)} from {@code input},
+	 * to be referenced by the locations read from this input and its blocks.
+	 */
+	public void readLineTables(ModelInput input) {
+		LineTable[] lineTables = new LineTable[input.readVarint()];
+		for(int i=0; i<lineTables.length; i++) {
+			lineTables[i] = new LineTable(input);
+		}
+		this.lineTables = lineTables;
+	}
+
+	public boolean hasRemaining() {
+		return position < end;
+	}
+
+	private void checkAvailable(int length) {
+		if(length < 0 || position + length > end) {
+			throw new IllegalStateException("Unexpected end of data at position " + position);
+		}
+	}
+}
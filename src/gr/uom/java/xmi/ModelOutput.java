@@ -0,0 +1,145 @@
+package gr.uom.java.xmi;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Buffer receiving the binary encoding of a model. Integers are written as unsigned LEB128 varints, and strings
+ * and line tables as indices into tables shared by the buffer and all the blocks created from it.
+ */
+public class ModelOutput {
+	private final Map<String, Integer> stringIndices;
+	private final Map<LineTable, Integer> lineTableIndices;
+	private byte[] buffer;
+	private int size;
+
+	public ModelOutput() {
+		this(new HashMap<String, Integer>(), new IdentityHashMap<LineTable, Integer>());
+	}
+
+	private ModelOutput(Map<String, Integer> stringIndices, Map<LineTable, Integer> lineTableIndices) {
+		this.stringIndices = stringIndices;
+		this.lineTableIndices = lineTableIndices;
+		this.buffer = new byte[256];
+	}
+
+	/**
+	 * @return an empty buffer sharing the string table of this buffer, to be appended with {@link #writeBlock(ModelOutput)}
+	 */
+	public ModelOutput newBlock() {
+		return new ModelOutput(stringIndices, lineTableIndices);
+	}
+
+	public void writeBlock(ModelOutput block) {
+		writeVarint(block.size);
+		ensureCapacity(block.size);
+		System.arraycopy(block.buffer, 0, buffer, size, block.size);
+		size += block.size;
+	}
+
+	public void writeVarint(int value) {
+		ensureCapacity(5);
+		while((value & ~0x7F) != 0) {
+			buffer[size++] = (byte)((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		buffer[size++] = (byte)value;
+	}
+
+	/**
+	 * Writes a value that may be negative, zigzag encoded so that small negative values stay short.
+	 */
+	public void writeSignedVarint(int value) {
+		writeVarint((value << 1) ^ (value >> 31));
+	}
+
+	public void writeBoolean(boolean value) {
+		ensureCapacity(1);
+		buffer[size++] = (byte)(value ? 1 : 0);
+	}
+
+	/**
+	 * Writes a nullable string as its index in the string table plus one, with zero for null.
+	 */
+	public void writeString(String value) {
+		if(value == null) {
+			writeVarint(0);
+			return;
+		}
+		Integer index = stringIndices.get(value);
+		if(index == null) {
+			index = stringIndices.size();
+			stringIndices.put(value, index);
+		}
+		writeVarint(index + 1);
+	}
+
+	public void writeStringList(List<String> values) {
+		writeVarint(values.size());
+		for(String value : values) {
+			writeString(value);
+		}
+	}
+
+	public void writeType(UMLType type) {
+		writeBoolean(type != null);
+		if(type != null) {
+			type.write(this);
+		}
+	}
+
+	public void writeLocationInfo(LocationInfo locationInfo) {
+		locationInfo.write(this);
+	}
+
+	void writeLineTable(LineTable lineTable) {
+		Integer index = lineTableIndices.get(lineTable);
+		if(index == null) {
+			index = lineTableIndices.size();
+			lineTableIndices.put(lineTable, index);
+		}
+		writeVarint(index);
+	}
+
+	/**
+	 * Writes the line tables referenced so far, ordered by index, whose file paths are added to the string table.
+	 */
+	public void writeLineTables(ModelOutput output) {
+		LineTable[] lineTables = new LineTable[lineTableIndices.size()];
+		for(Map.Entry<LineTable, Integer> entry : lineTableIndices.entrySet()) {
+			lineTables[entry.getValue()] = entry.getKey();
+		}
+		output.writeVarint(lineTables.length);
+		for(LineTable lineTable : lineTables) {
+			lineTable.write(output);
+		}
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public byte[] toByteArray() {
+		return Arrays.copyOf(buffer, size);
+	}
+
+	/**
+	 * @return the strings of the string table, ordered by index
+	 */
+	public String[] getStrings() {
+		String[] strings = new String[stringIndices.size()];
+		for(Map.Entry<String, Integer> entry : stringIndices.entrySet()) {
+			strings[entry.getValue()] = entry.getKey();
+		}
+		return strings;
+	}
+
+	private void ensureCapacity(int length) {
+		if(size + length > buffer.length) {
+			buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + length));
+		}
+	}
+}
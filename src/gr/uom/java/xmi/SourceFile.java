@@ -0,0 +1,61 @@
+package gr.uom.java.xmi;
+
+import java.util.Map;
+
+import org.eclipse.jdt.core.dom.AST;
+import org.eclipse.jdt.core.dom.ASTNode;
+import org.eclipse.jdt.core.dom.ASTParser;
+import org.eclipse.jdt.core.dom.Block;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+
+/**
+ * Text of a parsed Java file, kept by its lazily decomposed operation bodies instead of its AST. A body is decomposed
+ * from its own text parsed again; the positions are the same as in the whole file, and the compilation unit of the
+ * new AST shares the line table and the string pool of the file.
+ */
+public class SourceFile {
+	private final String filePath;
+	private final char[] source;
+	private final Map<String, String> compilerOptions;
+	private final LineTable lineTable;
+	private final StringPool stringPool;
+
+	SourceFile(CompilationUnit cu, String filePath, char[] source, Map<String, String> compilerOptions) {
+		this.filePath = filePath;
+		this.source = source;
+		this.compilerOptions = compilerOptions;
+		this.lineTable = LineTable.of(cu, filePath);
+		this.stringPool = StringPool.of(cu);
+	}
+
+	public String getFilePath() {
+		return filePath;
+	}
+
+	/**
+	 * @return the block at the given range of the file, or null if the range does not hold a block
+	 */
+	public Block parseBlock(int startOffset, int length) {
+		ASTParser parser = ASTParser.newParser(AST.JLS8);
+		parser.setKind(ASTParser.K_STATEMENTS);
+		parser.setCompilerOptions(compilerOptions);
+		parser.setResolveBindings(false);
+		//the parser reads the array without modifying it
+		parser.setSource(source);
+		parser.setSourceRange(startOffset, length);
+		//the statements of the range are wrapped in a block of their own
+		Block statements = (Block)parser.createAST(null);
+		if(statements.statements().size() != 1) {
+			return null;
+		}
+		ASTNode node = (ASTNode)statements.statements().get(0);
+		if(!(node instanceof Block) || node.getStartPosition() != startOffset || node.getLength() != length) {
+			return null;
+		}
+		CompilationUnit cu = (CompilationUnit)node.getRoot();
+		//the line numbers of the new compilation unit are relative to the range
+		lineTable.attachTo(cu);
+		stringPool.attachTo(cu);
+		return (Block)node;
+	}
+}
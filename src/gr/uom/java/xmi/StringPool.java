@@ -0,0 +1,69 @@
+package gr.uom.java.xmi;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.eclipse.jdt.core.dom.CompilationUnit;
+
+/**
+ * Canonical instances of the strings and types of a model. Identifiers, type names, literals and statement strings
+ * repeat across the files of a project, and each occurrence is otherwise a distinct copy produced by the AST.
+ * The pool of a model is attached to its compilation units, so that the code fragments decomposed from them
+ * (possibly later, and on other threads) share the same instances.
+ */
+public class StringPool {
+	private static final String PROPERTY = StringPool.class.getName();
+	//used for the compilation units without a pool, returns its arguments as they are
+	private static final StringPool NONE = new StringPool(false);
+
+	private final ConcurrentMap<String, String> strings;
+	private final ConcurrentMap<String, UMLType> types;
+
+	public StringPool() {
+		this(true);
+	}
+
+	private StringPool(boolean pooled) {
+		this.strings = pooled ? new ConcurrentHashMap<String, String>() : null;
+		this.types = pooled ? new ConcurrentHashMap<String, UMLType>() : null;
+	}
+
+	/**
+	 * @return the pool attached to the compilation unit, or a pool that does not share anything if there is none
+	 */
+	public static StringPool of(CompilationUnit cu) {
+		StringPool pool = (StringPool)cu.getProperty(PROPERTY);
+		return pool != null ? pool : NONE;
+	}
+
+	public void attachTo(CompilationUnit cu) {
+		cu.setProperty(PROPERTY, this);
+	}
+
+	public String intern(String s) {
+		if(strings == null || s == null) {
+			return s;
+		}
+		String existing = strings.putIfAbsent(s, s);
+		return existing != null ? existing : s;
+	}
+
+	/**
+	 * Same as {@link UMLType#extractTypeObject(String)}, returning the same instance for equal type names,
+	 * since types are not modified after they are extracted.
+	 */
+	public UMLType extractTypeObject(String qualifiedName) {
+		if(types == null) {
+			return UMLType.extractTypeObject(qualifiedName);
+		}
+		UMLType type = types.get(qualifiedName);
+		if(type == null) {
+			type = UMLType.extractTypeObject(qualifiedName);
+			UMLType existing = types.putIfAbsent(qualifiedName, type);
+			if(existing != null) {
+				type = existing;
+			}
+		}
+		return type;
+	}
+}
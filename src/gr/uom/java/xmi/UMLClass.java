@@ -149,6 +149,10 @@ public class UMLClass extends UMLAbstractClass implements Comparable<UMLClass>,
 		return importedTypes;
 	}
 
+	public List<UMLTypeParameter> getTypeParameters() {
+		return typeParameters;
+	}
+
 	public List<UMLAnonymousClass> getAnonymousClassList() {
 		return anonymousClassList;
 	}
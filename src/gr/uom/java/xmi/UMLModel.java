@@ -5,25 +5,48 @@ import gr.uom.java.xmi.diff.UMLModelDiff;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+import org.refactoringminer.api.DetectionStatistics;
+import org.refactoringminer.api.RefactoringType;
 
 public class UMLModel {
 	private String projectRoot;
+	private Set<String> repositoryDirectories;
     private List<UMLClass> classList;
+    //classes of classList grouped by name, in the order of classList
+    private Map<String, List<UMLClass>> classesByName;
     private List<UMLGeneralization> generalizationList;
     private List<UMLRealization> realizationList;
 
     public UMLModel(String projectRoot) {
     	this.projectRoot = projectRoot;
         classList = new ArrayList<UMLClass>();
+        classesByName = new HashMap<String, List<UMLClass>>();
         generalizationList = new ArrayList<UMLGeneralization>();
         realizationList = new ArrayList<UMLRealization>();
     }
 
 	public void addClass(UMLClass umlClass) {
         classList.add(umlClass);
+        indexClass(umlClass);
+    }
+
+    private void indexClass(UMLClass umlClass) {
+    	List<UMLClass> classes = classesByName.get(umlClass.getName());
+    	if(classes == null) {
+    		classes = new ArrayList<UMLClass>(1);
+    		classesByName.put(umlClass.getName(), classes);
+    	}
+    	classes.add(umlClass);
     }
 
     public void addGeneralization(UMLGeneralization umlGeneralization) {
@@ -34,18 +57,45 @@ public class UMLModel {
     	realizationList.add(umlRealization);
     }
 
+    public void addAll(UMLModel umlModel) {
+    	for(UMLClass umlClass : umlModel.classList) {
+    		addClass(umlClass);
+    	}
+    	generalizationList.addAll(umlModel.generalizationList);
+    	realizationList.addAll(umlModel.realizationList);
+    }
+
     public UMLClass getClass(UMLClass umlClassFromOtherModel) {
-    	ListIterator<UMLClass> it = classList.listIterator();
-        while(it.hasNext()) {
-            UMLClass umlClass = it.next();
-            if(umlClass.equals(umlClassFromOtherModel))
-                return umlClass;
-        }
+    	List<UMLClass> classes = classesByName.get(umlClassFromOtherModel.getName());
+    	if(classes != null) {
+    		for(UMLClass umlClass : classes) {
+    			if(umlClass.equals(umlClassFromOtherModel))
+    				return umlClass;
+    		}
+    	}
         return null;
     }
 
-    public List<UMLClass> getClassList() {
-        return this.classList;
+    public boolean containsClass(UMLClass umlClassFromOtherModel) {
+    	return getClass(umlClassFromOtherModel) != null;
+    }
+
+    public String getProjectRoot() {
+		return projectRoot;
+	}
+
+    //directories known to exist in the snapshot of an in-memory model, null when the model was read from the working tree
+    public Set<String> getRepositoryDirectories() {
+		return repositoryDirectories;
+	}
+
+	public void setRepositoryDirectories(Set<String> repositoryDirectories) {
+		this.repositoryDirectories = repositoryDirectories;
+	}
+
+	//classes must be added through addClass, so that the name index stays in sync
+	public List<UMLClass> getClassList() {
+        return Collections.unmodifiableList(this.classList);
     }
 
     public List<UMLGeneralization> getGeneralizationList() {
@@ -109,16 +159,52 @@ public class UMLModel {
     }
 
 	public UMLModelDiff diff(UMLModel umlModel, Map<String, String> renamedFileHints) {
+		return this.diff(umlModel, renamedFileHints, null);
+	}
+
+	/**
+	 * Same as {@link #diff(UMLModel, Map)}, but diffs the classes common to both models as tasks of {@code pool}.
+	 * The model-level phases that look across classes run after all class diffs are complete, and the class diffs
+	 * are reported in the order of the class list, so the result does not depend on the scheduling of the tasks.
+	 * A null pool diffs the classes sequentially.
+	 */
+	public UMLModelDiff diff(UMLModel umlModel, Map<String, String> renamedFileHints, ForkJoinPool pool) {
+		return this.diff(umlModel, renamedFileHints, pool, null);
+	}
+
+	/**
+	 * Same as {@link #diff(UMLModel, Map, ForkJoinPool)}, but skips the analysis that cannot lead to a refactoring
+	 * of the given types, which are the only ones reported by {@link UMLModelDiff#getRefactorings()}.
+	 * A null set considers all refactoring types.
+	 */
+	public UMLModelDiff diff(final UMLModel umlModel, final Map<String, String> renamedFileHints, final ForkJoinPool pool, final Set<RefactoringType> refactoringTypesToConsider) {
+		if(pool != null && !ForkJoinTask.inForkJoinPool()) {
+			//the whole diff runs in the pool, so that the class diffs processed by the move and rename checks can fork as well
+			final DetectionStatistics statistics = DetectionStatistics.current();
+			return pool.invoke(new RecursiveTask<UMLModelDiff>() {
+				@Override
+				protected UMLModelDiff compute() {
+					DetectionStatistics.Scope scope = DetectionStatistics.enter(statistics);
+					try {
+						return diff(umlModel, renamedFileHints, pool, refactoringTypesToConsider);
+					}
+					finally {
+						DetectionStatistics.leave(scope);
+					}
+				}
+			});
+		}
     	UMLModelDiff modelDiff = new UMLModelDiff();
+    	modelDiff.setRefactoringTypesToConsider(refactoringTypesToConsider);
     	for(UMLClass umlClass : classList) {
-    		if(!umlModel.classList.contains(umlClass))
+    		if(!umlModel.containsClass(umlClass))
     			modelDiff.reportRemovedClass(umlClass);
     	}
     	for(UMLClass umlClass : umlModel.classList) {
-    		if(!this.classList.contains(umlClass))
+    		if(!this.containsClass(umlClass))
     			modelDiff.reportAddedClass(umlClass);
     	}
-    	modelDiff.checkForMovedClasses(renamedFileHints, umlModel.projectRoot, new UMLClassMatcher.Move());
+    	modelDiff.checkForMovedClasses(renamedFileHints, umlModel.projectRoot, umlModel.repositoryDirectories, new UMLClassMatcher.Move());
     	modelDiff.checkForRenamedClasses(renamedFileHints, new UMLClassMatcher.Rename());
     	for(UMLGeneralization umlGeneralization : generalizationList) {
     		if(!umlModel.generalizationList.contains(umlGeneralization))
@@ -138,15 +224,73 @@ public class UMLModel {
     			modelDiff.reportAddedRealization(umlRealization);
     	}
     	modelDiff.checkForRealizationChanges();
+    	if(!modelDiff.requiresOperationMatching()) {
+    		//only class moves and renames are considered, which do not depend on the diffs of the common classes
+    		modelDiff.checkForMovedClasses(renamedFileHints, umlModel.projectRoot, umlModel.repositoryDirectories, new UMLClassMatcher.RelaxedMove());
+    		modelDiff.checkForRenamedClasses(renamedFileHints, new UMLClassMatcher.RelaxedRename());
+    		return modelDiff;
+    	}
+    	List<UMLClass> originalClasses = new ArrayList<UMLClass>();
+    	List<UMLClass> nextClasses = new ArrayList<UMLClass>();
     	for(UMLClass umlClass : classList) {
-    		if(umlModel.classList.contains(umlClass)) {
-    			UMLClassDiff classDiff = umlClass.diff(umlModel.getClass(umlClass));
-    			if(!classDiff.isEmpty())
-    				modelDiff.addUMLClassDiff(classDiff);
+    		UMLClass nextClass = umlModel.getClass(umlClass);
+    		if(nextClass != null) {
+    			originalClasses.add(umlClass);
+    			nextClasses.add(nextClass);
     		}
     	}
-    	modelDiff.checkForMovedClasses(renamedFileHints, umlModel.projectRoot, new UMLClassMatcher.RelaxedMove());
+    	UMLClassDiff[] classDiffs = new UMLClassDiff[originalClasses.size()];
+    	if(pool != null && classDiffs.length > 1) {
+    		new ClassDiffTask(originalClasses, nextClasses, classDiffs, 0, classDiffs.length).invoke();
+    	}
+    	else {
+    		for(int i = 0; i < classDiffs.length; i++) {
+    			classDiffs[i] = originalClasses.get(i).diff(nextClasses.get(i));
+    		}
+    	}
+    	for(UMLClassDiff classDiff : classDiffs) {
+    		if(!classDiff.isEmpty())
+    			modelDiff.addUMLClassDiff(classDiff);
+    	}
+    	modelDiff.checkForMovedClasses(renamedFileHints, umlModel.projectRoot, umlModel.repositoryDirectories, new UMLClassMatcher.RelaxedMove());
     	modelDiff.checkForRenamedClasses(renamedFileHints, new UMLClassMatcher.RelaxedRename());
     	return modelDiff;
     }
+
+	private static class ClassDiffTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final List<UMLClass> originalClasses;
+		private final List<UMLClass> nextClasses;
+		private final UMLClassDiff[] classDiffs;
+		private final int from;
+		private final int to;
+		private final DetectionStatistics statistics;
+
+		private ClassDiffTask(List<UMLClass> originalClasses, List<UMLClass> nextClasses, UMLClassDiff[] classDiffs, int from, int to) {
+			this.originalClasses = originalClasses;
+			this.nextClasses = nextClasses;
+			this.classDiffs = classDiffs;
+			this.from = from;
+			this.to = to;
+			this.statistics = DetectionStatistics.current();
+		}
+
+		@Override
+		protected void compute() {
+			DetectionStatistics.Scope scope = DetectionStatistics.enter(statistics);
+			try {
+				if(to - from == 1) {
+					classDiffs[from] = originalClasses.get(from).diff(nextClasses.get(from));
+				}
+				else {
+					int middle = (from + to) >>> 1;
+					invokeAll(new ClassDiffTask(originalClasses, nextClasses, classDiffs, from, middle),
+							new ClassDiffTask(originalClasses, nextClasses, classDiffs, middle, to));
+				}
+			}
+			finally {
+				DetectionStatistics.leave(scope);
+			}
+		}
+	}
 }
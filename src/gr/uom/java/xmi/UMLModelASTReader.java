@@ -1,17 +1,28 @@
 package gr.uom.java.xmi;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Enumeration;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import java.util.regex.Matcher;
 
 import javax.swing.tree.DefaultMutableTreeNode;
 import javax.swing.tree.TreeNode;
 
 import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.compiler.IProblem;
 import org.eclipse.jdt.core.dom.AST;
 import org.eclipse.jdt.core.dom.ASTNode;
 import org.eclipse.jdt.core.dom.ASTParser;
@@ -37,7 +48,9 @@ import org.eclipse.jdt.core.dom.Type;
 import org.eclipse.jdt.core.dom.TypeDeclaration;
 import org.eclipse.jdt.core.dom.TypeParameter;
 import org.eclipse.jdt.core.dom.VariableDeclarationFragment;
+import org.refactoringminer.api.DetectionStatistics;
 
+import gr.uom.java.xmi.decomposition.LazyOperationBody;
 import gr.uom.java.xmi.decomposition.OperationBody;
 import gr.uom.java.xmi.decomposition.VariableDeclaration;
 
@@ -47,15 +60,26 @@ public class UMLModelASTReader {
 	private UMLModel umlModel;
 	private String projectRoot;
 	private ASTParser parser;
+	private boolean lazyOperationBodies;
+	private StringPool stringPool;
+	//text of the file being processed, kept by its lazy operation bodies
+	private SourceFile currentSource;
+	private Map<String, String> sourceFileCompilerOptions;
 
 	public UMLModelASTReader(File rootFolder, List<String> javaFiles) {
 		this(rootFolder, buildAstParser(rootFolder), javaFiles);
 	}
 
 	public UMLModelASTReader(File rootFolder, ASTParser parser, List<String> javaFiles) {
+		this(rootFolder, parser, javaFiles, false, new StringPool());
+	}
+
+	private UMLModelASTReader(File rootFolder, ASTParser parser, List<String> javaFiles, boolean lazyOperationBodies, StringPool stringPool) {
 		this.umlModel = new UMLModel(rootFolder.getPath());
 		this.projectRoot = rootFolder.getPath();
 		this.parser = parser;
+		this.lazyOperationBodies = lazyOperationBodies;
+		this.stringPool = stringPool;
 		final String[] emptyArray = new String[0];
 		
 		String[] filesArray = new String[javaFiles.size()];
@@ -67,39 +91,221 @@ public class UMLModelASTReader {
 			@Override
 			public void acceptAST(String sourceFilePath, CompilationUnit ast) {
 				String relativePath = sourceFilePath.substring(projectRoot.length() + 1).replaceAll(systemFileSeparator, "/");
-				processCompilationUnit(relativePath, ast);
+				processCompilationUnit(relativePath, ast, lazyOperationBodies ? readSource(sourceFilePath) : null);
 			}
 		};
 		this.parser.createASTs((String[]) filesArray, null, emptyArray, fileASTRequestor, null);
 	}
 
+	/**
+	 * Builds the model from file contents that are already in memory (e.g., blobs read from the git object database),
+	 * without touching the working tree.
+	 * 
+	 * @param rootFolder The project root, used only to label the model.
+	 * @param javaFileContents The contents of each Java file keyed by its path relative to the project root.
+	 * @param repositoryDirectories The directories known to exist in the snapshot the files were read from.
+	 */
+	public UMLModelASTReader(File rootFolder, Map<String, String> javaFileContents, Set<String> repositoryDirectories) {
+		this(rootFolder, javaFileContents, repositoryDirectories, false, new StringPool());
+	}
+
+	private UMLModelASTReader(File rootFolder, Map<String, String> javaFileContents, Set<String> repositoryDirectories, boolean lazyOperationBodies,
+			StringPool stringPool) {
+		this.umlModel = new UMLModel(rootFolder.getPath());
+		this.umlModel.setRepositoryDirectories(repositoryDirectories);
+		this.projectRoot = rootFolder.getPath();
+		this.lazyOperationBodies = lazyOperationBodies;
+		this.stringPool = stringPool;
+		Map<String, String> options = buildCompilerOptions();
+		for(Map.Entry<String, String> entry : javaFileContents.entrySet()) {
+			//the parser resets its settings after each createAST
+			this.parser = ASTParser.newParser(AST.JLS8);
+			this.parser.setKind(ASTParser.K_COMPILATION_UNIT);
+			this.parser.setCompilerOptions(options);
+			this.parser.setResolveBindings(false);
+			char[] source = entry.getValue().toCharArray();
+			this.parser.setSource(source);
+			CompilationUnit compilationUnit = (CompilationUnit)this.parser.createAST(null);
+			processCompilationUnit(entry.getKey(), compilationUnit, source);
+		}
+	}
+
+	/**
+	 * Same as {@link #UMLModelASTReader(File, List)}, but splits the files among the threads of {@code pool},
+	 * each chunk with its own parser. The partial models are merged in the order of {@code javaFiles},
+	 * so the resulting model is identical to the one built by a single parser. The files are parsed by the
+	 * calling thread if {@code pool} is null.
+	 */
+	public UMLModelASTReader(final File rootFolder, List<String> javaFiles, ForkJoinPool pool) {
+		this(rootFolder, javaFiles, pool, false);
+	}
+
+	/**
+	 * Same as {@link #UMLModelASTReader(File, List, ForkJoinPool)}; if {@code lazyOperationBodies} is set, the body of each
+	 * operation is decomposed into statements the first time it is requested, rather than while the files are parsed.
+	 */
+	public UMLModelASTReader(final File rootFolder, List<String> javaFiles, ForkJoinPool pool, final boolean lazyOperationBodies) {
+		this.umlModel = new UMLModel(rootFolder.getPath());
+		this.projectRoot = rootFolder.getPath();
+		this.lazyOperationBodies = lazyOperationBodies;
+		//the partial models share the pool of the merged model
+		final StringPool stringPool = new StringPool();
+		this.stringPool = stringPool;
+		//more chunks than threads, so that a chunk with large files does not keep the other threads idle
+		int numberOfChunks = Math.min(javaFiles.size(), pool != null ? pool.getParallelism() * 4 : 1);
+		List<Callable<UMLModel>> tasks = new ArrayList<Callable<UMLModel>>();
+		for(int i = 0; i < numberOfChunks; i++) {
+			final List<String> chunk = javaFiles.subList(i * javaFiles.size() / numberOfChunks, (i + 1) * javaFiles.size() / numberOfChunks);
+			tasks.add(new Callable<UMLModel>() {
+				@Override
+				public UMLModel call() {
+					return new UMLModelASTReader(rootFolder, buildAstParser(rootFolder), chunk, lazyOperationBodies, stringPool).getUmlModel();
+				}
+			});
+		}
+		processInParallel(tasks, pool);
+	}
+
+	/**
+	 * Same as {@link #UMLModelASTReader(File, Map, Set)}, but parses the files on the threads of {@code pool},
+	 * each file with its own parser. The partial models are merged in the iteration order of {@code javaFileContents},
+	 * so the resulting model is identical to the one built by a single parser. The files are parsed by the
+	 * calling thread if {@code pool} is null.
+	 */
+	public UMLModelASTReader(final File rootFolder, Map<String, String> javaFileContents, Set<String> repositoryDirectories, ForkJoinPool pool) {
+		this(rootFolder, javaFileContents, repositoryDirectories, pool, false);
+	}
+
+	/**
+	 * Same as {@link #UMLModelASTReader(File, Map, Set, ForkJoinPool)}; if {@code lazyOperationBodies} is set, the body of each
+	 * operation is decomposed into statements the first time it is requested, rather than while the files are parsed.
+	 */
+	public UMLModelASTReader(final File rootFolder, Map<String, String> javaFileContents, Set<String> repositoryDirectories, ForkJoinPool pool,
+			final boolean lazyOperationBodies) {
+		this.umlModel = new UMLModel(rootFolder.getPath());
+		this.umlModel.setRepositoryDirectories(repositoryDirectories);
+		this.projectRoot = rootFolder.getPath();
+		this.lazyOperationBodies = lazyOperationBodies;
+		final StringPool stringPool = new StringPool();
+		this.stringPool = stringPool;
+		List<Callable<UMLModel>> tasks = new ArrayList<Callable<UMLModel>>();
+		for(final Map.Entry<String, String> entry : javaFileContents.entrySet()) {
+			tasks.add(new Callable<UMLModel>() {
+				@Override
+				public UMLModel call() {
+					return new UMLModelASTReader(rootFolder, Collections.singletonMap(entry.getKey(), entry.getValue()), null, lazyOperationBodies,
+							stringPool).getUmlModel();
+				}
+			});
+		}
+		processInParallel(tasks, pool);
+	}
+
+	private void processInParallel(List<Callable<UMLModel>> tasks, ForkJoinPool pool) {
+		if(pool == null || tasks.size() <= 1) {
+			for(Callable<UMLModel> task : tasks) {
+				try {
+					this.umlModel.addAll(task.call());
+				} catch (RuntimeException e) {
+					throw e;
+				} catch (Exception e) {
+					throw new RuntimeException(e);
+				}
+			}
+			return;
+		}
+		final DetectionStatistics statistics = DetectionStatistics.current();
+		if(statistics != null) {
+			//the parsing threads work for the commit of this one
+			List<Callable<UMLModel>> scopedTasks = new ArrayList<Callable<UMLModel>>(tasks.size());
+			for(final Callable<UMLModel> task : tasks) {
+				scopedTasks.add(new Callable<UMLModel>() {
+					@Override
+					public UMLModel call() throws Exception {
+						DetectionStatistics.Scope scope = DetectionStatistics.enter(statistics);
+						try {
+							return task.call();
+						}
+						finally {
+							DetectionStatistics.leave(scope);
+						}
+					}
+				});
+			}
+			tasks = scopedTasks;
+		}
+		try {
+			for(Future<UMLModel> future : pool.invokeAll(tasks)) {
+				this.umlModel.addAll(future.get());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			if(e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException)e.getCause();
+			}
+			throw new RuntimeException(e.getCause());
+		}
+	}
+
 	private static ASTParser buildAstParser(File srcFolder) {
 		ASTParser parser = ASTParser.newParser(AST.JLS8);
 		parser.setKind(ASTParser.K_COMPILATION_UNIT);
-		Map options = JavaCore.getOptions();
-		JavaCore.setComplianceOptions(JavaCore.VERSION_1_8, options);
-		parser.setCompilerOptions(options);
+		parser.setCompilerOptions(buildCompilerOptions());
 		parser.setResolveBindings(false);
 		parser.setEnvironment(new String[0], new String[]{srcFolder.getPath()}, null, false);
 		return parser;
 	}
 
+	private static Map<String, String> buildCompilerOptions() {
+		Map<String, String> options = JavaCore.getOptions();
+		JavaCore.setComplianceOptions(JavaCore.VERSION_1_8, options);
+		return options;
+	}
+
 	public UMLModel getUmlModel() {
 		return this.umlModel;
 	}
 
+	//the file is read again for its lazy operation bodies, decoded with the platform encoding as the parser does
+	private static char[] readSource(String filePath) {
+		try {
+			return new String(Files.readAllBytes(Paths.get(filePath)), Charset.defaultCharset()).toCharArray();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
 	protected void processCompilationUnit(String sourceFilePath, CompilationUnit compilationUnit) {
+		processCompilationUnit(sourceFilePath, compilationUnit, null);
+	}
+
+	/**
+	 * @param source The text the compilation unit was parsed from, without which operation bodies are decomposed eagerly.
+	 */
+	protected void processCompilationUnit(String sourceFilePath, CompilationUnit compilationUnit, char[] source) {
+		//the code fragments decomposed from the compilation unit find the pool through it
+		stringPool.attachTo(compilationUnit);
+		sourceFilePath = stringPool.intern(sourceFilePath);
+		this.currentSource = null;
+		if(lazyOperationBodies && source != null) {
+			if(sourceFileCompilerOptions == null) {
+				sourceFileCompilerOptions = buildCompilerOptions();
+			}
+			this.currentSource = new SourceFile(compilationUnit, sourceFilePath, source, sourceFileCompilerOptions);
+		}
 		PackageDeclaration packageDeclaration = compilationUnit.getPackage();
 		String packageName = null;
 		if(packageDeclaration != null)
-			packageName = packageDeclaration.getName().getFullyQualifiedName();
+			packageName = stringPool.intern(packageDeclaration.getName().getFullyQualifiedName());
 		else
 			packageName = "";
 		
 		List<ImportDeclaration> imports = compilationUnit.imports();
 		List<String> importedTypes = new ArrayList<String>();
 		for(ImportDeclaration importDeclaration : imports) {
-			importedTypes.add(importDeclaration.getName().getFullyQualifiedName());
+			importedTypes.add(stringPool.intern(importDeclaration.getName().getFullyQualifiedName()));
 		}
 		List<AbstractTypeDeclaration> topLevelTypeDeclarations = compilationUnit.types();
         for(AbstractTypeDeclaration abstractTypeDeclaration : topLevelTypeDeclarations) {
@@ -153,14 +359,14 @@ public class UMLModelASTReader {
 			UMLTypeParameter umlTypeParameter = new UMLTypeParameter(typeParameter.getName().getFullyQualifiedName());
 			List<Type> typeBounds = typeParameter.typeBounds();
 			for(Type type : typeBounds) {
-				umlTypeParameter.addTypeBound(UMLType.extractTypeObject(type.toString()));
+				umlTypeParameter.addTypeBound(stringPool.extractTypeObject(type.toString()));
 			}
     		umlClass.addTypeParameter(umlTypeParameter);
     	}
     	
     	Type superclassType = typeDeclaration.getSuperclassType();
     	if(superclassType != null) {
-    		UMLType umlType = UMLType.extractTypeObject(UMLType.getTypeName(superclassType, 0));
+    		UMLType umlType = stringPool.extractTypeObject(UMLType.getTypeName(superclassType, 0));
     		UMLGeneralization umlGeneralization = new UMLGeneralization(umlClass, umlType.getClassType());
     		umlClass.setSuperclass(umlType);
     		getUmlModel().addGeneralization(umlGeneralization);
@@ -168,7 +374,7 @@ public class UMLModelASTReader {
     	
     	List<Type> superInterfaceTypes = typeDeclaration.superInterfaceTypes();
     	for(Type interfaceType : superInterfaceTypes) {
-    		UMLType umlType = UMLType.extractTypeObject(UMLType.getTypeName(interfaceType, 0));
+    		UMLType umlType = stringPool.extractTypeObject(UMLType.getTypeName(interfaceType, 0));
     		UMLRealization umlRealization = new UMLRealization(umlClass, umlType.getClassType());
     		umlClass.addImplementedInterface(umlType);
     		getUmlModel().addRealization(umlRealization);
@@ -263,8 +469,14 @@ public class UMLModelASTReader {
 		
 		Block block = methodDeclaration.getBody();
 		if(block != null) {
-			OperationBody body = new OperationBody(cu, sourceFile, block);
-			umlOperation.setBody(body);
+			//a body with syntax errors may be recovered differently when parsed on its own
+			if(this.currentSource != null && !hasSyntaxErrors(cu, block)) {
+				umlOperation.setLazyBody(LazyOperationBody.fromSource(this.currentSource, block));
+			}
+			else {
+				OperationBody body = new OperationBody(cu, sourceFile, block);
+				umlOperation.setBody(body);
+			}
 			if(block.statements().size() == 0) {
 				umlOperation.setEmptyBody(true);
 			}
@@ -275,7 +487,7 @@ public class UMLModelASTReader {
 		
 		Type returnType = methodDeclaration.getReturnType2();
 		if(returnType != null) {
-			UMLType type = UMLType.extractTypeObject(UMLType.getTypeName(returnType, 0));
+			UMLType type = stringPool.extractTypeObject(UMLType.getTypeName(returnType, 0));
 			UMLParameter returnParameter = new UMLParameter("return", type, "return", false);
 			umlOperation.addParameter(returnParameter);
 		}
@@ -287,7 +499,7 @@ public class UMLModelASTReader {
 			if (parameter.isVarargs()) {
 				typeName = typeName + "[]";
 			}
-			UMLType type = UMLType.extractTypeObject(typeName);
+			UMLType type = stringPool.extractTypeObject(typeName);
 			UMLParameter umlParameter = new UMLParameter(parameterName, type, "in", parameter.isVarargs());
 			VariableDeclaration variableDeclaration = new VariableDeclaration(cu, sourceFile, parameter);
 			variableDeclaration.setParameter(true);
@@ -298,12 +510,26 @@ public class UMLModelASTReader {
 	}
 
 
+	private static boolean hasSyntaxErrors(CompilationUnit cu, Block block) {
+		if((block.getFlags() & (ASTNode.MALFORMED | ASTNode.RECOVERED)) != 0) {
+			return true;
+		}
+		int start = block.getStartPosition();
+		int end = start + block.getLength() - 1;
+		for(IProblem problem : cu.getProblems()) {
+			if(problem.isError() && problem.getSourceStart() <= end && problem.getSourceEnd() >= start) {
+				return true;
+			}
+		}
+		return false;
+	}
+
 	private List<UMLAttribute> processFieldDeclaration(CompilationUnit cu, FieldDeclaration fieldDeclaration, String sourceFile) {
 		List<UMLAttribute> attributes = new ArrayList<UMLAttribute>();
 		Type fieldType = fieldDeclaration.getType();
 		List<VariableDeclarationFragment> fragments = fieldDeclaration.fragments();
 		for(VariableDeclarationFragment fragment : fragments) {
-			UMLType type = UMLType.extractTypeObject(UMLType.getTypeName(fieldType, fragment.getExtraDimensions()));
+			UMLType type = stringPool.extractTypeObject(UMLType.getTypeName(fieldType, fragment.getExtraDimensions()));
 			String fieldName = fragment.getName().getFullyQualifiedName();
 			LocationInfo locationInfo = generateLocationInfo(cu, sourceFile, fragment);
 			UMLAttribute umlAttribute = new UMLAttribute(fieldName, type, locationInfo);
@@ -0,0 +1,389 @@
+package gr.uom.java.xmi;
+
+import gr.uom.java.xmi.decomposition.LazyOperationBody;
+import gr.uom.java.xmi.decomposition.OperationBody;
+import gr.uom.java.xmi.decomposition.VariableDeclaration;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Versioned binary format of a {@link UMLModel}, used to cache the models of a commit instead of parsing its files again.
+ * The stream starts with a magic number and a format version, followed by the string table shared by the whole model,
+ * the line tables of the source files, and the encoded model. The body of each operation is encoded in its own block, which is decoded the first time the body is
+ * requested; the model read from a stream therefore retains the encoded data until all of its bodies have been decoded.
+ */
+public class UMLModelSerializer {
+	private static final byte[] MAGIC = {'R', 'M', 'U', 'M'};
+	//version 2 encodes locations as offsets into per-file line tables
+	private static final int VERSION = 2;
+
+	public static void write(UMLModel model, OutputStream out) throws IOException {
+		ModelOutput output = new ModelOutput();
+		writeModel(output, model);
+		ModelOutput lineTables = output.newBlock();
+		output.writeLineTables(lineTables);
+		out.write(MAGIC);
+		writeVarint(out, VERSION);
+		String[] strings = output.getStrings();
+		writeVarint(out, strings.length);
+		for(String string : strings) {
+			//chars are written one by one, so that strings with unpaired surrogates are preserved
+			writeVarint(out, string.length());
+			for(int i=0; i<string.length(); i++) {
+				writeVarint(out, string.charAt(i));
+			}
+		}
+		writeVarint(out, lineTables.size());
+		out.write(lineTables.toByteArray());
+		writeVarint(out, output.size());
+		out.write(output.toByteArray());
+		out.flush();
+	}
+
+	public static UMLModel read(InputStream in) throws IOException {
+		DataInputStream dataIn = new DataInputStream(in);
+		byte[] magic = new byte[MAGIC.length];
+		dataIn.readFully(magic);
+		for(int i=0; i<MAGIC.length; i++) {
+			if(magic[i] != MAGIC[i]) {
+				throw new IOException("Not a serialized UML model");
+			}
+		}
+		int version = readVarint(dataIn);
+		if(version != VERSION) {
+			throw new IOException("Unsupported UML model format version " + version);
+		}
+		String[] strings = new String[readVarint(dataIn)];
+		for(int i=0; i<strings.length; i++) {
+			char[] chars = new char[readVarint(dataIn)];
+			for(int j=0; j<chars.length; j++) {
+				chars[j] = (char)readVarint(dataIn);
+			}
+			strings[i] = new String(chars);
+		}
+		byte[] lineTables = new byte[readVarint(dataIn)];
+		dataIn.readFully(lineTables);
+		byte[] data = new byte[readVarint(dataIn)];
+		dataIn.readFully(data);
+		try {
+			ModelInput input = new ModelInput(data, 0, data.length, strings);
+			input.readLineTables(new ModelInput(lineTables, 0, lineTables.length, strings));
+			return readModel(input);
+		}
+		catch(IllegalStateException e) {
+			throw new IOException("Malformed UML model", e);
+		}
+		catch(IndexOutOfBoundsException e) {
+			throw new IOException("Malformed UML model", e);
+		}
+	}
+
+	private static void writeModel(ModelOutput output, UMLModel model) {
+		output.writeString(model.getProjectRoot());
+		Set<String> repositoryDirectories = model.getRepositoryDirectories();
+		output.writeBoolean(repositoryDirectories != null);
+		if(repositoryDirectories != null) {
+			output.writeStringList(new ArrayList<String>(repositoryDirectories));
+		}
+		List<UMLClass> classList = model.getClassList();
+		Map<UMLClass, Integer> classIndices = new IdentityHashMap<UMLClass, Integer>();
+		output.writeVarint(classList.size());
+		for(UMLClass umlClass : classList) {
+			classIndices.put(umlClass, classIndices.size());
+			writeClass(output, umlClass);
+		}
+		List<UMLGeneralization> generalizationList = model.getGeneralizationList();
+		output.writeVarint(generalizationList.size());
+		for(UMLGeneralization generalization : generalizationList) {
+			output.writeVarint(indexOf(classIndices, generalization.getChild()));
+			output.writeString(generalization.getParent());
+		}
+		List<UMLRealization> realizationList = model.getRealizationList();
+		output.writeVarint(realizationList.size());
+		for(UMLRealization realization : realizationList) {
+			output.writeVarint(indexOf(classIndices, realization.getClient()));
+			output.writeString(realization.getSupplier());
+		}
+	}
+
+	private static UMLModel readModel(ModelInput input) {
+		UMLModel model = new UMLModel(input.readString());
+		if(input.readBoolean()) {
+			model.setRepositoryDirectories(new LinkedHashSet<String>(input.readStringList()));
+		}
+		int classCount = input.readVarint();
+		List<UMLClass> classList = new ArrayList<UMLClass>(classCount);
+		for(int i=0; i<classCount; i++) {
+			UMLClass umlClass = readClass(input);
+			classList.add(umlClass);
+			model.addClass(umlClass);
+		}
+		int generalizationCount = input.readVarint();
+		for(int i=0; i<generalizationCount; i++) {
+			UMLClass child = classAt(classList, input.readVarint());
+			model.addGeneralization(new UMLGeneralization(child, input.readString()));
+		}
+		int realizationCount = input.readVarint();
+		for(int i=0; i<realizationCount; i++) {
+			UMLClass client = classAt(classList, input.readVarint());
+			model.addRealization(new UMLRealization(client, input.readString()));
+		}
+		return model;
+	}
+
+	private static void writeClass(ModelOutput output, UMLClass umlClass) {
+		output.writeString(umlClass.getPackageName());
+		output.writeString(umlClass.name);
+		output.writeLocationInfo(umlClass.getLocationInfo());
+		output.writeBoolean(umlClass.isTopLevel());
+		output.writeStringList(umlClass.getImportedTypes());
+		output.writeString(umlClass.getVisibility());
+		output.writeBoolean(umlClass.isAbstract());
+		output.writeBoolean(umlClass.isInterface());
+		output.writeType(umlClass.getSuperclass());
+		writeTypes(output, umlClass.getImplementedInterfaces());
+		List<UMLTypeParameter> typeParameters = umlClass.getTypeParameters();
+		output.writeVarint(typeParameters.size());
+		for(UMLTypeParameter typeParameter : typeParameters) {
+			output.writeString(typeParameter.getName());
+			writeTypes(output, typeParameter.getTypeBounds());
+		}
+		writeAttributes(output, umlClass.getAttributes());
+		List<UMLAnonymousClass> anonymousClassList = umlClass.getAnonymousClassList();
+		Map<UMLAnonymousClass, Integer> anonymousClassIndices = new IdentityHashMap<UMLAnonymousClass, Integer>();
+		output.writeVarint(anonymousClassList.size());
+		for(UMLAnonymousClass anonymousClass : anonymousClassList) {
+			anonymousClassIndices.put(anonymousClass, anonymousClassIndices.size());
+			output.writeString(anonymousClass.packageName);
+			output.writeString(anonymousClass.name);
+			output.writeLocationInfo(anonymousClass.getLocationInfo());
+			writeAttributes(output, anonymousClass.getAttributes());
+			writeOperations(output, anonymousClass.getOperations(), anonymousClassIndices);
+		}
+		writeOperations(output, umlClass.getOperations(), anonymousClassIndices);
+	}
+
+	private static UMLClass readClass(ModelInput input) {
+		String packageName = input.readString();
+		String name = input.readString();
+		LocationInfo locationInfo = input.readLocationInfo();
+		boolean topLevel = input.readBoolean();
+		List<String> importedTypes = input.readStringList();
+		UMLClass umlClass = new UMLClass(packageName, name, locationInfo, topLevel, importedTypes);
+		umlClass.setVisibility(input.readString());
+		umlClass.setAbstract(input.readBoolean());
+		umlClass.setInterface(input.readBoolean());
+		umlClass.setSuperclass(input.readType());
+		for(UMLType implementedInterface : readTypes(input)) {
+			umlClass.addImplementedInterface(implementedInterface);
+		}
+		int typeParameterCount = input.readVarint();
+		for(int i=0; i<typeParameterCount; i++) {
+			UMLTypeParameter typeParameter = new UMLTypeParameter(input.readString());
+			for(UMLType typeBound : readTypes(input)) {
+				typeParameter.addTypeBound(typeBound);
+			}
+			umlClass.addTypeParameter(typeParameter);
+		}
+		for(UMLAttribute attribute : readAttributes(input)) {
+			umlClass.addAttribute(attribute);
+		}
+		int anonymousClassCount = input.readVarint();
+		List<UMLAnonymousClass> anonymousClassList = new ArrayList<UMLAnonymousClass>(anonymousClassCount);
+		for(int i=0; i<anonymousClassCount; i++) {
+			UMLAnonymousClass anonymousClass = new UMLAnonymousClass(input.readString(), input.readString(), input.readLocationInfo());
+			for(UMLAttribute attribute : readAttributes(input)) {
+				anonymousClass.addAttribute(attribute);
+			}
+			for(UMLOperation operation : readOperations(input, anonymousClassList)) {
+				anonymousClass.addOperation(operation);
+			}
+			anonymousClassList.add(anonymousClass);
+			umlClass.addAnonymousClass(anonymousClass);
+		}
+		for(UMLOperation operation : readOperations(input, anonymousClassList)) {
+			umlClass.addOperation(operation);
+		}
+		return umlClass;
+	}
+
+	private static void writeAttributes(ModelOutput output, List<UMLAttribute> attributes) {
+		output.writeVarint(attributes.size());
+		for(UMLAttribute attribute : attributes) {
+			output.writeString(attribute.getName());
+			output.writeType(attribute.getType());
+			output.writeLocationInfo(attribute.getLocationInfo());
+			output.writeString(attribute.getVisibility());
+			output.writeString(attribute.getClassName());
+			output.writeBoolean(attribute.isFinal());
+			output.writeBoolean(attribute.isStatic());
+			writeVariableDeclaration(output, attribute.getVariableDeclaration());
+		}
+	}
+
+	private static List<UMLAttribute> readAttributes(ModelInput input) {
+		int count = input.readVarint();
+		List<UMLAttribute> attributes = new ArrayList<UMLAttribute>(count);
+		for(int i=0; i<count; i++) {
+			UMLAttribute attribute = new UMLAttribute(input.readString(), input.readType(), input.readLocationInfo());
+			attribute.setVisibility(input.readString());
+			attribute.setClassName(input.readString());
+			attribute.setFinal(input.readBoolean());
+			attribute.setStatic(input.readBoolean());
+			attribute.setVariableDeclaration(readVariableDeclaration(input));
+			attributes.add(attribute);
+		}
+		return attributes;
+	}
+
+	private static void writeOperations(ModelOutput output, List<UMLOperation> operations, Map<UMLAnonymousClass, Integer> anonymousClassIndices) {
+		output.writeVarint(operations.size());
+		for(UMLOperation operation : operations) {
+			output.writeString(operation.getName());
+			output.writeLocationInfo(operation.getLocationInfo());
+			output.writeString(operation.getVisibility());
+			output.writeBoolean(operation.isAbstract());
+			output.writeBoolean(operation.isConstructor());
+			output.writeBoolean(operation.isFinal());
+			output.writeBoolean(operation.isStatic());
+			output.writeBoolean(operation.hasEmptyBody());
+			output.writeBoolean(operation.hasTestAnnotation());
+			output.writeString(operation.getClassName());
+			List<UMLParameter> parameters = operation.getParameters();
+			output.writeVarint(parameters.size());
+			for(UMLParameter parameter : parameters) {
+				output.writeString(parameter.getName());
+				output.writeType(parameter.getType());
+				output.writeString(parameter.getKind());
+				output.writeBoolean(parameter.isVarargs());
+				writeVariableDeclaration(output, parameter.getVariableDeclaration());
+			}
+			OperationBody body = operation.getBody();
+			output.writeBoolean(body != null);
+			if(body != null) {
+				ModelOutput block = output.newBlock();
+				body.write(block);
+				output.writeBlock(block);
+			}
+			List<UMLAnonymousClass> anonymousClassList = operation.getAnonymousClassList();
+			output.writeVarint(anonymousClassList.size());
+			for(UMLAnonymousClass anonymousClass : anonymousClassList) {
+				Integer index = anonymousClassIndices.get(anonymousClass);
+				if(index == null) {
+					throw new IllegalStateException("Anonymous class " + anonymousClass + " is not declared before operation " + operation);
+				}
+				output.writeVarint(index);
+			}
+		}
+	}
+
+	private static List<UMLOperation> readOperations(ModelInput input, List<UMLAnonymousClass> anonymousClassList) {
+		int count = input.readVarint();
+		List<UMLOperation> operations = new ArrayList<UMLOperation>(count);
+		for(int i=0; i<count; i++) {
+			UMLOperation operation = new UMLOperation(input.readString(), input.readLocationInfo());
+			operation.setVisibility(input.readString());
+			operation.setAbstract(input.readBoolean());
+			operation.setConstructor(input.readBoolean());
+			operation.setFinal(input.readBoolean());
+			operation.setStatic(input.readBoolean());
+			operation.setEmptyBody(input.readBoolean());
+			operation.setTestAnnotation(input.readBoolean());
+			operation.setClassName(input.readString());
+			int parameterCount = input.readVarint();
+			for(int j=0; j<parameterCount; j++) {
+				UMLParameter parameter = new UMLParameter(input.readString(), input.readType(), input.readString(), input.readBoolean());
+				parameter.setVariableDeclaration(readVariableDeclaration(input));
+				operation.addParameter(parameter);
+			}
+			if(input.readBoolean()) {
+				operation.setLazyBody(LazyOperationBody.fromModelInput(input.readBlock()));
+			}
+			int anonymousClassCount = input.readVarint();
+			for(int j=0; j<anonymousClassCount; j++) {
+				int index = input.readVarint();
+				if(index >= anonymousClassList.size()) {
+					throw new IllegalStateException("Invalid anonymous class index " + index);
+				}
+				operation.addAnonymousClass(anonymousClassList.get(index));
+			}
+			operations.add(operation);
+		}
+		return operations;
+	}
+
+	private static void writeVariableDeclaration(ModelOutput output, VariableDeclaration variableDeclaration) {
+		output.writeBoolean(variableDeclaration != null);
+		if(variableDeclaration != null) {
+			variableDeclaration.write(output);
+		}
+	}
+
+	private static VariableDeclaration readVariableDeclaration(ModelInput input) {
+		return input.readBoolean() ? new VariableDeclaration(input) : null;
+	}
+
+	private static void writeTypes(ModelOutput output, List<UMLType> types) {
+		output.writeVarint(types.size());
+		for(UMLType type : types) {
+			output.writeType(type);
+		}
+	}
+
+	private static List<UMLType> readTypes(ModelInput input) {
+		int count = input.readVarint();
+		List<UMLType> types = new ArrayList<UMLType>(count);
+		for(int i=0; i<count; i++) {
+			types.add(input.readType());
+		}
+		return types;
+	}
+
+	private static int indexOf(Map<UMLClass, Integer> classIndices, UMLClass umlClass) {
+		Integer index = classIndices.get(umlClass);
+		if(index == null) {
+			throw new IllegalStateException("Class " + umlClass + " is not part of the model");
+		}
+		return index;
+	}
+
+	private static UMLClass classAt(List<UMLClass> classList, int index) {
+		if(index >= classList.size()) {
+			throw new IllegalStateException("Invalid class index " + index);
+		}
+		return classList.get(index);
+	}
+
+	private static void writeVarint(OutputStream out, int value) throws IOException {
+		while((value & ~0x7F) != 0) {
+			out.write((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.write(value);
+	}
+
+	private static int readVarint(InputStream in) throws IOException {
+		int value = 0;
+		for(int shift = 0; shift < 35; shift += 7) {
+			int b = in.read();
+			if(b == -1) {
+				throw new EOFException();
+			}
+			value |= (b & 0x7F) << shift;
+			if((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IOException("Malformed varint");
+	}
+}
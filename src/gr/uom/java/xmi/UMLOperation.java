@@ -1,6 +1,7 @@
 package gr.uom.java.xmi;
 
 import gr.uom.java.xmi.decomposition.AbstractStatement;
+import gr.uom.java.xmi.decomposition.LazyOperationBody;
 import gr.uom.java.xmi.decomposition.OperationBody;
 import gr.uom.java.xmi.decomposition.OperationInvocation;
 import gr.uom.java.xmi.decomposition.StatementObject;
@@ -8,6 +9,8 @@ import gr.uom.java.xmi.decomposition.VariableDeclaration;
 import gr.uom.java.xmi.diff.CodeRange;
 import gr.uom.java.xmi.diff.StringDistance;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
@@ -29,7 +32,8 @@ public class UMLOperation implements Comparable<UMLOperation>, Serializable, Loc
 	private boolean isFinal;
 	private boolean isStatic;
 	private boolean emptyBody;
-	private OperationBody operationBody;
+	private volatile OperationBody operationBody;
+	private transient volatile LazyOperationBody lazyOperationBody;
 	private boolean testAnnotation;
 	private List<UMLAnonymousClass> anonymousClassList;
 	
@@ -97,7 +101,21 @@ public class UMLOperation implements Comparable<UMLOperation>, Serializable, Loc
 	}
 
 	public OperationBody getBody() {
-		return operationBody;
+		OperationBody body = operationBody;
+		if(body == null) {
+			LazyOperationBody lazyBody = lazyOperationBody;
+			if(lazyBody != null) {
+				body = lazyBody.get();
+				operationBody = body;
+				//releases the source of the body
+				lazyOperationBody = null;
+			}
+			else {
+				//another thread may have just decomposed the body
+				body = operationBody;
+			}
+		}
+		return body;
 	}
 
 	public boolean hasTestAnnotation() {
@@ -109,20 +127,23 @@ public class UMLOperation implements Comparable<UMLOperation>, Serializable, Loc
 	}
 
 	public Set<OperationInvocation> getAllOperationInvocations() {
-		if(operationBody != null)
-			return operationBody.getAllOperationInvocations();
+		OperationBody body = getBody();
+		if(body != null)
+			return body.getAllOperationInvocations();
 		return new LinkedHashSet<OperationInvocation>();
 	}
 
 	public List<String> getAllVariables() {
-		if(operationBody != null)
-			return operationBody.getAllVariables();
+		OperationBody body = getBody();
+		if(body != null)
+			return body.getAllVariables();
 		return new ArrayList<String>();
 	}
 
 	public List<VariableDeclaration> getAllVariableDeclarations() {
-		if(operationBody != null)
-			return operationBody.getAllVariableDeclarations();
+		OperationBody body = getBody();
+		if(body != null)
+			return body.getAllVariableDeclarations();
 		return new ArrayList<VariableDeclaration>();
 	}
 
@@ -139,13 +160,23 @@ public class UMLOperation implements Comparable<UMLOperation>, Serializable, Loc
 	}
 
 	public int statementCount() {
-		if(operationBody != null)
-			return operationBody.statementCount();
+		OperationBody body = getBody();
+		if(body != null)
+			return body.statementCount();
 		return 0;
 	}
 
 	public void setBody(OperationBody body) {
 		this.operationBody = body;
+		this.lazyOperationBody = null;
+	}
+
+	/**
+	 * Sets a body that is decomposed the first time it is requested.
+	 */
+	public void setLazyBody(LazyOperationBody lazyBody) {
+		this.operationBody = null;
+		this.lazyOperationBody = lazyBody;
 	}
 
 	public String getClassName() {
@@ -495,8 +526,9 @@ public class UMLOperation implements Comparable<UMLOperation>, Serializable, Loc
 
 	public List<UMLOperation> getOperationsInsideAnonymousClass(List<UMLAnonymousClass> allAddedAnonymousClasses) {
 		List<UMLOperation> operationsInsideAnonymousClass = new ArrayList<UMLOperation>();
-		if(this.operationBody != null) {
-			List<String> anonymousClassDeclarations = this.operationBody.getAllAnonymousClassDeclarations();
+		OperationBody body = getBody();
+		if(body != null) {
+			List<String> anonymousClassDeclarations = body.getAllAnonymousClassDeclarations();
 			for(String anonymousClassDeclaration : anonymousClassDeclarations) {
 				for(UMLAnonymousClass anonymousClass : allAddedAnonymousClasses) {
 					int foundOperations = 0;
@@ -555,9 +587,10 @@ public class UMLOperation implements Comparable<UMLOperation>, Serializable, Loc
 	}
 
 	public Map<String, Set<String>> aliasedAttributes() {
-		if(operationBody != null && isConstructor) {
+		OperationBody body = getBody();
+		if(body != null && isConstructor) {
 			List<String> parameterNames = getParameterNameList();
-			Map<String, Set<String>> map = operationBody.aliasedAttributes();
+			Map<String, Set<String>> map = body.aliasedAttributes();
 			Set<String> keysToBeRemoved = new LinkedHashSet<String>();
 			for(String key : map.keySet()) {
 				if(!parameterNames.contains(key)) {
@@ -571,4 +604,10 @@ public class UMLOperation implements Comparable<UMLOperation>, Serializable, Loc
 		}
 		return new LinkedHashMap<String, Set<String>>();
 	}
+
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		//the source of a lazy body is not serialized, so the body is written decomposed
+		getBody();
+		out.defaultWriteObject();
+	}
 }
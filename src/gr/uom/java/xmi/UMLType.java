@@ -24,6 +24,20 @@ public class UMLType implements Serializable {
         this.typeArgumentDecomposition = new ArrayList<String>();
     }
 
+    UMLType(ModelInput input) {
+    	this(input.readString());
+    	this.typeArguments = input.readString();
+    	this.arrayDimension = input.readVarint();
+    	this.typeArgumentDecomposition.addAll(input.readStringList());
+    }
+
+    void write(ModelOutput output) {
+    	output.writeString(classType);
+    	output.writeString(typeArguments);
+    	output.writeVarint(arrayDimension);
+    	output.writeStringList(typeArgumentDecomposition);
+    }
+
     public String getClassType() {
         return classType;
     }
@@ -12,6 +12,14 @@ public class UMLTypeParameter {
 		this.typeBounds = new ArrayList<UMLType>();
 	}
 	
+	public String getName() {
+		return name;
+	}
+
+	public List<UMLType> getTypeBounds() {
+		return typeBounds;
+	}
+
 	public void addTypeBound(UMLType type) {
 		typeBounds.add(type);
 	}
@@ -8,6 +8,8 @@ import java.util.Set;
 
 import gr.uom.java.xmi.LocationInfo;
 import gr.uom.java.xmi.LocationInfoProvider;
+import gr.uom.java.xmi.ModelInput;
+import gr.uom.java.xmi.ModelOutput;
 import gr.uom.java.xmi.decomposition.replacement.Replacement;
 import gr.uom.java.xmi.decomposition.replacement.Replacement.ReplacementType;
 import gr.uom.java.xmi.diff.CodeRange;
@@ -19,6 +21,20 @@ public abstract class AbstractCall implements LocationInfoProvider {
 	protected LocationInfo locationInfo;
 	protected StatementCoverageType coverage = StatementCoverageType.NONE;
 
+	protected void readCall(ModelInput input) {
+		this.typeArguments = input.readVarint();
+		this.expression = input.readString();
+		this.arguments = input.readStringList();
+		this.locationInfo = input.readLocationInfo();
+	}
+
+	protected void writeCall(ModelOutput output) {
+		output.writeVarint(typeArguments);
+		output.writeString(expression);
+		output.writeStringList(arguments);
+		output.writeLocationInfo(locationInfo);
+	}
+
 	public String getExpression() {
 		return expression;
 	}
@@ -1,21 +1,21 @@
 package gr.uom.java.xmi.decomposition;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import gr.uom.java.xmi.LocationInfoProvider;
+import gr.uom.java.xmi.ModelInput;
+import gr.uom.java.xmi.ModelOutput;
 import gr.uom.java.xmi.decomposition.AbstractCall.StatementCoverageType;
 
 public abstract class AbstractCodeFragment implements LocationInfoProvider {
 	private int depth;
 	private int index;
-	private String codeFragmentAfterReplacingParametersWithArguments;
-
-	public String getArgumentizedString() {
-		return codeFragmentAfterReplacingParametersWithArguments != null ? codeFragmentAfterReplacingParametersWithArguments : getString();
-	}
+	//computed on first use, 0 until then
+	private volatile long fingerprint;
 
     public int getDepth() {
 		return depth;
@@ -34,6 +34,84 @@ public abstract class AbstractCodeFragment implements LocationInfoProvider {
 	}
 	
 	public abstract String getString();
+
+	static void writeVariableDeclarations(ModelOutput output, List<VariableDeclaration> variableDeclarations) {
+		output.writeVarint(variableDeclarations.size());
+		for(VariableDeclaration variableDeclaration : variableDeclarations) {
+			variableDeclaration.write(output);
+		}
+	}
+
+	static List<VariableDeclaration> readVariableDeclarations(ModelInput input) {
+		int count = input.readVarint();
+		if(count == 0) {
+			return Collections.emptyList();
+		}
+		List<VariableDeclaration> variableDeclarations = new ArrayList<VariableDeclaration>(count);
+		for(int i=0; i<count; i++) {
+			variableDeclarations.add(new VariableDeclaration(input));
+		}
+		return variableDeclarations;
+	}
+
+	static void writeMethodInvocationMap(ModelOutput output, Map<String, OperationInvocation> methodInvocationMap) {
+		output.writeVarint(methodInvocationMap.size());
+		for(Map.Entry<String, OperationInvocation> entry : methodInvocationMap.entrySet()) {
+			output.writeString(entry.getKey());
+			entry.getValue().write(output);
+		}
+	}
+
+	static Map<String, OperationInvocation> readMethodInvocationMap(ModelInput input) {
+		int count = input.readVarint();
+		if(count == 0) {
+			return Collections.emptyMap();
+		}
+		Map<String, OperationInvocation> methodInvocationMap = new LinkedHashMap<String, OperationInvocation>();
+		for(int i=0; i<count; i++) {
+			String key = input.readString();
+			methodInvocationMap.put(key, new OperationInvocation(input));
+		}
+		return methodInvocationMap;
+	}
+
+	static void writeCreationMap(ModelOutput output, Map<String, ObjectCreation> creationMap) {
+		output.writeVarint(creationMap.size());
+		for(Map.Entry<String, ObjectCreation> entry : creationMap.entrySet()) {
+			output.writeString(entry.getKey());
+			entry.getValue().write(output);
+		}
+	}
+
+	static Map<String, ObjectCreation> readCreationMap(ModelInput input) {
+		int count = input.readVarint();
+		if(count == 0) {
+			return Collections.emptyMap();
+		}
+		Map<String, ObjectCreation> creationMap = new LinkedHashMap<String, ObjectCreation>();
+		for(int i=0; i<count; i++) {
+			String key = input.readString();
+			creationMap.put(key, new ObjectCreation(input));
+		}
+		return creationMap;
+	}
+
+	/**
+	 * @return a 64-bit hash of {@link #getString()}; fragments with different fingerprints have different strings
+	 */
+	public long getFingerprint() {
+		long fingerprint = this.fingerprint;
+		if(fingerprint == 0) {
+			fingerprint = fingerprint(getString());
+			this.fingerprint = fingerprint;
+		}
+		return fingerprint;
+	}
+
+	//64-bit FNV-1a hash
+	public static long fingerprint(String s) {
+		return Fingerprints.hash(s);
+	}
 	public abstract List<String> getVariables();
 	public abstract List<String> getTypes();
 	public abstract List<VariableDeclaration> getVariableDeclarations();
@@ -46,28 +124,28 @@ public abstract class AbstractCodeFragment implements LocationInfoProvider {
 	public abstract VariableDeclaration searchVariableDeclaration(String variableName);
 	public abstract VariableDeclaration getVariableDeclaration(String variableName);
 	
-	public void replaceParametersWithArguments(Map<String, String> parameterToArgumentMap) {
+	/**
+	 * @return the string of this fragment with the parameters replaced by the corresponding arguments;
+	 * the fragment itself is not modified
+	 */
+	public String replaceParametersWithArguments(Map<String, String> parameterToArgumentMap) {
 		String afterReplacements = getString();
 		for(String parameter : parameterToArgumentMap.keySet()) {
 			String argument = parameterToArgumentMap.get(parameter);
 			if(!parameter.equals(argument)) {
-				StringBuffer sb = new StringBuffer();
-				Pattern p = Pattern.compile(Pattern.quote(parameter));
-				Matcher m = p.matcher(afterReplacements);
-				while(m.find()) {
+				StringBuilder sb = null;
+				int previousEnd = 0;
+				for(int start : ReplacementUtil.occurrences(afterReplacements, parameter)) {
 					//check if the matched string is an argument
 					//previous character should be "(" or "," or " " or there is no previous character
-					int start = m.start();
 					boolean isArgument = false;
 					boolean isInsideStringLiteral = false;
 					if(start >= 1) {
-						String previousChar = afterReplacements.substring(start-1, start);
-						if(previousChar.equals("(") || previousChar.equals(",") || previousChar.equals(" ") || previousChar.equals("=")) {
+						char previousChar = afterReplacements.charAt(start-1);
+						if(previousChar == '(' || previousChar == ',' || previousChar == ' ' || previousChar == '=') {
 							isArgument = true;
 						}
-						String beforeMatch = afterReplacements.substring(0, start);
-						String afterMatch = afterReplacements.substring(start+parameter.length(), afterReplacements.length());
-						if(quoteBefore(beforeMatch) && quoteAfter(afterMatch)) {
+						if(quoteBefore(afterReplacements, start) && quoteAfter(afterReplacements, start+parameter.length())) {
 							isInsideStringLiteral = true;
 						}
 					}
@@ -75,77 +153,42 @@ public abstract class AbstractCodeFragment implements LocationInfoProvider {
 						isArgument = true;
 					}
 					if(isArgument && !isInsideStringLiteral) {
-						m.appendReplacement(sb, Matcher.quoteReplacement(argument));
+						if(sb == null) {
+							sb = new StringBuilder(afterReplacements.length());
+						}
+						sb.append(afterReplacements, previousEnd, start).append(argument);
+						previousEnd = start + parameter.length();
 					}
 				}
-				m.appendTail(sb);
-				afterReplacements = sb.toString();
-			}
-		}
-		this.codeFragmentAfterReplacingParametersWithArguments = afterReplacements;
-	}
-
-	private static boolean quoteBefore(String beforeMatch) {
-		if(beforeMatch.contains("\"")) {
-			if(beforeMatch.contains("+")) {
-				int indexOfQuote = beforeMatch.lastIndexOf("\"");
-				int indexOfPlus = beforeMatch.lastIndexOf("+");
-				if(indexOfPlus > indexOfQuote) {
-					return false;
-				}
-				else {
-					return true;
+				if(sb != null) {
+					sb.append(afterReplacements, previousEnd, afterReplacements.length());
+					afterReplacements = sb.toString();
 				}
 			}
-			else {
-				return true;
-			}
 		}
-		return false;
+		return afterReplacements;
 	}
 
-	private static boolean quoteAfter(String afterMatch) {
-		if(afterMatch.contains("\"")) {
-			if(afterMatch.contains("+")) {
-				int indexOfQuote = afterMatch.indexOf("\"");
-				int indexOfPlus = afterMatch.indexOf("+");
-				if(indexOfPlus < indexOfQuote) {
-					return false;
-				}
-				else {
-					return true;
-				}
-			}
-			else {
-				return true;
-			}
+	//true if the text before the match contains a quote that is not followed by a +
+	private static boolean quoteBefore(String string, int matchStart) {
+		int indexOfQuote = string.lastIndexOf('"', matchStart-1);
+		if(indexOfQuote != -1) {
+			int indexOfPlus = string.lastIndexOf('+', matchStart-1);
+			return indexOfPlus < indexOfQuote;
 		}
 		return false;
 	}
 
-	public boolean equalFragment(AbstractCodeFragment other) {
-		if(this.getString().equals(other.getString())) {
-			return true;
-		}
-		else if(this.getString().contains(other.getString())) {
-			return true;
-		}
-		else if(other.getString().contains(this.getString())) {
-			return true;
-		}
-		else if(this.codeFragmentAfterReplacingParametersWithArguments != null) {
-			return this.codeFragmentAfterReplacingParametersWithArguments.equals(other.getString());
-		}
-		else if(other.codeFragmentAfterReplacingParametersWithArguments != null) {
-			return other.codeFragmentAfterReplacingParametersWithArguments.equals(this.getString());
+	//true if the text after the match contains a quote that is not preceded by a +
+	private static boolean quoteAfter(String string, int matchEnd) {
+		int indexOfQuote = string.indexOf('"', matchEnd);
+		if(indexOfQuote != -1) {
+			int indexOfPlus = string.indexOf('+', matchEnd);
+			return indexOfPlus == -1 || indexOfPlus > indexOfQuote;
 		}
 		return false;
 	}
 
-	public void resetArgumentization() {
-		this.codeFragmentAfterReplacingParametersWithArguments = getString();
-	}
-
 	public ObjectCreation creationCoveringEntireFragment() {
 		Map<String, ObjectCreation> creationMap = getCreationMap();
 		String statement = getString();
@@ -11,14 +11,19 @@ public abstract class AbstractCodeMapping {
 
 	private AbstractCodeFragment fragment1;
 	private AbstractCodeFragment fragment2;
+	//the strings of the fragments with parameters replaced by arguments, as compared by the mapper that created this mapping
+	private String argumentizedString1;
+	private String argumentizedString2;
 	private UMLOperation operation1;
 	private UMLOperation operation2;
 	private Set<Replacement> replacements;
 	
 	public AbstractCodeMapping(AbstractCodeFragment fragment1, AbstractCodeFragment fragment2,
-			UMLOperation operation1, UMLOperation operation2) {
+			String argumentizedString1, String argumentizedString2, UMLOperation operation1, UMLOperation operation2) {
 		this.fragment1 = fragment1;
 		this.fragment2 = fragment2;
+		this.argumentizedString1 = argumentizedString1;
+		this.argumentizedString2 = argumentizedString2;
 		this.operation1 = operation1;
 		this.operation2 = operation2;
 		this.replacements = new LinkedHashSet<Replacement>();
@@ -33,10 +38,18 @@ public abstract class AbstractCodeMapping {
 	}
 
 	public boolean isExact() {
-		return (fragment1.getArgumentizedString().equals(fragment2.getArgumentizedString()) ||
+		return (argumentizedString1.equals(argumentizedString2) ||
 				fragment1.getString().equals(fragment2.getString())) && !isKeyword();
 	}
 
+	public boolean equalFragments() {
+		String string1 = fragment1.getString();
+		String string2 = fragment2.getString();
+		//only the argumentized string of fragment1 is compared, since a mapper argumentizes (or resets) every fragment it compares
+		return string1.equals(string2) || string1.contains(string2) || string2.contains(string1) ||
+				argumentizedString1.equals(string2);
+	}
+
 	private boolean isKeyword() {
 		return fragment1.getString().startsWith("return;") ||
 				fragment1.getString().startsWith("break;") ||
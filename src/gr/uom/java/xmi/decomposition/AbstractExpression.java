@@ -7,6 +7,9 @@ import org.eclipse.jdt.core.dom.CompilationUnit;
 import org.eclipse.jdt.core.dom.Expression;
 
 import gr.uom.java.xmi.LocationInfo;
+import gr.uom.java.xmi.ModelInput;
+import gr.uom.java.xmi.ModelOutput;
+import gr.uom.java.xmi.StringPool;
 
 public class AbstractExpression extends AbstractCodeFragment {
 	
@@ -36,10 +39,38 @@ public class AbstractExpression extends AbstractCodeFragment {
 		this.numberLiterals = visitor.getNumberLiterals();
 		this.creationMap = visitor.getCreationMap();
 		this.infixOperators = visitor.getInfixOperators();
-    	this.expression = expression.toString();
+    	this.expression = StringPool.of(cu).intern(expression.toString());
     	this.owner = null;
     }
 
+	AbstractExpression(ModelInput input) {
+		this.expression = input.readString();
+		this.locationInfo = input.readLocationInfo();
+		this.variables = input.readStringList();
+		this.types = input.readStringList();
+		this.variableDeclarations = readVariableDeclarations(input);
+		this.methodInvocationMap = readMethodInvocationMap(input);
+		this.anonymousClassDeclarations = input.readStringList();
+		this.stringLiterals = input.readStringList();
+		this.numberLiterals = input.readStringList();
+		this.creationMap = readCreationMap(input);
+		this.infixOperators = input.readStringList();
+	}
+
+	void write(ModelOutput output) {
+		output.writeString(expression);
+		output.writeLocationInfo(locationInfo);
+		output.writeStringList(variables);
+		output.writeStringList(types);
+		writeVariableDeclarations(output, variableDeclarations);
+		writeMethodInvocationMap(output, methodInvocationMap);
+		output.writeStringList(anonymousClassDeclarations);
+		output.writeStringList(stringLiterals);
+		output.writeStringList(numberLiterals);
+		writeCreationMap(output, creationMap);
+		output.writeStringList(infixOperators);
+	}
+
     public void setOwner(CompositeStatementObject owner) {
     	this.owner = owner;
     }
@@ -1,6 +1,7 @@
 package gr.uom.java.xmi.decomposition;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -11,6 +12,8 @@ import org.eclipse.jdt.core.dom.CompilationUnit;
 import org.eclipse.jdt.core.dom.Statement;
 
 import gr.uom.java.xmi.LocationInfo;
+import gr.uom.java.xmi.ModelInput;
+import gr.uom.java.xmi.ModelOutput;
 import gr.uom.java.xmi.UMLOperation;
 
 public class CompositeStatementObject extends AbstractStatement {
@@ -27,8 +30,26 @@ public class CompositeStatementObject extends AbstractStatement {
 		this.setDepth(depth);
 		this.locationInfo = new LocationInfo(cu, filePath, statement);
 		this.statementList = new ArrayList<AbstractStatement>();
+		this.expressionList = new ArrayList<AbstractExpression>(2);
+		//only the composite statements declaring variables (e.g., enhanced for and catch clause) get their own list
+		this.variableDeclarations = Collections.emptyList();
+	}
+
+	CompositeStatementObject(ModelInput input) {
+		super();
+		this.type = input.readString();
+		this.setDepth(input.readVarint());
+		this.locationInfo = input.readLocationInfo();
+		this.statementList = new ArrayList<AbstractStatement>();
 		this.expressionList = new ArrayList<AbstractExpression>();
-		this.variableDeclarations = new ArrayList<VariableDeclaration>();
+		this.variableDeclarations = readVariableDeclarations(input);
+	}
+
+	void write(ModelOutput output) {
+		output.writeString(type);
+		output.writeVarint(getDepth());
+		output.writeLocationInfo(locationInfo);
+		writeVariableDeclarations(output, variableDeclarations);
 	}
 
 	public void addStatement(AbstractStatement statement) {
@@ -54,6 +75,9 @@ public class CompositeStatementObject extends AbstractStatement {
 	}
 
 	public void addVariableDeclaration(VariableDeclaration declaration) {
+		if(variableDeclarations.isEmpty()) {
+			variableDeclarations = new ArrayList<VariableDeclaration>(1);
+		}
 		this.variableDeclarations.add(declaration);
 	}
 
@@ -8,8 +8,8 @@ public class CompositeStatementObjectMapping extends AbstractCodeMapping impleme
 	private double compositeChildMatchingScore;
 	
 	public CompositeStatementObjectMapping(CompositeStatementObject statement1, CompositeStatementObject statement2,
-			UMLOperation operation1, UMLOperation operation2, double score) {
-		super(statement1, statement2, operation1, operation2);
+			String argumentizedString1, String argumentizedString2, UMLOperation operation1, UMLOperation operation2, double score) {
+		super(statement1, statement2, argumentizedString1, argumentizedString2, operation1, operation2);
 		this.compositeChildMatchingScore = score;
 	}
 
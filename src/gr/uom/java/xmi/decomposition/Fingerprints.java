@@ -0,0 +1,30 @@
+package gr.uom.java.xmi.decomposition;
+
+/**
+ * 64-bit FNV-1a hashing of statement strings and of the structure of operation bodies.
+ */
+class Fingerprints {
+	static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	private Fingerprints() {
+	}
+
+	static long hash(String s) {
+		return add(FNV_OFFSET_BASIS, s);
+	}
+
+	/**
+	 * @return {@code hash} extended with the characters of {@code s}
+	 */
+	static long add(long hash, String s) {
+		for(int i=0; i<s.length(); i++) {
+			hash = (hash ^ s.charAt(i)) * FNV_PRIME;
+		}
+		return hash;
+	}
+
+	static long add(long hash, long value) {
+		return (hash ^ value) * FNV_PRIME;
+	}
+}
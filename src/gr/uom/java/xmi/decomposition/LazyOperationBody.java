@@ -0,0 +1,74 @@
+package gr.uom.java.xmi.decomposition;
+
+import org.eclipse.jdt.core.dom.Block;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+
+import gr.uom.java.xmi.ModelInput;
+import gr.uom.java.xmi.SourceFile;
+
+/**
+ * Handle on a method body that is decomposed into an {@link OperationBody} the first time it is requested.
+ * Until then, the handle keeps only the source of the method body: the text of its file and its offsets,
+ * or the encoded block of a serialized model.
+ */
+public abstract class LazyOperationBody {
+	private OperationBody body;
+
+	public static LazyOperationBody fromSource(SourceFile sourceFile, Block methodBody) {
+		return new SourceOperationBody(sourceFile, methodBody.getStartPosition(), methodBody.getLength());
+	}
+
+	public static LazyOperationBody fromModelInput(ModelInput block) {
+		return new EncodedOperationBody(block);
+	}
+
+	public synchronized OperationBody get() {
+		if(body == null) {
+			body = decompose();
+		}
+		return body;
+	}
+
+	/**
+	 * Called once, by the first call to {@link #get()}, after which the source of the body can be released.
+	 */
+	protected abstract OperationBody decompose();
+
+	private static class SourceOperationBody extends LazyOperationBody {
+		private SourceFile sourceFile;
+		private final int startOffset;
+		private final int length;
+
+		private SourceOperationBody(SourceFile sourceFile, int startOffset, int length) {
+			this.sourceFile = sourceFile;
+			this.startOffset = startOffset;
+			this.length = length;
+		}
+
+		@Override
+		protected OperationBody decompose() {
+			Block methodBody = sourceFile.parseBlock(startOffset, length);
+			if(methodBody == null) {
+				throw new IllegalStateException("Method body not found at offset " + startOffset + " of " + sourceFile.getFilePath());
+			}
+			OperationBody body = new OperationBody((CompilationUnit)methodBody.getRoot(), sourceFile.getFilePath(), methodBody);
+			sourceFile = null;
+			return body;
+		}
+	}
+
+	private static class EncodedOperationBody extends LazyOperationBody {
+		private ModelInput block;
+
+		private EncodedOperationBody(ModelInput block) {
+			this.block = block;
+		}
+
+		@Override
+		protected OperationBody decompose() {
+			OperationBody body = new OperationBody(block);
+			block = null;
+			return body;
+		}
+	}
+}
@@ -9,8 +9,8 @@ import gr.uom.java.xmi.diff.StringDistance;
 public class LeafMapping extends AbstractCodeMapping implements Comparable<LeafMapping> {
 
 	public LeafMapping(AbstractCodeFragment statement1, AbstractCodeFragment statement2,
-			UMLOperation operation1, UMLOperation operation2) {
-		super(statement1, statement2, operation1, operation2);
+			String argumentizedString1, String argumentizedString2, UMLOperation operation1, UMLOperation operation2) {
+		super(statement1, statement2, argumentizedString1, argumentizedString2, operation1, operation2);
 	}
 
 	@Override
@@ -9,6 +9,9 @@ import org.eclipse.jdt.core.dom.CompilationUnit;
 import org.eclipse.jdt.core.dom.Expression;
 
 import gr.uom.java.xmi.LocationInfo;
+import gr.uom.java.xmi.ModelInput;
+import gr.uom.java.xmi.ModelOutput;
+import gr.uom.java.xmi.StringPool;
 import gr.uom.java.xmi.UMLType;
 import gr.uom.java.xmi.diff.StringDistance;
 
@@ -19,34 +22,36 @@ public class ObjectCreation extends AbstractCall {
 	private volatile int hashCode = 0;
 	
 	public ObjectCreation(CompilationUnit cu, String filePath, ClassInstanceCreation creation) {
+		StringPool stringPool = StringPool.of(cu);
 		this.locationInfo = new LocationInfo(cu, filePath, creation);
-		this.type = UMLType.extractTypeObject(creation.getType().toString());
+		this.type = stringPool.extractTypeObject(creation.getType().toString());
 		this.typeArguments = creation.arguments().size();
 		this.arguments = new ArrayList<String>();
 		List<Expression> args = creation.arguments();
 		for(Expression argument : args) {
-			this.arguments.add(argument.toString());
+			this.arguments.add(stringPool.intern(argument.toString()));
 		}
 		if(creation.getExpression() != null) {
-			this.expression = creation.getExpression().toString();
+			this.expression = stringPool.intern(creation.getExpression().toString());
 		}
 		if(creation.getAnonymousClassDeclaration() != null) {
-			this.anonymousClassDeclaration = creation.getAnonymousClassDeclaration().toString();
+			this.anonymousClassDeclaration = stringPool.intern(creation.getAnonymousClassDeclaration().toString());
 		}
 	}
 
 	public ObjectCreation(CompilationUnit cu, String filePath, ArrayCreation creation) {
+		StringPool stringPool = StringPool.of(cu);
 		this.locationInfo = new LocationInfo(cu, filePath, creation);
 		this.isArray = true;
-		this.type = UMLType.extractTypeObject(creation.getType().toString());
+		this.type = stringPool.extractTypeObject(creation.getType().toString());
 		this.typeArguments = creation.dimensions().size();
 		this.arguments = new ArrayList<String>();
 		List<Expression> args = creation.dimensions();
 		for(Expression argument : args) {
-			this.arguments.add(argument.toString());
+			this.arguments.add(stringPool.intern(argument.toString()));
 		}
 		if(creation.getInitializer() != null) {
-			this.anonymousClassDeclaration = creation.getInitializer().toString();
+			this.anonymousClassDeclaration = stringPool.intern(creation.getInitializer().toString());
 		}
 	}
 
@@ -70,6 +75,20 @@ public class ObjectCreation extends AbstractCall {
 		
 	}
 
+	ObjectCreation(ModelInput input) {
+		readCall(input);
+		this.type = input.readType();
+		this.anonymousClassDeclaration = input.readString();
+		this.isArray = input.readBoolean();
+	}
+
+	void write(ModelOutput output) {
+		writeCall(output);
+		output.writeType(type);
+		output.writeString(anonymousClassDeclaration);
+		output.writeBoolean(isArray);
+	}
+
 	public ObjectCreation update(String oldExpression, String newExpression) {
 		ObjectCreation newObjectCreation = new ObjectCreation();
 		newObjectCreation.type = this.type;
@@ -33,9 +33,16 @@ import org.eclipse.jdt.core.dom.TryStatement;
 import org.eclipse.jdt.core.dom.VariableDeclarationStatement;
 import org.eclipse.jdt.core.dom.WhileStatement;
 
+import gr.uom.java.xmi.ModelInput;
+import gr.uom.java.xmi.ModelOutput;
+
 public class OperationBody {
+	private static final int LEAF_STATEMENT = 0;
+	private static final int COMPOSITE_STATEMENT = 1;
+	private static final int TRY_STATEMENT = 2;
 
 	private CompositeStatementObject compositeStatement;
+	private long fingerprint;
 
 	public OperationBody(CompilationUnit cu, String filePath, Block methodBody) {
 		this.compositeStatement = new CompositeStatementObject(cu, filePath, methodBody, 0, "{");
@@ -43,6 +50,162 @@ public class OperationBody {
 		for(Statement statement : statements) {
 			processStatement(cu, filePath, compositeStatement, statement);
 		}
+		this.fingerprint = fingerprint(compositeStatement, Fingerprints.FNV_OFFSET_BASIS);
+	}
+
+	public OperationBody(ModelInput input) {
+		this.compositeStatement = new CompositeStatementObject(input);
+		readChildren(input, compositeStatement);
+		this.fingerprint = fingerprint(compositeStatement, Fingerprints.FNV_OFFSET_BASIS);
+	}
+
+	public void write(ModelOutput output) {
+		compositeStatement.write(output);
+		writeChildren(output, compositeStatement);
+	}
+
+	private static void writeChildren(ModelOutput output, CompositeStatementObject composite) {
+		List<AbstractExpression> expressions = composite.getExpressions();
+		output.writeVarint(expressions.size());
+		for(AbstractExpression expression : expressions) {
+			expression.write(output);
+		}
+		List<AbstractStatement> statements = composite.getStatements();
+		output.writeVarint(statements.size());
+		for(AbstractStatement statement : statements) {
+			if(statement instanceof TryStatementObject) {
+				output.writeVarint(TRY_STATEMENT);
+			}
+			else if(statement instanceof CompositeStatementObject) {
+				output.writeVarint(COMPOSITE_STATEMENT);
+			}
+			else {
+				output.writeVarint(LEAF_STATEMENT);
+			}
+			if(statement instanceof CompositeStatementObject) {
+				CompositeStatementObject child = (CompositeStatementObject)statement;
+				child.write(output);
+				writeChildren(output, child);
+			}
+			else {
+				((StatementObject)statement).write(output);
+			}
+		}
+		//the catch and finally clauses of a try statement are its siblings, referenced by their index
+		for(AbstractStatement statement : statements) {
+			if(statement instanceof TryStatementObject) {
+				TryStatementObject tryStatement = (TryStatementObject)statement;
+				output.writeVarint(tryStatement.getCatchClauses().size());
+				for(CompositeStatementObject catchClause : tryStatement.getCatchClauses()) {
+					output.writeVarint(indexOf(statements, catchClause));
+				}
+				CompositeStatementObject finallyClause = tryStatement.getFinallyClause();
+				output.writeVarint(finallyClause == null ? 0 : indexOf(statements, finallyClause) + 1);
+			}
+		}
+	}
+
+	private static int indexOf(List<AbstractStatement> statements, AbstractStatement statement) {
+		for(int i=0; i<statements.size(); i++) {
+			if(statements.get(i) == statement) {
+				return i;
+			}
+		}
+		throw new IllegalStateException("Clause " + statement + " is not a sibling of its try statement");
+	}
+
+	private static void readChildren(ModelInput input, CompositeStatementObject composite) {
+		int expressionCount = input.readVarint();
+		for(int i=0; i<expressionCount; i++) {
+			composite.addExpression(new AbstractExpression(input));
+		}
+		int statementCount = input.readVarint();
+		for(int i=0; i<statementCount; i++) {
+			int kind = input.readVarint();
+			if(kind == LEAF_STATEMENT) {
+				composite.addStatement(new StatementObject(input));
+			}
+			else if(kind == COMPOSITE_STATEMENT || kind == TRY_STATEMENT) {
+				CompositeStatementObject child = kind == TRY_STATEMENT ? new TryStatementObject(input) : new CompositeStatementObject(input);
+				//the index of a composite statement must be set before its expressions are added
+				composite.addStatement(child);
+				readChildren(input, child);
+			}
+			else {
+				throw new IllegalStateException("Unknown statement kind " + kind);
+			}
+		}
+		List<AbstractStatement> statements = composite.getStatements();
+		for(AbstractStatement statement : statements) {
+			if(statement instanceof TryStatementObject) {
+				TryStatementObject tryStatement = (TryStatementObject)statement;
+				int catchClauseCount = input.readVarint();
+				for(int i=0; i<catchClauseCount; i++) {
+					tryStatement.addCatchClause(clauseAt(statements, input.readVarint()));
+				}
+				int finallyIndex = input.readVarint();
+				if(finallyIndex > 0) {
+					tryStatement.setFinallyClause(clauseAt(statements, finallyIndex - 1));
+				}
+			}
+		}
+	}
+
+	private static CompositeStatementObject clauseAt(List<AbstractStatement> statements, int index) {
+		if(index >= statements.size() || !(statements.get(index) instanceof CompositeStatementObject)) {
+			throw new IllegalStateException("Invalid clause index " + index);
+		}
+		return (CompositeStatementObject)statements.get(index);
+	}
+
+	/**
+	 * 64-bit FNV-1a hash of the string, depth and number of children of every statement in the body, in pre-order.
+	 */
+	public long getFingerprint() {
+		return fingerprint;
+	}
+
+	/**
+	 * @return true if both bodies have the same tree of statements, with the same strings at the same depths and indices
+	 */
+	public boolean hasIdenticalStatements(OperationBody other) {
+		return this.fingerprint == other.fingerprint && identicalStatements(this.compositeStatement, other.compositeStatement);
+	}
+
+	private static boolean identicalStatements(AbstractStatement statement1, AbstractStatement statement2) {
+		if(statement1.getClass() != statement2.getClass() || statement1.getDepth() != statement2.getDepth() ||
+				statement1.getIndex() != statement2.getIndex() || !statement1.getString().equals(statement2.getString())) {
+			return false;
+		}
+		if(statement1 instanceof CompositeStatementObject) {
+			List<AbstractStatement> statements1 = ((CompositeStatementObject)statement1).getStatements();
+			List<AbstractStatement> statements2 = ((CompositeStatementObject)statement2).getStatements();
+			if(statements1.size() != statements2.size()) {
+				return false;
+			}
+			for(int i=0; i<statements1.size(); i++) {
+				if(!identicalStatements(statements1.get(i), statements2.get(i))) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	private static long fingerprint(AbstractStatement statement, long hash) {
+		hash = Fingerprints.add(hash, statement.getString());
+		hash = Fingerprints.add(hash, statement.getDepth());
+		if(statement instanceof CompositeStatementObject) {
+			List<AbstractStatement> statements = ((CompositeStatementObject)statement).getStatements();
+			hash = Fingerprints.add(hash, statements.size());
+			for(AbstractStatement child : statements) {
+				hash = fingerprint(child, hash);
+			}
+		}
+		else {
+			hash = Fingerprints.add(hash, -1L);
+		}
+		return hash;
 	}
 
 	public int statementCount() {
@@ -1,6 +1,9 @@
 package gr.uom.java.xmi.decomposition;
 
 import gr.uom.java.xmi.LocationInfo;
+import gr.uom.java.xmi.ModelInput;
+import gr.uom.java.xmi.ModelOutput;
+import gr.uom.java.xmi.StringPool;
 import gr.uom.java.xmi.UMLOperation;
 import gr.uom.java.xmi.UMLParameter;
 import gr.uom.java.xmi.UMLType;
@@ -24,17 +27,21 @@ public class OperationInvocation extends AbstractCall {
 	private volatile int hashCode = 0;
 	
 	public OperationInvocation(CompilationUnit cu, String filePath, MethodInvocation invocation) {
+		StringPool stringPool = StringPool.of(cu);
 		this.locationInfo = new LocationInfo(cu, filePath, invocation);
-		this.methodName = invocation.getName().getIdentifier();
+		this.methodName = stringPool.intern(invocation.getName().getIdentifier());
 		this.typeArguments = invocation.arguments().size();
 		this.arguments = new ArrayList<String>();
 		List<Expression> args = invocation.arguments();
 		for(Expression argument : args) {
-			this.arguments.add(argument.toString());
+			this.arguments.add(stringPool.intern(argument.toString()));
 		}
 		if(invocation.getExpression() != null) {
-			this.expression = invocation.getExpression().toString();
+			this.expression = stringPool.intern(invocation.getExpression().toString());
 			processExpression(invocation.getExpression(), this.subExpressions);
+			for(int i=0; i<subExpressions.size(); i++) {
+				subExpressions.set(i, stringPool.intern(subExpressions.get(i)));
+			}
 		}
 	}
 	
@@ -68,15 +75,16 @@ public class OperationInvocation extends AbstractCall {
 	}
 
 	public OperationInvocation(CompilationUnit cu, String filePath, SuperMethodInvocation invocation) {
+		StringPool stringPool = StringPool.of(cu);
 		this.locationInfo = new LocationInfo(cu, filePath, invocation);
-		this.methodName = invocation.getName().getIdentifier();
+		this.methodName = stringPool.intern(invocation.getName().getIdentifier());
 		this.typeArguments = invocation.arguments().size();
 		this.arguments = new ArrayList<String>();
 		this.expression = "super";
 		this.subExpressions.add("super");
 		List<Expression> args = invocation.arguments();
 		for(Expression argument : args) {
-			this.arguments.add(argument.toString());
+			this.arguments.add(stringPool.intern(argument.toString()));
 		}
 	}
 
@@ -84,6 +92,18 @@ public class OperationInvocation extends AbstractCall {
 		
 	}
 
+	OperationInvocation(ModelInput input) {
+		readCall(input);
+		this.methodName = input.readString();
+		this.subExpressions = input.readStringList();
+	}
+
+	void write(ModelOutput output) {
+		writeCall(output);
+		output.writeString(methodName);
+		output.writeStringList(subExpressions);
+	}
+
 	public OperationInvocation update(String oldExpression, String newExpression) {
 		OperationInvocation newOperationInvocation = new OperationInvocation();
 		newOperationInvocation.methodName = this.methodName;
@@ -1,11 +1,54 @@
 package gr.uom.java.xmi.decomposition;
 
+import java.util.Arrays;
 import java.util.Set;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 public class ReplacementUtil {
 	private static final String[] SPECIAL_CHARACTERS = {";", ",", ")", "=", "+", "-", ">", "<", ".", "]", " "};
+	private static final int[] NO_OCCURRENCES = new int[0];
+
+	/**
+	 * Returns the offsets of the non-overlapping occurrences of {@code subString} in {@code completeString},
+	 * found from left to right, i.e., the occurrences {@code replaceAll(Pattern.quote(subString), ...)} would replace.
+	 */
+	public static int[] occurrences(String completeString, String subString) {
+		int[] offsets = NO_OCCURRENCES;
+		int count = 0;
+		int step = Math.max(1, subString.length());
+		int index = completeString.indexOf(subString);
+		while(index != -1) {
+			if(count == offsets.length) {
+				offsets = Arrays.copyOf(offsets, Math.max(4, 2 * count));
+			}
+			offsets[count++] = index;
+			index = index + step > completeString.length() ? -1 : completeString.indexOf(subString, index + step);
+		}
+		return count == offsets.length ? offsets : Arrays.copyOf(offsets, count);
+	}
+
+	/**
+	 * Replaces the occurrences found by {@link #occurrences(String, String)} with the literal {@code replacement}.
+	 */
+	public static String replaceOccurrences(String completeString, int[] occurrences, int subStringLength, String replacement) {
+		if(occurrences.length == 0) {
+			return completeString;
+		}
+		StringBuilder sb = new StringBuilder(completeString.length() + occurrences.length * (replacement.length() - subStringLength));
+		int previousEnd = 0;
+		for(int offset : occurrences) {
+			sb.append(completeString, previousEnd, offset).append(replacement);
+			previousEnd = offset + subStringLength;
+		}
+		sb.append(completeString, previousEnd, completeString.length());
+		return sb.toString();
+	}
+
+	/**
+	 * Literal replacement of all occurrences of {@code subString}, without compiling a regular expression.
+	 */
+	public static String replaceAll(String completeString, String subString, String replacement) {
+		return replaceOccurrences(completeString, occurrences(completeString, subString), subString.length(), replacement);
+	}
 	
 	public static boolean contains(String completeString, String subString) {
 		for(String character : SPECIAL_CHARACTERS) {
@@ -19,12 +62,12 @@ public class ReplacementUtil {
 	public static String performReplacement(String completeString, String subString, String replacement) {
 		String temp = new String(completeString);
 		if(completeString.equals(subString)) {
-			temp = temp.replace(subString, replacement);
+			temp = replaceAll(temp, subString, replacement);
 			return temp;
 		}
 		for(String character : SPECIAL_CHARACTERS) {
 			if(completeString.contains(subString + character)) {
-				temp = temp.replace(subString + character, replacement + character);
+				temp = replaceAll(temp, subString + character, replacement + character);
 			}
 		}
 		return temp;
@@ -35,7 +78,7 @@ public class ReplacementUtil {
 		boolean replacementOccurred = false;
 		for(String character : SPECIAL_CHARACTERS) {
 			if(variables1.contains(subString1) && variables2.contains(subString2) && completeString1.contains(subString1 + character) && completeString2.contains(subString2 + character)) {
-				temp = temp.replace(subString1 + character, subString2 + character);
+				temp = replaceAll(temp, subString1 + character, subString2 + character);
 				replacementOccurred = true;
 			}
 		}
@@ -44,7 +87,7 @@ public class ReplacementUtil {
 				char nextCharacter1 = completeString1.charAt(completeString1.indexOf(subString1) + subString1.length());
 				char nextCharacter2 = completeString2.charAt(completeString2.indexOf(subString2) + subString2.length());
 				if(nextCharacter1 == nextCharacter2) {
-					temp = completeString1.replaceAll(Pattern.quote(subString1), Matcher.quoteReplacement(subString2));
+					temp = replaceAll(completeString1, subString1, subString2);
 				}
 			} catch(IndexOutOfBoundsException e) {
 				return temp;
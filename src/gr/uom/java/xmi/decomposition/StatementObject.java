@@ -16,6 +16,9 @@ import org.eclipse.jdt.core.dom.VariableDeclarationFragment;
 import org.eclipse.jdt.core.dom.VariableDeclarationStatement;
 
 import gr.uom.java.xmi.LocationInfo;
+import gr.uom.java.xmi.ModelInput;
+import gr.uom.java.xmi.ModelOutput;
+import gr.uom.java.xmi.StringPool;
 
 public class StatementObject extends AbstractStatement {
 	
@@ -31,6 +34,37 @@ public class StatementObject extends AbstractStatement {
 	private Map<String, ObjectCreation> creationMap;
 	private List<String> infixOperators;
 	
+	StatementObject(ModelInput input) {
+		super();
+		this.statement = input.readString();
+		this.locationInfo = input.readLocationInfo();
+		this.variables = input.readStringList();
+		this.types = input.readStringList();
+		this.variableDeclarations = readVariableDeclarations(input);
+		this.methodInvocationMap = readMethodInvocationMap(input);
+		this.anonymousClassDeclarations = input.readStringList();
+		this.stringLiterals = input.readStringList();
+		this.numberLiterals = input.readStringList();
+		this.creationMap = readCreationMap(input);
+		this.infixOperators = input.readStringList();
+		setDepth(input.readVarint());
+	}
+
+	void write(ModelOutput output) {
+		output.writeString(statement);
+		output.writeLocationInfo(locationInfo);
+		output.writeStringList(variables);
+		output.writeStringList(types);
+		writeVariableDeclarations(output, variableDeclarations);
+		writeMethodInvocationMap(output, methodInvocationMap);
+		output.writeStringList(anonymousClassDeclarations);
+		output.writeStringList(stringLiterals);
+		output.writeStringList(numberLiterals);
+		writeCreationMap(output, creationMap);
+		output.writeStringList(infixOperators);
+		output.writeVarint(getDepth());
+	}
+
 	public StatementObject(CompilationUnit cu, String filePath, Statement statement, int depth) {
 		super();
 		this.locationInfo = new LocationInfo(cu, filePath, statement);
@@ -109,6 +143,8 @@ public class StatementObject extends AbstractStatement {
 		else {
 			this.statement = statement.toString();
 		}
+		//statements such as "return null;" or "break;" repeat in many bodies
+		this.statement = StringPool.of(cu).intern(this.statement);
 	}
 
 	public List<String> stringRepresentation() {
@@ -6,6 +6,7 @@ import java.util.List;
 import org.eclipse.jdt.core.dom.CompilationUnit;
 import org.eclipse.jdt.core.dom.Statement;
 
+import gr.uom.java.xmi.ModelInput;
 import gr.uom.java.xmi.UMLOperation;
 
 public class TryStatementObject extends CompositeStatementObject {
@@ -17,6 +18,11 @@ public class TryStatementObject extends CompositeStatementObject {
 		this.catchClauses = new ArrayList<CompositeStatementObject>();
 	}
 
+	TryStatementObject(ModelInput input) {
+		super(input);
+		this.catchClauses = new ArrayList<CompositeStatementObject>();
+	}
+
 	public void addCatchClause(CompositeStatementObject catchClause) {
 		catchClauses.add(catchClause);
 	}
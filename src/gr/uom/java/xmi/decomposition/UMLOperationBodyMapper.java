@@ -19,6 +19,10 @@ import gr.uom.java.xmi.diff.UMLModelDiff;
 import gr.uom.java.xmi.diff.UMLOperationDiff;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -30,6 +34,8 @@ import java.util.TreeSet;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import org.refactoringminer.api.DetectionStatistics;
+import org.refactoringminer.api.DetectionStatistics.Counter;
 import org.refactoringminer.api.Refactoring;
 import org.refactoringminer.util.PrefixSuffixUtils;
 
@@ -45,6 +51,10 @@ public class UMLOperationBodyMapper implements Comparable<UMLOperationBodyMapper
 	private Set<Refactoring> refactorings = new LinkedHashSet<Refactoring>();
 	private Set<CandidateAttributeRefactoring> candidateAttributeRenames = new LinkedHashSet<CandidateAttributeRefactoring>();
 	private List<UMLOperationBodyMapper> additionalMappers = new ArrayList<UMLOperationBodyMapper>();
+	//the fragments compared by this mapper after replacing parameters with arguments, kept here rather than in the
+	//fragments, so that mappers sharing an operation do not interfere with each other
+	private Map<AbstractCodeFragment, String> argumentizedStrings = new IdentityHashMap<AbstractCodeFragment, String>();
+	private Map<AbstractCodeFragment, Long> argumentizedFingerprints = new IdentityHashMap<AbstractCodeFragment, Long>();
 	private static final Pattern SPLIT_CONDITIONAL_PATTERN = Pattern.compile("(\\|\\|)|(&&)|(\\?)|(:)");
 	private static final Pattern DOUBLE_QUOTES = Pattern.compile("\"([^\"]*)\"|(\\S+)");
 	private static final double MAX_ANONYMOUS_CLASS_DECLARATION_DISTANCE = 0.2;
@@ -81,6 +91,7 @@ public class UMLOperationBodyMapper implements Comparable<UMLOperationBodyMapper
 			return;
 		}
 		this.isInitialized = true;
+		DetectionStatistics.count(Counter.MAPPERS);
 		OperationBody body1 = operation1.getBody();
 		OperationBody body2 = operation2.getBody();
 		if(body1 != null && body2 != null) {
@@ -109,21 +120,24 @@ public class UMLOperationBodyMapper implements Comparable<UMLOperationBodyMapper
 					parameterToArgumentMap2.put("this.", "");
 				}
 			}
+			//operations with identical statements are mapped one to one, without the matching passes
+			boolean identicalBodies = body1.hasIdenticalStatements(body2);
 			resetNodes(leaves1);
 			//replace parameters with arguments in leaves1
 			if(!parameterToArgumentMap1.isEmpty()) {
-				for(StatementObject leave1 : leaves1) {
-					leave1.replaceParametersWithArguments(parameterToArgumentMap1);
-				}
+				replaceParametersWithArguments(leaves1, parameterToArgumentMap1);
 			}
 			resetNodes(leaves2);
 			//replace parameters with arguments in leaves2
 			if(!parameterToArgumentMap2.isEmpty()) {
-				for(StatementObject leave2 : leaves2) {
-					leave2.replaceParametersWithArguments(parameterToArgumentMap2);
-				}
+				replaceParametersWithArguments(leaves2, parameterToArgumentMap2);
+			}
+			if(identicalBodies) {
+				mapIdenticalLeaves(leaves1, leaves2);
+			}
+			else {
+				processLeaves(leaves1, leaves2, new LinkedHashMap<String, String>());
 			}
-			processLeaves(leaves1, leaves2, new LinkedHashMap<String, String>());
 			
 			List<CompositeStatementObject> innerNodes1 = composite1.getInnerNodes();
 			innerNodes1.remove(composite1);
@@ -132,16 +146,15 @@ public class UMLOperationBodyMapper implements Comparable<UMLOperationBodyMapper
 			resetNodes(innerNodes1);
 			//replace parameters with arguments in innerNodes1
 			if(!parameterToArgumentMap1.isEmpty()) {
-				for(CompositeStatementObject innerNode1 : innerNodes1) {
-					innerNode1.replaceParametersWithArguments(parameterToArgumentMap1);
-				}
+				replaceParametersWithArguments(innerNodes1, parameterToArgumentMap1);
 			}
 			resetNodes(innerNodes2);
 			//replace parameters with arguments in innerNodes2
 			if(!parameterToArgumentMap2.isEmpty()) {
-				for(CompositeStatementObject innerNode2 : innerNodes2) {
-					innerNode2.replaceParametersWithArguments(parameterToArgumentMap2);
-				}
+				replaceParametersWithArguments(innerNodes2, parameterToArgumentMap2);
+			}
+			if(identicalBodies) {
+				mapIdenticalInnerNodes(innerNodes1, innerNodes2);
 			}
 			processInnerNodes(innerNodes1, innerNodes2, new LinkedHashMap<String, String>());
 			
@@ -158,9 +171,38 @@ public class UMLOperationBodyMapper implements Comparable<UMLOperationBodyMapper
 
 	private void resetNodes(List<? extends AbstractCodeFragment> nodes) {
 		for(AbstractCodeFragment node : nodes) {
-			node.resetArgumentization();
+			argumentizedStrings.remove(node);
+			argumentizedFingerprints.remove(node);
+		}
+	}
+
+	private void replaceParametersWithArguments(List<? extends AbstractCodeFragment> nodes, Map<String, String> parameterToArgumentMap) {
+		for(AbstractCodeFragment node : nodes) {
+			String argumentizedString = node.replaceParametersWithArguments(parameterToArgumentMap);
+			argumentizedStrings.put(node, argumentizedString);
+			argumentizedFingerprints.put(node, AbstractCodeFragment.fingerprint(argumentizedString));
 		}
 	}
+
+	private String getArgumentizedString(AbstractCodeFragment fragment) {
+		String argumentizedString = argumentizedStrings.get(fragment);
+		return argumentizedString != null ? argumentizedString : fragment.getString();
+	}
+
+	private long getArgumentizedFingerprint(AbstractCodeFragment fragment) {
+		Long fingerprint = argumentizedFingerprints.get(fragment);
+		return fingerprint != null ? fingerprint : fragment.getFingerprint();
+	}
+
+	//the fingerprints reject most pairs of different strings without comparing them
+	private static boolean equalStrings(AbstractCodeFragment fragment1, AbstractCodeFragment fragment2) {
+		return fragment1.getFingerprint() == fragment2.getFingerprint() && fragment1.getString().equals(fragment2.getString());
+	}
+
+	private boolean equalArgumentizedStrings(AbstractCodeFragment fragment1, AbstractCodeFragment fragment2) {
+		return getArgumentizedFingerprint(fragment1) == getArgumentizedFingerprint(fragment2) &&
+				getArgumentizedString(fragment1).equals(getArgumentizedString(fragment2));
+	}
 	
 	public UMLOperationBodyMapper(UMLOperationBodyMapper operationBodyMapper, UMLOperation addedOperation,
 			Map<String, String> parameterToArgumentMap1, Map<String, String> parameterToArgumentMap2) {
@@ -171,6 +213,7 @@ public class UMLOperationBodyMapper implements Comparable<UMLOperationBodyMapper
 		this.nonMappedLeavesT2 = new ArrayList<StatementObject>();
 		this.nonMappedInnerNodesT1 = new ArrayList<CompositeStatementObject>();
 		this.nonMappedInnerNodesT2 = new ArrayList<CompositeStatementObject>();
+		DetectionStatistics.count(Counter.MAPPERS);
 		
 		OperationBody addedOperationBody = addedOperation.getBody();
 		if(addedOperationBody != null) {
@@ -179,7 +222,7 @@ public class UMLOperationBodyMapper implements Comparable<UMLOperationBodyMapper
 			//adding leaves that were mapped with replacements
 			Set<StatementObject> addedLeaves1 = new LinkedHashSet<StatementObject>();
 			for(AbstractCodeMapping mapping : operationBodyMapper.getMappings()) {
-				if(!mapping.getReplacements().isEmpty() || !mapping.getFragment1().equalFragment(mapping.getFragment2())) {
+				if(!mapping.getReplacements().isEmpty() || !mapping.equalFragments()) {
 					AbstractCodeFragment fragment = mapping.getFragment1();
 					if(fragment instanceof StatementObject) {
 						StatementObject statement = (StatementObject)fragment;
@@ -210,16 +253,12 @@ public class UMLOperationBodyMapper implements Comparable<UMLOperationBodyMapper
 			resetNodes(leaves1);
 			//replace parameters with arguments in leaves1
 			if(!parameterToArgumentMap1.isEmpty()) {
-				for(StatementObject leave1 : leaves1) {
-					leave1.replaceParametersWithArguments(parameterToArgumentMap1);
-				}
+				replaceParametersWithArguments(leaves1, parameterToArgumentMap1);
 			}
 			resetNodes(leaves2);
 			//replace parameters with arguments in leaves2
 			if(!parameterToArgumentMap2.isEmpty()) {
-				for(StatementObject leave2 : leaves2) {
-					leave2.replaceParametersWithArguments(parameterToArgumentMap2);
-				}
+				replaceParametersWithArguments(leaves2, parameterToArgumentMap2);
 			}
 			//compare leaves from T1 with leaves from T2
 			processLeaves(leaves1, leaves2, parameterToArgumentMap2);
@@ -228,7 +267,7 @@ public class UMLOperationBodyMapper implements Comparable<UMLOperationBodyMapper
 			//adding innerNodes that were mapped with replacements
 			Set<CompositeStatementObject> addedInnerNodes1 = new LinkedHashSet<CompositeStatementObject>();
 			for(AbstractCodeMapping mapping : operationBodyMapper.getMappings()) {
-				if(!mapping.getReplacements().isEmpty() || !mapping.getFragment1().equalFragment(mapping.getFragment2())) {
+				if(!mapping.getReplacements().isEmpty() || !mapping.equalFragments()) {
 					AbstractCodeFragment fragment = mapping.getFragment1();
 					if(fragment instanceof CompositeStatementObject) {
 						CompositeStatementObject statement = (CompositeStatementObject)fragment;
@@ -244,16 +283,12 @@ public class UMLOperationBodyMapper implements Comparable<UMLOperationBodyMapper
 			resetNodes(innerNodes1);
 			//replace parameters with arguments in innerNodes1
 			if(!parameterToArgumentMap1.isEmpty()) {
-				for(CompositeStatementObject innerNode1 : innerNodes1) {
-					innerNode1.replaceParametersWithArguments(parameterToArgumentMap1);
-				}
+				replaceParametersWithArguments(innerNodes1, parameterToArgumentMap1);
 			}
 			resetNodes(innerNodes2);
 			//replace parameters with arguments in innerNode2
 			if(!parameterToArgumentMap2.isEmpty()) {
-				for(CompositeStatementObject innerNode2 : innerNodes2) {
-					innerNode2.replaceParametersWithArguments(parameterToArgumentMap2);
-				}
+				replaceParametersWithArguments(innerNodes2, parameterToArgumentMap2);
 			}
 			//compare inner nodes from T1 with inner nodes from T2
 			processInnerNodes(innerNodes1, innerNodes2, parameterToArgumentMap2);
@@ -296,6 +331,7 @@ public class UMLOperationBodyMapper implements Comparable<UMLOperationBodyMapper
 		this.nonMappedLeavesT2 = new ArrayList<StatementObject>();
 		this.nonMappedInnerNodesT1 = new ArrayList<CompositeStatementObject>();
 		this.nonMappedInnerNodesT2 = new ArrayList<CompositeStatementObject>();
+		DetectionStatistics.count(Counter.MAPPERS);
 		
 		OperationBody removedOperationBody = removedOperation.getBody();
 		if(removedOperationBody != null) {
@@ -305,7 +341,7 @@ public class UMLOperationBodyMapper implements Comparable<UMLOperationBodyMapper
 			//adding leaves that were mapped with replacements or are inexact matches
 			Set<StatementObject> addedLeaves2 = new LinkedHashSet<StatementObject>();
 			for(AbstractCodeMapping mapping : operationBodyMapper.getMappings()) {
-				if(!mapping.getReplacements().isEmpty() || !mapping.getFragment1().equalFragment(mapping.getFragment2())) {
+				if(!mapping.getReplacements().isEmpty() || !mapping.equalFragments()) {
 					AbstractCodeFragment fragment = mapping.getFragment2();
 					if(fragment instanceof StatementObject) {
 						StatementObject statement = (StatementObject)fragment;
@@ -331,9 +367,7 @@ public class UMLOperationBodyMapper implements Comparable<UMLOperationBodyMapper
 						}
 					}
 				}
-				for(StatementObject leave1 : leaves1) {
-					leave1.replaceParametersWithArguments(parameterToArgumentMap);
-				}
+				replaceParametersWithArguments(leaves1, parameterToArgumentMap);
 			}
 			//compare leaves from T1 with leaves from T2
 			processLeaves(leaves1, leaves2, parameterToArgumentMap);
@@ -344,7 +378,7 @@ public class UMLOperationBodyMapper implements Comparable<UMLOperationBodyMapper
 			//adding innerNodes that were mapped with replacements or are inexact matches
 			Set<CompositeStatementObject> addedInnerNodes2 = new LinkedHashSet<CompositeStatementObject>();
 			for(AbstractCodeMapping mapping : operationBodyMapper.getMappings()) {
-				if(!mapping.getReplacements().isEmpty() || !mapping.getFragment1().equalFragment(mapping.getFragment2())) {
+				if(!mapping.getReplacements().isEmpty() || !mapping.equalFragments()) {
 					AbstractCodeFragment fragment = mapping.getFragment2();
 					if(fragment instanceof CompositeStatementObject) {
 						CompositeStatementObject statement = (CompositeStatementObject)fragment;
@@ -358,9 +392,7 @@ public class UMLOperationBodyMapper implements Comparable<UMLOperationBodyMapper
 			resetNodes(innerNodes1);
 			//replace parameters with arguments in innerNodes1
 			if(!parameterToArgumentMap.isEmpty()) {
-				for(CompositeStatementObject innerNode1 : innerNodes1) {
-					innerNode1.replaceParametersWithArguments(parameterToArgumentMap);
-				}
+				replaceParametersWithArguments(innerNodes1, parameterToArgumentMap);
 			}
 			//compare inner nodes from T1 with inner nodes from T2
 			processInnerNodes(innerNodes1, innerNodes2, parameterToArgumentMap);
@@ -552,7 +584,7 @@ public class UMLOperationBodyMapper implements Comparable<UMLOperationBodyMapper
 				}
 			}
 		}
-		String argumentizedString = statement.getArgumentizedString();
+		String argumentizedString = getArgumentizedString(statement);
 		if(argumentizedString.contains("=")) {
 			String beforeAssignment = argumentizedString.substring(0, argumentizedString.indexOf("="));
 			String[] tokens = beforeAssignment.split("\\s");
@@ -582,7 +614,7 @@ public class UMLOperationBodyMapper implements Comparable<UMLOperationBodyMapper
 				ExtractVariableRefactoring extractVariable = (ExtractVariableRefactoring)ref;
 				VariableDeclaration declaration = extractVariable.getVariableDeclaration();
 				if(declaration.getInitializer() != null && input.contains(declaration.getInitializer().toString())) {
-					output = output.replace(declaration.getInitializer().toString(), declaration.getVariableName());
+					output = ReplacementUtil.replaceAll(output, declaration.getInitializer().toString(), declaration.getVariableName());
 				}
 			}
 		}
@@ -815,19 +847,8 @@ public class UMLOperationBodyMapper implements Comparable<UMLOperationBodyMapper
 		//exact string+depth matching - inner nodes
 		for(ListIterator<CompositeStatementObject> innerNodeIterator1 = innerNodes1.listIterator(); innerNodeIterator1.hasNext();) {
 			CompositeStatementObject statement1 = innerNodeIterator1.next();
-			TreeSet<CompositeStatementObjectMapping> mappingSet = new TreeSet<CompositeStatementObjectMapping>();
-			for(ListIterator<CompositeStatementObject> innerNodeIterator2 = innerNodes2.listIterator(); innerNodeIterator2.hasNext();) {
-				CompositeStatementObject statement2 = innerNodeIterator2.next();
-				double score = statement1.compositeChildMatchingScore(statement2, mappings, removedOperations, addedOperations);
-				if((statement1.getString().equals(statement2.getString()) || statement1.getArgumentizedString().equals(statement2.getArgumentizedString())) &&
-						statement1.getDepth() == statement2.getDepth() &&
-						(score > 0 || Math.max(statement1.getStatements().size(), statement2.getStatements().size()) == 0)) {
-					CompositeStatementObjectMapping mapping = createCompositeMapping(statement1, statement2, parameterToArgumentMap, score);
-					mappingSet.add(mapping);
-				}
-			}
-			if(!mappingSet.isEmpty()) {
-				CompositeStatementObjectMapping minStatementMapping = mappingSet.first();
+			CompositeStatementObjectMapping minStatementMapping = findExactCompositeMapping(statement1, innerNodes2, parameterToArgumentMap, true, removedOperations, addedOperations);
+			if(minStatementMapping != null) {
 				mappings.add(minStatementMapping);
 				innerNodes2.remove(minStatementMapping.getFragment2());
 				innerNodeIterator1.remove();
@@ -837,18 +858,8 @@ public class UMLOperationBodyMapper implements Comparable<UMLOperationBodyMapper
 		//exact string matching - inner nodes - finds moves to another level
 		for(ListIterator<CompositeStatementObject> innerNodeIterator1 = innerNodes1.listIterator(); innerNodeIterator1.hasNext();) {
 			CompositeStatementObject statement1 = innerNodeIterator1.next();
-			TreeSet<CompositeStatementObjectMapping> mappingSet = new TreeSet<CompositeStatementObjectMapping>();
-			for(ListIterator<CompositeStatementObject> innerNodeIterator2 = innerNodes2.listIterator(); innerNodeIterator2.hasNext();) {
-				CompositeStatementObject statement2 = innerNodeIterator2.next();
-				double score = statement1.compositeChildMatchingScore(statement2, mappings, removedOperations, addedOperations);
-				if((statement1.getString().equals(statement2.getString()) || statement1.getArgumentizedString().equals(statement2.getArgumentizedString())) &&
-						(score > 0 || Math.max(statement1.getStatements().size(), statement2.getStatements().size()) == 0)) {
-					CompositeStatementObjectMapping mapping = createCompositeMapping(statement1, statement2, parameterToArgumentMap, score);
-					mappingSet.add(mapping);
-				}
-			}
-			if(!mappingSet.isEmpty()) {
-				CompositeStatementObjectMapping minStatementMapping = mappingSet.first();
+			CompositeStatementObjectMapping minStatementMapping = findExactCompositeMapping(statement1, innerNodes2, parameterToArgumentMap, false, removedOperations, addedOperations);
+			if(minStatementMapping != null) {
 				mappings.add(minStatementMapping);
 				innerNodes2.remove(minStatementMapping.getFragment2());
 				innerNodeIterator1.remove();
@@ -880,9 +891,79 @@ public class UMLOperationBodyMapper implements Comparable<UMLOperationBodyMapper
 		}
 	}
 
+	private CompositeStatementObjectMapping findExactCompositeMapping(CompositeStatementObject statement1, List<CompositeStatementObject> innerNodes2,
+			Map<String, String> parameterToArgumentMap, boolean sameDepth, List<UMLOperation> removedOperations, List<UMLOperation> addedOperations) {
+		TreeSet<CompositeStatementObjectMapping> mappingSet = new TreeSet<CompositeStatementObjectMapping>();
+		for(CompositeStatementObject statement2 : innerNodes2) {
+			if((equalStrings(statement1, statement2) || equalArgumentizedStrings(statement1, statement2)) &&
+					(!sameDepth || statement1.getDepth() == statement2.getDepth())) {
+				double score = statement1.compositeChildMatchingScore(statement2, mappings, removedOperations, addedOperations);
+				if(score > 0 || Math.max(statement1.getStatements().size(), statement2.getStatements().size()) == 0) {
+					CompositeStatementObjectMapping mapping = createCompositeMapping(statement1, statement2, parameterToArgumentMap, score);
+					mappingSet.add(mapping);
+				}
+			}
+		}
+		return mappingSet.isEmpty() ? null : mappingSet.first();
+	}
+
+	/**
+	 * Maps the leaves of two operations with identical statements one to one, as the exact string+depth matching
+	 * of {@code processLeaves} would: each leaf has distance, depth and index difference 0 to its counterpart,
+	 * which is the first of the remaining candidates.
+	 */
+	private void mapIdenticalLeaves(List<StatementObject> leaves1, List<StatementObject> leaves2) {
+		Map<String, String> parameterToArgumentMap = new LinkedHashMap<String, String>();
+		for(int i=0; i<leaves1.size(); i++) {
+			mappings.add(createLeafMapping(leaves1.get(i), leaves2.get(i), parameterToArgumentMap));
+		}
+		leaves1.clear();
+		leaves2.clear();
+	}
+
+	/**
+	 * Maps the inner nodes of two operations with identical statements one to one, as long as the counterpart of
+	 * an inner node is the mapping the exact string+depth matching of {@code processInnerNodes} would choose.
+	 * This holds without comparing the other candidates when the counterpart reaches the highest possible
+	 * child matching score. The inner nodes that remain unmapped are left to {@code processInnerNodes}.
+	 */
+	private void mapIdenticalInnerNodes(List<CompositeStatementObject> innerNodes1, List<CompositeStatementObject> innerNodes2) {
+		List<UMLOperation> removedOperations = classDiff != null ? classDiff.getRemovedOperations() : new ArrayList<UMLOperation>();
+		List<UMLOperation> addedOperations = classDiff != null ? classDiff.getAddedOperations() : new ArrayList<UMLOperation>();
+		Map<String, String> parameterToArgumentMap = new LinkedHashMap<String, String>();
+		int mapped = 0;
+		for(; mapped<innerNodes1.size(); mapped++) {
+			CompositeStatementObject statement1 = innerNodes1.get(mapped);
+			CompositeStatementObject statement2 = innerNodes2.get(mapped);
+			double score = statement1.compositeChildMatchingScore(statement2, mappings, removedOperations, addedOperations);
+			CompositeStatementObjectMapping mapping = null;
+			if(score >= maximumCompositeChildMatchingScore(statement1)) {
+				mapping = createCompositeMapping(statement1, statement2, parameterToArgumentMap, score);
+			}
+			else {
+				mapping = findExactCompositeMapping(statement1, innerNodes2.subList(mapped, innerNodes2.size()), parameterToArgumentMap, true, removedOperations, addedOperations);
+				if(mapping == null || mapping.getFragment2() != statement2) {
+					break;
+				}
+			}
+			mappings.add(mapping);
+		}
+		innerNodes1.subList(0, mapped).clear();
+		innerNodes2.subList(0, mapped).clear();
+	}
+
+	private static double maximumCompositeChildMatchingScore(CompositeStatementObject statement) {
+		if(statement instanceof TryStatementObject) {
+			TryStatementObject tryStatement = (TryStatementObject)statement;
+			return 1 + tryStatement.getCatchClauses().size() + (tryStatement.getFinallyClause() != null ? 1 : 0);
+		}
+		return 1;
+	}
+
 	private CompositeStatementObjectMapping createCompositeMapping(CompositeStatementObject statement1,
 			CompositeStatementObject statement2, Map<String, String> parameterToArgumentMap, double score) {
-		CompositeStatementObjectMapping mapping = new CompositeStatementObjectMapping(statement1, statement2, operation1, operation2, score);
+		CompositeStatementObjectMapping mapping = new CompositeStatementObjectMapping(statement1, statement2,
+				getArgumentizedString(statement1), getArgumentizedString(statement2), operation1, operation2, score);
 		for(String key : parameterToArgumentMap.keySet()) {
 			String value = parameterToArgumentMap.get(key);
 			if(!key.equals(value) && ReplacementUtil.contains(statement2.getString(), key) && ReplacementUtil.contains(statement1.getString(), value)) {
@@ -896,46 +977,10 @@ public class UMLOperationBodyMapper implements Comparable<UMLOperationBodyMapper
 			Map<String, String> parameterToArgumentMap) {
 		if(leaves1.size() <= leaves2.size()) {
 			//exact string+depth matching - leaf nodes
-			for(ListIterator<? extends AbstractCodeFragment> leafIterator1 = leaves1.listIterator(); leafIterator1.hasNext();) {
-				AbstractCodeFragment leaf1 = leafIterator1.next();
-				TreeSet<LeafMapping> mappingSet = new TreeSet<LeafMapping>();
-				for(ListIterator<? extends AbstractCodeFragment> leafIterator2 = leaves2.listIterator(); leafIterator2.hasNext();) {
-					AbstractCodeFragment leaf2 = leafIterator2.next();
-					String argumentizedString1 = preprocessInput1(leaf1, leaf2);
-					String argumentizedString2 = preprocessInput2(leaf1, leaf2);
-					if((leaf1.getString().equals(leaf2.getString()) || argumentizedString1.equals(argumentizedString2)) && leaf1.getDepth() == leaf2.getDepth()) {
-						LeafMapping mapping = createLeafMapping(leaf1, leaf2, parameterToArgumentMap);
-						mappingSet.add(mapping);
-					}
-				}
-				if(!mappingSet.isEmpty()) {
-					LeafMapping minStatementMapping = mappingSet.first();
-					mappings.add(minStatementMapping);
-					leaves2.remove(minStatementMapping.getFragment2());
-					leafIterator1.remove();
-				}
-			}
+			processLeavesWithExactStringMatching(leaves1, leaves2, parameterToArgumentMap, true, true);
 			
 			//exact string matching - leaf nodes - finds moves to another level
-			for(ListIterator<? extends AbstractCodeFragment> leafIterator1 = leaves1.listIterator(); leafIterator1.hasNext();) {
-				AbstractCodeFragment leaf1 = leafIterator1.next();
-				TreeSet<LeafMapping> mappingSet = new TreeSet<LeafMapping>();
-				for(ListIterator<? extends AbstractCodeFragment> leafIterator2 = leaves2.listIterator(); leafIterator2.hasNext();) {
-					AbstractCodeFragment leaf2 = leafIterator2.next();
-					String argumentizedString1 = preprocessInput1(leaf1, leaf2);
-					String argumentizedString2 = preprocessInput2(leaf1, leaf2);
-					if((leaf1.getString().equals(leaf2.getString()) || argumentizedString1.equals(argumentizedString2))) {
-						LeafMapping mapping = createLeafMapping(leaf1, leaf2, parameterToArgumentMap);
-						mappingSet.add(mapping);
-					}
-				}
-				if(!mappingSet.isEmpty()) {
-					LeafMapping minStatementMapping = mappingSet.first();
-					mappings.add(minStatementMapping);
-					leaves2.remove(minStatementMapping.getFragment2());
-					leafIterator1.remove();
-				}
-			}
+			processLeavesWithExactStringMatching(leaves1, leaves2, parameterToArgumentMap, true, false);
 			
 			// exact matching with variable renames
 			for(ListIterator<? extends AbstractCodeFragment> leafIterator1 = leaves1.listIterator(); leafIterator1.hasNext();) {
@@ -943,6 +988,7 @@ public class UMLOperationBodyMapper implements Comparable<UMLOperationBodyMapper
 				TreeSet<LeafMapping> mappingSet = new TreeSet<LeafMapping>();
 				for(ListIterator<? extends AbstractCodeFragment> leafIterator2 = leaves2.listIterator(); leafIterator2.hasNext();) {
 					AbstractCodeFragment leaf2 = leafIterator2.next();
+					DetectionStatistics.count(Counter.LEAF_COMPARISONS);
 					
 					Set<Replacement> replacements = findReplacementsWithExactMatching(leaf1, leaf2, parameterToArgumentMap);
 					if (replacements != null) {
@@ -961,46 +1007,10 @@ public class UMLOperationBodyMapper implements Comparable<UMLOperationBodyMapper
 		}
 		else {
 			//exact string+depth matching - leaf nodes
-			for(ListIterator<? extends AbstractCodeFragment> leafIterator2 = leaves2.listIterator(); leafIterator2.hasNext();) {
-				AbstractCodeFragment leaf2 = leafIterator2.next();
-				TreeSet<LeafMapping> mappingSet = new TreeSet<LeafMapping>();
-				for(ListIterator<? extends AbstractCodeFragment> leafIterator1 = leaves1.listIterator(); leafIterator1.hasNext();) {
-					AbstractCodeFragment leaf1 = leafIterator1.next();
-					String argumentizedString1 = preprocessInput1(leaf1, leaf2);
-					String argumentizedString2 = preprocessInput2(leaf1, leaf2);
-					if((leaf1.getString().equals(leaf2.getString()) || argumentizedString1.equals(argumentizedString2)) && leaf1.getDepth() == leaf2.getDepth()) {
-						LeafMapping mapping = createLeafMapping(leaf1, leaf2, parameterToArgumentMap);
-						mappingSet.add(mapping);
-					}
-				}
-				if(!mappingSet.isEmpty()) {
-					LeafMapping minStatementMapping = mappingSet.first();
-					mappings.add(minStatementMapping);
-					leaves1.remove(minStatementMapping.getFragment1());
-					leafIterator2.remove();
-				}
-			}
+			processLeavesWithExactStringMatching(leaves1, leaves2, parameterToArgumentMap, false, true);
 			
 			//exact string matching - leaf nodes - finds moves to another level
-			for(ListIterator<? extends AbstractCodeFragment> leafIterator2 = leaves2.listIterator(); leafIterator2.hasNext();) {
-				AbstractCodeFragment leaf2 = leafIterator2.next();
-				TreeSet<LeafMapping> mappingSet = new TreeSet<LeafMapping>();
-				for(ListIterator<? extends AbstractCodeFragment> leafIterator1 = leaves1.listIterator(); leafIterator1.hasNext();) {
-					AbstractCodeFragment leaf1 = leafIterator1.next();
-					String argumentizedString1 = preprocessInput1(leaf1, leaf2);
-					String argumentizedString2 = preprocessInput2(leaf1, leaf2);
-					if((leaf1.getString().equals(leaf2.getString()) || argumentizedString1.equals(argumentizedString2))) {
-						LeafMapping mapping = createLeafMapping(leaf1, leaf2, parameterToArgumentMap);
-						mappingSet.add(mapping);
-					}
-				}
-				if(!mappingSet.isEmpty()) {
-					LeafMapping minStatementMapping = mappingSet.first();
-					mappings.add(minStatementMapping);
-					leaves1.remove(minStatementMapping.getFragment1());
-					leafIterator2.remove();
-				}
-			}
+			processLeavesWithExactStringMatching(leaves1, leaves2, parameterToArgumentMap, false, false);
 			
 			// exact matching with variable renames
 			for(ListIterator<? extends AbstractCodeFragment> leafIterator2 = leaves2.listIterator(); leafIterator2.hasNext();) {
@@ -1008,6 +1018,7 @@ public class UMLOperationBodyMapper implements Comparable<UMLOperationBodyMapper
 				TreeSet<LeafMapping> mappingSet = new TreeSet<LeafMapping>();
 				for(ListIterator<? extends AbstractCodeFragment> leafIterator1 = leaves1.listIterator(); leafIterator1.hasNext();) {
 					AbstractCodeFragment leaf1 = leafIterator1.next();
+					DetectionStatistics.count(Counter.LEAF_COMPARISONS);
 					
 					Set<Replacement> replacements = findReplacementsWithExactMatching(leaf1, leaf2, parameterToArgumentMap);
 					if (replacements != null) {
@@ -1026,8 +1037,86 @@ public class UMLOperationBodyMapper implements Comparable<UMLOperationBodyMapper
 		}
 	}
 
+	/**
+	 * Maps the leaves having the same string or argumentized string (and depth, if {@code sameDepth} is set).
+	 * Instead of comparing all pairs, the leaves of the inner list are indexed by their strings,
+	 * and the candidates found for each leaf of the outer list are verified and offered to the
+	 * {@code TreeSet} in list order, so that ties are broken exactly as in a pairwise comparison.
+	 */
+	private void processLeavesWithExactStringMatching(List<? extends AbstractCodeFragment> leaves1, List<? extends AbstractCodeFragment> leaves2,
+			Map<String, String> parameterToArgumentMap, boolean iterateLeaves1, boolean sameDepth) {
+		List<? extends AbstractCodeFragment> outerLeaves = iterateLeaves1 ? leaves1 : leaves2;
+		List<? extends AbstractCodeFragment> innerLeaves = iterateLeaves1 ? leaves2 : leaves1;
+		final Map<AbstractCodeFragment, Integer> innerLeafPositions = new IdentityHashMap<AbstractCodeFragment, Integer>();
+		Map<String, List<AbstractCodeFragment>> innerLeafIndex = new HashMap<String, List<AbstractCodeFragment>>();
+		for(AbstractCodeFragment innerLeaf : innerLeaves) {
+			innerLeafPositions.put(innerLeaf, innerLeafPositions.size());
+			for(String key : exactMatchingKeys(innerLeaf)) {
+				List<AbstractCodeFragment> indexedLeaves = innerLeafIndex.get(key);
+				if(indexedLeaves == null) {
+					indexedLeaves = new ArrayList<AbstractCodeFragment>();
+					innerLeafIndex.put(key, indexedLeaves);
+				}
+				indexedLeaves.add(innerLeaf);
+			}
+		}
+		Set<AbstractCodeFragment> mappedInnerLeaves = Collections.newSetFromMap(new IdentityHashMap<AbstractCodeFragment, Boolean>());
+		for(ListIterator<? extends AbstractCodeFragment> outerIterator = outerLeaves.listIterator(); outerIterator.hasNext();) {
+			AbstractCodeFragment outerLeaf = outerIterator.next();
+			Set<AbstractCodeFragment> candidates = Collections.newSetFromMap(new IdentityHashMap<AbstractCodeFragment, Boolean>());
+			for(String key : exactMatchingKeys(outerLeaf)) {
+				List<AbstractCodeFragment> indexedLeaves = innerLeafIndex.get(key);
+				if(indexedLeaves != null) {
+					candidates.addAll(indexedLeaves);
+				}
+			}
+			candidates.removeAll(mappedInnerLeaves);
+			if(candidates.isEmpty()) {
+				continue;
+			}
+			List<AbstractCodeFragment> sortedCandidates = new ArrayList<AbstractCodeFragment>(candidates);
+			Collections.sort(sortedCandidates, new Comparator<AbstractCodeFragment>() {
+				@Override
+				public int compare(AbstractCodeFragment f1, AbstractCodeFragment f2) {
+					return innerLeafPositions.get(f1).compareTo(innerLeafPositions.get(f2));
+				}
+			});
+			TreeSet<LeafMapping> mappingSet = new TreeSet<LeafMapping>();
+			for(AbstractCodeFragment innerLeaf : sortedCandidates) {
+				AbstractCodeFragment leaf1 = iterateLeaves1 ? outerLeaf : innerLeaf;
+				AbstractCodeFragment leaf2 = iterateLeaves1 ? innerLeaf : outerLeaf;
+				DetectionStatistics.count(Counter.LEAF_COMPARISONS);
+				if((equalStrings(leaf1, leaf2) || equalPreprocessedInputs(leaf1, leaf2)) &&
+						(!sameDepth || leaf1.getDepth() == leaf2.getDepth())) {
+					LeafMapping mapping = createLeafMapping(leaf1, leaf2, parameterToArgumentMap);
+					mappingSet.add(mapping);
+				}
+			}
+			if(!mappingSet.isEmpty()) {
+				LeafMapping minStatementMapping = mappingSet.first();
+				mappings.add(minStatementMapping);
+				AbstractCodeFragment mappedInnerLeaf = iterateLeaves1 ? minStatementMapping.getFragment2() : minStatementMapping.getFragment1();
+				innerLeaves.remove(mappedInnerLeaf);
+				mappedInnerLeaves.add(mappedInnerLeaf);
+				outerIterator.remove();
+			}
+		}
+	}
+
+	//all the strings preprocessInput may produce for a leaf, whatever the kind of the leaf it is compared with
+	private Set<String> exactMatchingKeys(AbstractCodeFragment leaf) {
+		Set<String> keys = new LinkedHashSet<String>();
+		keys.add(leaf.getString());
+		String argumentizedString = getArgumentizedString(leaf);
+		keys.add(argumentizedString);
+		if(leaf instanceof StatementObject) {
+			keys.add(stripReturn(argumentizedString));
+		}
+		return keys;
+	}
+
 	private LeafMapping createLeafMapping(AbstractCodeFragment leaf1, AbstractCodeFragment leaf2, Map<String, String> parameterToArgumentMap) {
-		LeafMapping mapping = new LeafMapping(leaf1, leaf2, operation1, operation2);
+		LeafMapping mapping = new LeafMapping(leaf1, leaf2, getArgumentizedString(leaf1), getArgumentizedString(leaf2), operation1, operation2);
 		for(String key : parameterToArgumentMap.keySet()) {
 			String value = parameterToArgumentMap.get(key);
 			if(!key.equals(value) && ReplacementUtil.contains(leaf2.getString(), key) && ReplacementUtil.contains(leaf1.getString(), value)) {
@@ -1037,6 +1126,15 @@ public class UMLOperationBodyMapper implements Comparable<UMLOperationBodyMapper
 		return mapping;
 	}
 
+	private boolean equalPreprocessedInputs(AbstractCodeFragment leaf1, AbstractCodeFragment leaf2) {
+		if((leaf1 instanceof StatementObject && leaf2 instanceof AbstractExpression) ||
+				(leaf1 instanceof AbstractExpression && leaf2 instanceof StatementObject)) {
+			return preprocessInput1(leaf1, leaf2).equals(preprocessInput2(leaf1, leaf2));
+		}
+		//preprocessInput leaves the argumentized strings unchanged
+		return equalArgumentizedStrings(leaf1, leaf2);
+	}
+
 	private String preprocessInput1(AbstractCodeFragment leaf1, AbstractCodeFragment leaf2) {
 		return preprocessInput(leaf1, leaf2);
 	}
@@ -1046,12 +1144,17 @@ public class UMLOperationBodyMapper implements Comparable<UMLOperationBodyMapper
 	}
 
 	private String preprocessInput(AbstractCodeFragment leaf1, AbstractCodeFragment leaf2) {
-		String argumentizedString = new String(leaf1.getArgumentizedString());
+		String argumentizedString = new String(getArgumentizedString(leaf1));
 		if (leaf1 instanceof StatementObject && leaf2 instanceof AbstractExpression) {
-			if (argumentizedString.startsWith("return ") && argumentizedString.endsWith(";\n")) {
-				argumentizedString = argumentizedString.substring("return ".length(),
-						argumentizedString.lastIndexOf(";\n"));
-			}
+			argumentizedString = stripReturn(argumentizedString);
+		}
+		return argumentizedString;
+	}
+
+	private static String stripReturn(String argumentizedString) {
+		if (argumentizedString.startsWith("return ") && argumentizedString.endsWith(";\n")) {
+			return argumentizedString.substring("return ".length(),
+					argumentizedString.lastIndexOf(";\n"));
 		}
 		return argumentizedString;
 	}
@@ -1729,8 +1832,14 @@ public class UMLOperationBodyMapper implements Comparable<UMLOperationBodyMapper
 		for(String s1 : strings1) {
 			TreeMap<Double, Replacement> replacementMap = new TreeMap<Double, Replacement>();
 			int minDistance = replacementInfo.getRawDistance();
+			String argumentizedString1 = replacementInfo.getArgumentizedString1();
+			int[] occurrences = ReplacementUtil.occurrences(argumentizedString1, s1);
+			//replacing a string that does not occur leaves the distance unchanged
+			if(occurrences.length == 0) {
+				continue;
+			}
 			for(String s2 : strings2) {
-				String temp = replacementInfo.getArgumentizedString1().replaceAll(Pattern.quote(s1), Matcher.quoteReplacement(s2));
+				String temp = ReplacementUtil.replaceOccurrences(argumentizedString1, occurrences, s1.length(), s2);
 				int distanceRaw = StringDistance.editDistance(temp, replacementInfo.getArgumentizedString2(), minDistance);
 				if(distanceRaw >= 0 && distanceRaw < replacementInfo.getRawDistance()) {
 					minDistance = distanceRaw;
@@ -1745,7 +1854,7 @@ public class UMLOperationBodyMapper implements Comparable<UMLOperationBodyMapper
 			if(!replacementMap.isEmpty()) {
 				Replacement replacement = replacementMap.firstEntry().getValue();
 				replacementInfo.addReplacement(replacement);
-				replacementInfo.setArgumentizedString1(replacementInfo.getArgumentizedString1().replaceAll(Pattern.quote(replacement.getBefore()), Matcher.quoteReplacement(replacement.getAfter())));
+				replacementInfo.setArgumentizedString1(ReplacementUtil.replaceOccurrences(argumentizedString1, occurrences, s1.length(), replacement.getAfter()));
 				if(replacementMap.firstEntry().getKey() == 0) {
 					break;
 				}
@@ -11,6 +11,9 @@ import org.eclipse.jdt.core.dom.VariableDeclarationStatement;
 
 import gr.uom.java.xmi.LocationInfo;
 import gr.uom.java.xmi.LocationInfoProvider;
+import gr.uom.java.xmi.ModelInput;
+import gr.uom.java.xmi.ModelOutput;
+import gr.uom.java.xmi.StringPool;
 import gr.uom.java.xmi.UMLType;
 import gr.uom.java.xmi.VariableDeclarationProvider;
 import gr.uom.java.xmi.diff.CodeRange;
@@ -26,10 +29,11 @@ public class VariableDeclaration implements LocationInfoProvider, VariableDeclar
 	private VariableScope scope;
 	
 	public VariableDeclaration(CompilationUnit cu, String filePath, VariableDeclarationFragment fragment) {
+		StringPool stringPool = StringPool.of(cu);
 		this.locationInfo = new LocationInfo(cu, filePath, fragment);
-		this.variableName = fragment.getName().getIdentifier();
+		this.variableName = stringPool.intern(fragment.getName().getIdentifier());
 		this.initializer = fragment.getInitializer() != null ? new AbstractExpression(cu, filePath, fragment.getInitializer()) : null;
-		this.type = UMLType.extractTypeObject(UMLType.getTypeName(extractType(fragment), fragment.getExtraDimensions()));
+		this.type = stringPool.extractTypeObject(UMLType.getTypeName(extractType(fragment), fragment.getExtraDimensions()));
 		this.variableDeclarationType = extractVariableDeclarationType(fragment);
 		ASTNode scopeNode = getScopeNode(fragment);
 		int startOffset = 0;
@@ -45,10 +49,11 @@ public class VariableDeclaration implements LocationInfoProvider, VariableDeclar
 	}
 
 	public VariableDeclaration(CompilationUnit cu, String filePath, SingleVariableDeclaration fragment) {
+		StringPool stringPool = StringPool.of(cu);
 		this.locationInfo = new LocationInfo(cu, filePath, fragment);
-		this.variableName = fragment.getName().getIdentifier();
+		this.variableName = stringPool.intern(fragment.getName().getIdentifier());
 		this.initializer = fragment.getInitializer() != null ? new AbstractExpression(cu, filePath, fragment.getInitializer()) : null;
-		this.type = UMLType.extractTypeObject(UMLType.getTypeName(extractType(fragment), fragment.getExtraDimensions()));
+		this.type = stringPool.extractTypeObject(UMLType.getTypeName(extractType(fragment), fragment.getExtraDimensions()));
 		this.variableDeclarationType = extractVariableDeclarationType(fragment);
 		int startOffset = fragment.getStartPosition();
 		ASTNode scopeNode = getScopeNode(fragment);
@@ -56,6 +61,31 @@ public class VariableDeclaration implements LocationInfoProvider, VariableDeclar
 		this.scope = new VariableScope(cu, filePath, startOffset, endOffset);
 	}
 
+	public VariableDeclaration(ModelInput input) {
+		this.variableName = input.readString();
+		this.type = input.readType();
+		this.locationInfo = input.readLocationInfo();
+		this.isParameter = input.readBoolean();
+		this.isAttribute = input.readBoolean();
+		this.variableDeclarationType = VariableDeclarationType.values()[input.readVarint()];
+		this.scope = new VariableScope(input);
+		this.initializer = input.readBoolean() ? new AbstractExpression(input) : null;
+	}
+
+	public void write(ModelOutput output) {
+		output.writeString(variableName);
+		output.writeType(type);
+		output.writeLocationInfo(locationInfo);
+		output.writeBoolean(isParameter);
+		output.writeBoolean(isAttribute);
+		output.writeVarint(variableDeclarationType.ordinal());
+		scope.write(output);
+		output.writeBoolean(initializer != null);
+		if(initializer != null) {
+			initializer.write(output);
+		}
+	}
+
 	public String getVariableName() {
 		return variableName;
 	}
@@ -2,6 +2,10 @@ package gr.uom.java.xmi.decomposition;
 
 import org.eclipse.jdt.core.dom.CompilationUnit;
 
+import gr.uom.java.xmi.LineTable;
+import gr.uom.java.xmi.ModelInput;
+import gr.uom.java.xmi.ModelOutput;
+
 public class VariableScope {
 	private String filePath;
 	private int startOffset;
@@ -19,22 +23,43 @@ public class VariableScope {
 		//this.startOffset = node.getStartPosition();
 		//this.endOffset = parent.getStartPosition() + parent.getLength();
 		
+		LineTable lineTable = LineTable.of(cu, filePath);
 		//lines are 1-based
-		this.startLine = cu.getLineNumber(startOffset);
-		this.endLine = cu.getLineNumber(endOffset);
+		this.startLine = lineTable.getLineNumber(startOffset);
+		this.endLine = lineTable.getLineNumber(endOffset);
 		//columns are 0-based
-		this.startColumn = cu.getColumnNumber(startOffset);
+		this.startColumn = lineTable.getColumnNumber(startOffset);
 		//convert to 1-based
 		if(this.startColumn > 0) {
 			this.startColumn += 1;
 		}
-		this.endColumn = cu.getColumnNumber(endOffset);
+		this.endColumn = lineTable.getColumnNumber(endOffset);
 		//convert to 1-based
 		if(this.endColumn > 0) {
 			this.endColumn += 1;
 		}
 	}
 
+	VariableScope(ModelInput input) {
+		this.filePath = input.readString();
+		this.startOffset = input.readVarint();
+		this.endOffset = input.readVarint();
+		this.startLine = input.readSignedVarint();
+		this.startColumn = input.readSignedVarint();
+		this.endLine = input.readSignedVarint();
+		this.endColumn = input.readSignedVarint();
+	}
+
+	void write(ModelOutput output) {
+		output.writeString(filePath);
+		output.writeVarint(startOffset);
+		output.writeVarint(endOffset);
+		output.writeSignedVarint(startLine);
+		output.writeSignedVarint(startColumn);
+		output.writeSignedVarint(endLine);
+		output.writeSignedVarint(endColumn);
+	}
+
 	@Override
 	public int hashCode() {
 		final int prime = 31;
@@ -1,6 +1,7 @@
 package gr.uom.java.xmi.decomposition;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -33,70 +34,99 @@ import org.eclipse.jdt.core.dom.ThisExpression;
 import org.eclipse.jdt.core.dom.VariableDeclarationFragment;
 import org.eclipse.jdt.core.dom.WildcardType;
 
+import gr.uom.java.xmi.StringPool;
+
 public class Visitor extends ASTVisitor {
 	public static final Pattern METHOD_INVOCATION_PATTERN = Pattern.compile("!(\\w|\\.)*@\\w*");
 	private CompilationUnit cu;
 	private String filePath;
-	private List<String> allIdentifiers = new ArrayList<String>();
-	private List<String> invokedMethodNames = new ArrayList<String>();
-	private List<String> types = new ArrayList<String>();
-	private Map<String, OperationInvocation> methodInvocationMap = new LinkedHashMap<String, OperationInvocation>();
-	private List<VariableDeclaration> variableDeclarations = new ArrayList<VariableDeclaration>();
-	private List<String> anonymousClassDeclarations = new ArrayList<String>();
-	private List<String> stringLiterals = new ArrayList<String>();
-	private List<String> numberLiterals = new ArrayList<String>();
-	private Map<String, ObjectCreation> creationMap = new LinkedHashMap<String, ObjectCreation>();
-	private List<String> infixOperators = new ArrayList<String>();
+	private StringPool stringPool;
+	//the collections are created on the first element, since most statements leave most of them empty
+	private List<String> allIdentifiers;
+	private List<String> invokedMethodNames;
+	private List<String> types;
+	private Map<String, OperationInvocation> methodInvocationMap;
+	private List<VariableDeclaration> variableDeclarations;
+	private List<String> anonymousClassDeclarations;
+	private List<String> stringLiterals;
+	private List<String> numberLiterals;
+	private Map<String, ObjectCreation> creationMap;
+	private List<String> infixOperators;
 
 	public Visitor(CompilationUnit cu, String filePath) {
 		this.cu = cu;
 		this.filePath = filePath;
+		this.stringPool = StringPool.of(cu);
+	}
+
+	private static <T> List<T> add(List<T> list, T element) {
+		if(list == null) {
+			list = new ArrayList<T>(4);
+		}
+		list.add(element);
+		return list;
+	}
+
+	private static <V> Map<String, V> put(Map<String, V> map, String key, V value) {
+		if(map == null) {
+			map = new LinkedHashMap<String, V>(4);
+		}
+		map.put(key, value);
+		return map;
+	}
+
+	private static <T> List<T> nonNull(List<T> list) {
+		return list != null ? list : Collections.<T>emptyList();
+	}
+
+	private static <V> Map<String, V> nonNull(Map<String, V> map) {
+		return map != null ? map : Collections.<String, V>emptyMap();
 	}
 
 	public boolean visit(InfixExpression node) {
-		infixOperators.add(node.getOperator().toString());
+		infixOperators = add(infixOperators, node.getOperator().toString());
 		return super.visit(node);
 	}
 
 	public boolean visit(ClassInstanceCreation node) {
-		creationMap.put(node.toString(), new ObjectCreation(cu, filePath, node));
+		creationMap = put(creationMap, stringPool.intern(node.toString()), new ObjectCreation(cu, filePath, node));
 		return super.visit(node);
 	}
 
 	public boolean visit(ArrayCreation node) {
-		creationMap.put(node.toString(), new ObjectCreation(cu, filePath, node));
+		creationMap = put(creationMap, stringPool.intern(node.toString()), new ObjectCreation(cu, filePath, node));
 		return super.visit(node);
 	}
 
 	public boolean visit(VariableDeclarationFragment node) {
 		if(!(node.getParent() instanceof LambdaExpression))
-			variableDeclarations.add(new VariableDeclaration(cu, filePath, node));
+			variableDeclarations = add(variableDeclarations, new VariableDeclaration(cu, filePath, node));
 		return super.visit(node);
 	}
 
 	public boolean visit(SingleVariableDeclaration node) {
-		variableDeclarations.add(new VariableDeclaration(cu, filePath, node));
+		variableDeclarations = add(variableDeclarations, new VariableDeclaration(cu, filePath, node));
 		return super.visit(node);
 	}
 
 	public boolean visit(AnonymousClassDeclaration node) {
-		anonymousClassDeclarations.add(node.toString());
+		anonymousClassDeclarations = add(anonymousClassDeclarations, stringPool.intern(node.toString()));
 		return super.visit(node);
 	}
 
 	public boolean visit(StringLiteral node) {
-		stringLiterals.add(node.toString());
+		stringLiterals = add(stringLiterals, stringPool.intern(node.toString()));
 		return super.visit(node);
 	}
 
 	public boolean visit(NumberLiteral node) {
-		numberLiterals.add(node.toString());
+		numberLiterals = add(numberLiterals, stringPool.intern(node.toString()));
 		return super.visit(node);
 	}
 
 	public boolean visit(ThisExpression node) {
 		if(!(node.getParent() instanceof FieldAccess)) {
-			allIdentifiers.add(node.toString());
+			allIdentifiers = add(allIdentifiers, stringPool.intern(node.toString()));
 		}
 		return super.visit(node);
 	}
@@ -104,47 +134,47 @@ public class Visitor extends ASTVisitor {
 	public boolean visit(SimpleName node) {
 		if(node.getParent() instanceof FieldAccess && ((FieldAccess)node.getParent()).getExpression() instanceof ThisExpression) {
 			FieldAccess fieldAccess = (FieldAccess)node.getParent();
-			allIdentifiers.add(fieldAccess.toString());
+			allIdentifiers = add(allIdentifiers, stringPool.intern(fieldAccess.toString()));
 		}
 		else {
-			allIdentifiers.add(node.getIdentifier());
+			allIdentifiers = add(allIdentifiers, stringPool.intern(node.getIdentifier()));
 		}
 		return super.visit(node);
 	}
 	
 	public boolean visit(ArrayType node) {
-		types.add(node.toString());
+		types = add(types, stringPool.intern(node.toString()));
 		return false;
 	}
 	
 	public boolean visit(ParameterizedType node) {
-		types.add(node.toString());
+		types = add(types, stringPool.intern(node.toString()));
 		return false;
 	}
 	
 	public boolean visit(WildcardType node) {
-		types.add(node.toString());
+		types = add(types, stringPool.intern(node.toString()));
 		return false;
 	}
 	
 	public boolean visit(QualifiedType node) {
-		types.add(node.toString());
+		types = add(types, stringPool.intern(node.toString()));
 		return false;
 	}
 	
 	public boolean visit(PrimitiveType node) {
-		types.add(node.toString());
+		types = add(types, stringPool.intern(node.toString()));
 		return false;
 	}
 	
 	public boolean visit(SimpleType node) {
 		Name name = node.getName();
-		types.add(name.getFullyQualifiedName());
+		types = add(types, stringPool.intern(name.getFullyQualifiedName()));
 		return false;
 	}
 	
 	public boolean visit(MethodInvocation node) {
-		invokedMethodNames.add(node.getName().getIdentifier());
+		invokedMethodNames = add(invokedMethodNames, node.getName().getIdentifier());
 		String methodInvocation = null;
 		if(METHOD_INVOCATION_PATTERN.matcher(node.toString()).matches()) {
 			methodInvocation = processMethodInvocation(node);
@@ -153,15 +183,16 @@ public class Visitor extends ASTVisitor {
 			methodInvocation = node.toString();
 		}
 		boolean builderPatternChain = false;
-		for(String key : methodInvocationMap.keySet()) {
-			OperationInvocation invocation = methodInvocationMap.get(key);
-			if(key.startsWith(methodInvocation) && invocation.numberOfSubExpressions() > 15) {
-				builderPatternChain = true;
-				break;
+		if(methodInvocationMap != null) {
+			for(Map.Entry<String, OperationInvocation> entry : methodInvocationMap.entrySet()) {
+				if(entry.getKey().startsWith(methodInvocation) && entry.getValue().numberOfSubExpressions() > 15) {
+					builderPatternChain = true;
+					break;
+				}
 			}
 		}
 		if(!builderPatternChain) {
-			methodInvocationMap.put(methodInvocation, new OperationInvocation(cu, filePath, node));
+			methodInvocationMap = put(methodInvocationMap, stringPool.intern(methodInvocation), new OperationInvocation(cu, filePath, node));
 		}
 		return super.visit(node);
 	}
@@ -195,18 +226,18 @@ public class Visitor extends ASTVisitor {
 	}
 	
 	public boolean visit(SuperMethodInvocation node) {
-		invokedMethodNames.add(node.getName().getIdentifier());
-		methodInvocationMap.put(node.toString(), new OperationInvocation(cu, filePath, node));
+		invokedMethodNames = add(invokedMethodNames, node.getName().getIdentifier());
+		methodInvocationMap = put(methodInvocationMap, stringPool.intern(node.toString()), new OperationInvocation(cu, filePath, node));
 		return super.visit(node);
 	}
 
 	public boolean visit(QualifiedName node) {
 		Name qualifier = node.getQualifier();
 		if(Character.isUpperCase(qualifier.getFullyQualifiedName().charAt(0))) {
-			types.add(qualifier.getFullyQualifiedName());
+			types = add(types, stringPool.intern(qualifier.getFullyQualifiedName()));
 		}
 		if(node.getName().getIdentifier().equals("length")) {
-			allIdentifiers.add(node.toString());
+			allIdentifiers = add(allIdentifiers, stringPool.intern(node.toString()));
 		}
 		return super.visit(node);
 	}
@@ -214,47 +245,58 @@ public class Visitor extends ASTVisitor {
 	public boolean visit(CastExpression node) {
 		Expression castExpression = node.getExpression();
 		if(castExpression instanceof SimpleName) {
-			allIdentifiers.add(node.toString());
+			allIdentifiers = add(allIdentifiers, stringPool.intern(node.toString()));
 		}
 		return super.visit(node);
 	}
 
+	//the empty collections returned by the getters are shared and immutable
 	public Map<String, OperationInvocation> getMethodInvocationMap() {
-		return this.methodInvocationMap;
+		return nonNull(methodInvocationMap);
 	}
 
 	public List<VariableDeclaration> getVariableDeclarations() {
-		return variableDeclarations;
+		return nonNull(variableDeclarations);
 	}
 
 	public List<String> getTypes() {
-		return types;
+		return nonNull(types);
 	}
 
 	public List<String> getAnonymousClassDeclarations() {
-		return anonymousClassDeclarations;
+		return nonNull(anonymousClassDeclarations);
 	}
 
 	public List<String> getStringLiterals() {
-		return stringLiterals;
+		return nonNull(stringLiterals);
 	}
 
 	public List<String> getNumberLiterals() {
-		return numberLiterals;
+		return nonNull(numberLiterals);
 	}
 
 	public Map<String, ObjectCreation> getCreationMap() {
-		return creationMap;
+		return nonNull(creationMap);
 	}
 
 	public List<String> getInfixOperators() {
-		return infixOperators;
+		return nonNull(infixOperators);
 	}
 
 	public List<String> getVariables() {
+		if(allIdentifiers == null) {
+			return Collections.emptyList();
+		}
+		if(invokedMethodNames == null && types == null) {
+			return allIdentifiers;
+		}
 		List<String> variables = new ArrayList<String>(this.allIdentifiers);
-		variables.removeAll(this.invokedMethodNames);
-		variables.removeAll(this.types);
+		if(invokedMethodNames != null) {
+			variables.removeAll(this.invokedMethodNames);
+		}
+		if(types != null) {
+			variables.removeAll(this.types);
+		}
 		return variables;
 	}
 }
@@ -0,0 +1,154 @@
+package gr.uom.java.xmi.diff;
+
+import gr.uom.java.xmi.UMLOperation;
+import gr.uom.java.xmi.decomposition.AbstractStatement;
+import gr.uom.java.xmi.decomposition.CompositeStatementObject;
+import gr.uom.java.xmi.decomposition.OperationBody;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Locality-sensitive hash index of operations, used to find the operations that are likely to be matched by a body mapper
+ * without building a mapper for every pair. Each operation is described by the set of tokens in its statements, and
+ * summarized by a MinHash signature whose rows are split in bands. Two operations whose token sets have a Jaccard similarity
+ * of s share the bucket of at least one band with probability 1-(1-s^ROWS)^BANDS, which is above 0.5 for s = 0.4
+ * and above 0.99 for s = 0.7.
+ */
+public class OperationSimilarityIndex {
+	private static final int BANDS = 32;
+	private static final int ROWS = 4;
+	private static final long[] SEEDS = new long[BANDS * ROWS];
+	static {
+		long seed = 0x2545F4914F6CDD1DL;
+		for(int i = 0; i < SEEDS.length; i++) {
+			seed += 0x9E3779B97F4A7C15L;
+			SEEDS[i] = mix(seed);
+		}
+	}
+
+	private final List<Map<Long, List<UMLOperation>>> bands;
+	//operations with statements but no tokens cannot be placed in a bucket, so they are candidates for every operation
+	private final List<UMLOperation> unhashedOperations;
+
+	public OperationSimilarityIndex(List<UMLOperation> operations) {
+		this.bands = new ArrayList<Map<Long, List<UMLOperation>>>(BANDS);
+		for(int b = 0; b < BANDS; b++) {
+			bands.add(new HashMap<Long, List<UMLOperation>>());
+		}
+		this.unhashedOperations = new ArrayList<UMLOperation>();
+		for(UMLOperation operation : operations) {
+			if(!hasStatements(operation)) {
+				//a body mapper does not match any statement of an operation without statements
+				continue;
+			}
+			long[] bandKeys = bandKeys(operation);
+			if(bandKeys == null) {
+				unhashedOperations.add(operation);
+				continue;
+			}
+			for(int b = 0; b < BANDS; b++) {
+				Map<Long, List<UMLOperation>> buckets = bands.get(b);
+				List<UMLOperation> bucket = buckets.get(bandKeys[b]);
+				if(bucket == null) {
+					bucket = new ArrayList<UMLOperation>(1);
+					buckets.put(bandKeys[b], bucket);
+				}
+				bucket.add(operation);
+			}
+		}
+	}
+
+	/**
+	 * @return the indexed operations sharing a bucket with {@code operation}, or null if it cannot be hashed
+	 * and must be compared with all indexed operations. Operations without statements are neither indexed nor given
+	 * candidates.
+	 */
+	public Set<UMLOperation> candidates(UMLOperation operation) {
+		if(!hasStatements(operation)) {
+			return Collections.emptySet();
+		}
+		long[] bandKeys = bandKeys(operation);
+		if(bandKeys == null) {
+			return null;
+		}
+		Set<UMLOperation> candidates = Collections.newSetFromMap(new IdentityHashMap<UMLOperation, Boolean>());
+		for(int b = 0; b < BANDS; b++) {
+			List<UMLOperation> bucket = bands.get(b).get(bandKeys[b]);
+			if(bucket != null) {
+				candidates.addAll(bucket);
+			}
+		}
+		candidates.addAll(unhashedOperations);
+		return candidates;
+	}
+
+	private static boolean hasStatements(UMLOperation operation) {
+		OperationBody body = operation.getBody();
+		return body != null && !body.getCompositeStatement().getStatements().isEmpty();
+	}
+
+	private static long[] bandKeys(UMLOperation operation) {
+		Set<String> tokens = new HashSet<String>();
+		CompositeStatementObject composite = operation.getBody().getCompositeStatement();
+		for(AbstractStatement statement : composite.getLeaves()) {
+			addTokens(statement.getString(), tokens);
+		}
+		for(AbstractStatement statement : composite.getInnerNodes()) {
+			addTokens(statement.getString(), tokens);
+		}
+		if(tokens.isEmpty()) {
+			return null;
+		}
+		long[] signature = new long[SEEDS.length];
+		for(int i = 0; i < signature.length; i++) {
+			signature[i] = Long.MAX_VALUE;
+		}
+		for(String token : tokens) {
+			long hash = token.hashCode();
+			for(int i = 0; i < signature.length; i++) {
+				long value = mix(hash ^ SEEDS[i]);
+				if(value < signature[i]) {
+					signature[i] = value;
+				}
+			}
+		}
+		long[] bandKeys = new long[BANDS];
+		for(int b = 0; b < BANDS; b++) {
+			long key = 0;
+			for(int r = 0; r < ROWS; r++) {
+				key = mix(key ^ signature[b * ROWS + r]);
+			}
+			bandKeys[b] = key;
+		}
+		return bandKeys;
+	}
+
+	private static void addTokens(String statement, Set<String> tokens) {
+		int start = -1;
+		for(int i = 0; i <= statement.length(); i++) {
+			if(i < statement.length() && Character.isJavaIdentifierPart(statement.charAt(i))) {
+				if(start == -1) {
+					start = i;
+				}
+			}
+			else if(start != -1) {
+				tokens.add(statement.substring(start, i));
+				start = -1;
+			}
+		}
+	}
+
+	//finalizer of SplitMix64
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+}
@@ -1,14 +1,252 @@
 package gr.uom.java.xmi.diff;
 
-import org.apache.commons.lang3.StringUtils;
+import java.util.Arrays;
 
+import org.refactoringminer.api.DetectionStatistics;
+import org.refactoringminer.api.DetectionStatistics.Counter;
+
+/**
+ * Levenshtein distance computed with the bit-vector algorithm of Myers (in the formulation of Hyyrö),
+ * processing 64 characters of the shorter string per machine word. Strings longer than 64 characters
+ * are split into blocks of 64 characters. The working memory is kept in thread-local buffers,
+ * so a distance computation does not allocate.
+ */
 public class StringDistance {
-	
+	private static final int WORD_SIZE = 64;
+
+	private static final ThreadLocal<Scratch> SCRATCH = new ThreadLocal<Scratch>() {
+		@Override
+		protected Scratch initialValue() {
+			return new Scratch();
+		}
+	};
+
+	/**
+	 * @return the edit distance between the two strings, or -1 if it is greater than {@code threshold}
+	 */
 	public static int editDistance(String a, String b, int threshold) {
-		return StringUtils.getLevenshteinDistance(a, b, threshold);
+		if(a == null || b == null) {
+			throw new IllegalArgumentException("Strings must not be null");
+		}
+		if(threshold < 0) {
+			throw new IllegalArgumentException("Threshold must not be negative");
+		}
+		return distance(a, b, threshold);
 	}
 
 	public static int editDistance(String a, String b) {
-		return StringUtils.getLevenshteinDistance(a, b);
+		if(a == null || b == null) {
+			throw new IllegalArgumentException("Strings must not be null");
+		}
+		return distance(a, b, Integer.MAX_VALUE);
+	}
+
+	private static int distance(String a, String b, int threshold) {
+		DetectionStatistics.count(Counter.EDIT_DISTANCE_CALLS);
+		//the shorter string is encoded in the bit vectors
+		String pattern = a.length() <= b.length() ? a : b;
+		String text = a.length() <= b.length() ? b : a;
+		int m = pattern.length();
+		int n = text.length();
+		if(n - m > threshold) {
+			return -1;
+		}
+		if(m == 0) {
+			return n;
+		}
+		if(pattern.equals(text)) {
+			return 0;
+		}
+		Scratch scratch = SCRATCH.get();
+		int blocks = (m + WORD_SIZE - 1) / WORD_SIZE;
+		try {
+			scratch.encode(pattern, blocks);
+			return blocks == 1 ? singleWordDistance(scratch, text, m, threshold) : multiWordDistance(scratch, text, m, blocks, threshold);
+		}
+		finally {
+			scratch.clear(pattern);
+		}
+	}
+
+	private static int singleWordDistance(Scratch scratch, String text, int m, int threshold) {
+		long[] peq = scratch.peq;
+		long pv = -1L;
+		long mv = 0L;
+		long high = 1L << (m - 1);
+		int score = m;
+		int n = text.length();
+		for(int j = 0; j < n; j++) {
+			long eq = peq[scratch.indexOf(text.charAt(j))];
+			long xv = eq | mv;
+			long xh = (((eq & pv) + pv) ^ pv) | eq;
+			long ph = mv | ~(xh | pv);
+			long mh = pv & xh;
+			if((ph & high) != 0) {
+				score++;
+			}
+			else if((mh & high) != 0) {
+				score--;
+			}
+			//the first row of the matrix increases by one in each column
+			ph = (ph << 1) | 1L;
+			mh = mh << 1;
+			pv = mh | ~(xv | ph);
+			mv = ph & xv;
+			//the distance can decrease by at most one per remaining column
+			if(score - (n - j - 1) > threshold) {
+				return -1;
+			}
+		}
+		return score;
+	}
+
+	private static int multiWordDistance(Scratch scratch, String text, int m, int blocks, int threshold) {
+		long[] peq = scratch.peq;
+		long[] pvs = scratch.pv;
+		long[] mvs = scratch.mv;
+		for(int b = 0; b < blocks; b++) {
+			pvs[b] = -1L;
+			mvs[b] = 0L;
+		}
+		long lastHigh = 1L << ((m - 1) % WORD_SIZE);
+		int score = m;
+		int n = text.length();
+		for(int j = 0; j < n; j++) {
+			int offset = scratch.indexOf(text.charAt(j)) * blocks;
+			int hin = 1;
+			for(int b = 0; b < blocks; b++) {
+				long high = b == blocks - 1 ? lastHigh : Long.MIN_VALUE;
+				long pv = pvs[b];
+				long mv = mvs[b];
+				long eq = peq[offset + b];
+				long xv = eq | mv;
+				if(hin < 0) {
+					eq |= 1L;
+				}
+				long xh = (((eq & pv) + pv) ^ pv) | eq;
+				long ph = mv | ~(xh | pv);
+				long mh = pv & xh;
+				int hout = 0;
+				if((ph & high) != 0) {
+					hout = 1;
+				}
+				else if((mh & high) != 0) {
+					hout = -1;
+				}
+				ph = ph << 1;
+				mh = mh << 1;
+				if(hin < 0) {
+					mh |= 1L;
+				}
+				else if(hin > 0) {
+					ph |= 1L;
+				}
+				pvs[b] = mh | ~(xv | ph);
+				mvs[b] = ph & xv;
+				hin = hout;
+			}
+			score += hin;
+			if(score - (n - j - 1) > threshold) {
+				return -1;
+			}
+		}
+		return score;
+	}
+
+	/**
+	 * Per-thread buffers holding the match vectors of the encoded string. Each distinct character of the encoded
+	 * string gets a slot (slot 0 is all zeros, for the characters it does not contain); Latin-1 characters are
+	 * mapped to their slot through a direct table and all other characters through an open-addressing table.
+	 */
+	private static class Scratch {
+		private final int[] latinSlots = new int[256];
+		private char[] otherKeys = new char[64];
+		private int[] otherSlots = new int[64];
+		private int[] usedOtherPositions = new int[32];
+		private int usedOthers;
+		private long[] peq = new long[64];
+		private long[] pv = new long[4];
+		private long[] mv = new long[4];
+		private int slots;
+
+		private void encode(String pattern, int blocks) {
+			int m = pattern.length();
+			slots = 1;
+			if(pv.length < blocks) {
+				pv = new long[blocks];
+				mv = new long[blocks];
+			}
+			if(otherKeys.length < 2 * m) {
+				int capacity = Integer.highestOneBit(2 * m) << 1;
+				otherKeys = new char[capacity];
+				otherSlots = new int[capacity];
+			}
+			if(usedOtherPositions.length < m) {
+				usedOtherPositions = new int[m];
+			}
+			if(peq.length < (m + 1) * blocks) {
+				peq = new long[(m + 1) * blocks];
+			}
+			for(int i = 0; i < m; i++) {
+				int slot = slotOf(pattern.charAt(i));
+				peq[slot * blocks + i / WORD_SIZE] |= 1L << (i % WORD_SIZE);
+			}
+		}
+
+		private int slotOf(char c) {
+			if(c < 256) {
+				if(latinSlots[c] == 0) {
+					latinSlots[c] = newSlot();
+				}
+				return latinSlots[c];
+			}
+			int mask = otherKeys.length - 1;
+			int i = c & mask;
+			while(otherSlots[i] != 0) {
+				if(otherKeys[i] == c) {
+					return otherSlots[i];
+				}
+				i = (i + 1) & mask;
+			}
+			otherKeys[i] = c;
+			otherSlots[i] = newSlot();
+			usedOtherPositions[usedOthers++] = i;
+			return otherSlots[i];
+		}
+
+		private int newSlot() {
+			return slots++;
+		}
+
+		private int indexOf(char c) {
+			if(c < 256) {
+				return latinSlots[c];
+			}
+			int mask = otherKeys.length - 1;
+			int i = c & mask;
+			while(otherSlots[i] != 0) {
+				if(otherKeys[i] == c) {
+					return otherSlots[i];
+				}
+				i = (i + 1) & mask;
+			}
+			return 0;
+		}
+
+		private void clear(String pattern) {
+			int m = pattern.length();
+			for(int i = 0; i < m; i++) {
+				char c = pattern.charAt(i);
+				if(c < 256) {
+					latinSlots[c] = 0;
+				}
+			}
+			for(int i = 0; i < usedOthers; i++) {
+				otherSlots[usedOtherPositions[i]] = 0;
+			}
+			usedOthers = 0;
+			//the buffers may be smaller than the pattern needs if encoding it failed
+			Arrays.fill(peq, 0, Math.min(peq.length, slots * ((m + WORD_SIZE - 1) / WORD_SIZE)), 0L);
+		}
 	}
 }
@@ -10,8 +10,12 @@ import java.util.ListIterator;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
 
+import org.refactoringminer.api.DetectionStatistics;
 import org.refactoringminer.api.Refactoring;
+import org.refactoringminer.api.RefactoringType;
 import org.refactoringminer.util.PrefixSuffixUtils;
 
 import gr.uom.java.xmi.UMLAnonymousClass;
@@ -58,6 +62,8 @@ public abstract class UMLClassBaseDiff implements Comparable<UMLClassBaseDiff> {
 	private List<Refactoring> refactorings;
 	private Set<MethodInvocationReplacement> consistentMethodInvocationRenames;
 	private Set<CandidateAttributeRefactoring> candidateAttributeRenames = new LinkedHashSet<CandidateAttributeRefactoring>();
+	//null when all refactoring types are considered
+	private Set<RefactoringType> refactoringTypesToConsider;
 
 	public UMLClassBaseDiff(UMLClass originalClass, UMLClass nextClass) {
 		this.originalClass = originalClass;
@@ -329,6 +335,23 @@ public abstract class UMLClassBaseDiff implements Comparable<UMLClassBaseDiff> {
 		return candidateAttributeRenames;
 	}
 
+	/**
+	 * Restricts {@link #getRefactorings()} to the analysis that can lead to a refactoring of the given types.
+	 */
+	public void setRefactoringTypesToConsider(Set<RefactoringType> refactoringTypesToConsider) {
+		this.refactoringTypesToConsider = refactoringTypesToConsider;
+	}
+
+	static boolean considers(Set<RefactoringType> refactoringTypesToConsider, RefactoringType... types) {
+		if(refactoringTypesToConsider == null)
+			return true;
+		for(RefactoringType type : types) {
+			if(refactoringTypesToConsider.contains(type))
+				return true;
+		}
+		return false;
+	}
+
 	public boolean containsOperationWithTheSameSignature(UMLOperation operation) {
 		for(UMLOperation originalOperation : originalClass.getOperations()) {
 			if(originalOperation.equalSignature(operation))
@@ -420,6 +443,11 @@ public abstract class UMLClassBaseDiff implements Comparable<UMLClassBaseDiff> {
 				}
 			}
 		}
+		//the consistent renames are reported as attribute and variable renames, or kept as candidates for renames across classes
+		if(!considers(refactoringTypesToConsider, RefactoringType.RENAME_ATTRIBUTE, RefactoringType.REPLACE_ATTRIBUTE, RefactoringType.MOVE_RENAME_ATTRIBUTE,
+				RefactoringType.RENAME_VARIABLE, RefactoringType.RENAME_PARAMETER, RefactoringType.PARAMETERIZE_VARIABLE, RefactoringType.REPLACE_VARIABLE_WITH_ATTRIBUTE)) {
+			return refactorings;
+		}
 		Set<Replacement> renames = map.keySet();
 		Set<Replacement> allConsistentRenames = new LinkedHashSet<Replacement>();
 		Set<Replacement> allInconsistentRenames = new LinkedHashSet<Replacement>();
@@ -992,41 +1020,67 @@ public abstract class UMLClassBaseDiff implements Comparable<UMLClassBaseDiff> {
 
 	private void checkForInlinedOperations() {
 		List<UMLOperation> operationsToBeRemoved = new ArrayList<UMLOperation>();
-		for(Iterator<UMLOperation> removedOperationIterator = removedOperations.iterator(); removedOperationIterator.hasNext();) {
-			UMLOperation removedOperation = removedOperationIterator.next();
-			for(UMLOperationBodyMapper mapper : getOperationBodyMapperList()) {
-				if(!mapper.getNonMappedLeavesT2().isEmpty() || !mapper.getNonMappedInnerNodesT2().isEmpty() ||
-					!mapper.getReplacementsInvolvingMethodInvocation().isEmpty()) {
-					Set<OperationInvocation> operationInvocations = mapper.getOperation1().getAllOperationInvocations();
-					OperationInvocation removedOperationInvocation = null;
-					for(OperationInvocation invocation : operationInvocations) {
-						if(invocation.matchesOperation(removedOperation)) {
-							removedOperationInvocation = invocation;
-							break;
-						}
-					}
-					if(removedOperationInvocation != null && !invocationMatchesWithAddedOperation(removedOperationInvocation, mapper.getOperation2().getAllOperationInvocations())) {
-						List<String> arguments = removedOperationInvocation.getArguments();
-						List<String> parameters = removedOperation.getParameterNameList();
-						Map<String, String> parameterToArgumentMap = new LinkedHashMap<String, String>();
-						//special handling for methods with varargs parameter for which no argument is passed in the matching invocation
-						int size = Math.min(arguments.size(), parameters.size());
-						for(int i=0; i<size; i++) {
-							parameterToArgumentMap.put(parameters.get(i), arguments.get(i));
-						}
-						UMLOperationBodyMapper operationBodyMapper = new UMLOperationBodyMapper(removedOperation, mapper, parameterToArgumentMap);
-						operationBodyMapper.getMappings();
-						if(inlineMatchCondition(operationBodyMapper)) {
-							InlineOperationRefactoring inlineOperationRefactoring =	new InlineOperationRefactoring(operationBodyMapper, mapper.getOperation1(), removedOperationInvocation);
-							refactorings.add(inlineOperationRefactoring);
-							mapper.addAdditionalMapper(operationBodyMapper);
-							operationsToBeRemoved.add(removedOperation);
-						}
+		final List<UMLOperation> removedOperations = new ArrayList<UMLOperation>(this.removedOperations);
+		final List<UMLOperationBodyMapper> mappers = getOperationBodyMapperList();
+		final CandidateMapper[][] candidates = new CandidateMapper[removedOperations.size()][mappers.size()];
+		List<RecursiveAction> tasks = new ArrayList<RecursiveAction>();
+		for(int j=0; j<mappers.size(); j++) {
+			final int mapperIndex = j;
+			tasks.add(new RecursiveAction() {
+				@Override
+				protected void compute() {
+					for(int i=0; i<removedOperations.size(); i++) {
+						candidates[i][mapperIndex] = inlinedOperationCandidate(removedOperations.get(i), mappers.get(mapperIndex));
 					}
 				}
+			});
+		}
+		invokeAll(tasks);
+		for(int i=0; i<removedOperations.size(); i++) {
+			UMLOperation removedOperation = removedOperations.get(i);
+			for(int j=0; j<mappers.size(); j++) {
+				CandidateMapper candidate = candidates[i][j];
+				if(candidate != null) {
+					UMLOperationBodyMapper mapper = mappers.get(j);
+					InlineOperationRefactoring inlineOperationRefactoring =	new InlineOperationRefactoring(candidate.mapper, mapper.getOperation1(), candidate.invocation);
+					refactorings.add(inlineOperationRefactoring);
+					mapper.addAdditionalMapper(candidate.mapper);
+					operationsToBeRemoved.add(removedOperation);
+				}
 			}
 		}
-		removedOperations.removeAll(operationsToBeRemoved);
+		this.removedOperations.removeAll(operationsToBeRemoved);
+	}
+
+	//the mapper of an inline candidate changes the non-mapped nodes of the mapper it extends, so the candidates of the same mapper are evaluated in order
+	private CandidateMapper inlinedOperationCandidate(UMLOperation removedOperation, UMLOperationBodyMapper mapper) {
+		if(!mapper.getNonMappedLeavesT2().isEmpty() || !mapper.getNonMappedInnerNodesT2().isEmpty() ||
+			!mapper.getReplacementsInvolvingMethodInvocation().isEmpty()) {
+			Set<OperationInvocation> operationInvocations = mapper.getOperation1().getAllOperationInvocations();
+			OperationInvocation removedOperationInvocation = null;
+			for(OperationInvocation invocation : operationInvocations) {
+				if(invocation.matchesOperation(removedOperation)) {
+					removedOperationInvocation = invocation;
+					break;
+				}
+			}
+			if(removedOperationInvocation != null && !invocationMatchesWithAddedOperation(removedOperationInvocation, mapper.getOperation2().getAllOperationInvocations())) {
+				List<String> arguments = removedOperationInvocation.getArguments();
+				List<String> parameters = removedOperation.getParameterNameList();
+				Map<String, String> parameterToArgumentMap = new LinkedHashMap<String, String>();
+				//special handling for methods with varargs parameter for which no argument is passed in the matching invocation
+				int size = Math.min(arguments.size(), parameters.size());
+				for(int i=0; i<size; i++) {
+					parameterToArgumentMap.put(parameters.get(i), arguments.get(i));
+				}
+				UMLOperationBodyMapper operationBodyMapper = new UMLOperationBodyMapper(removedOperation, mapper, parameterToArgumentMap);
+				operationBodyMapper.getMappings();
+				if(inlineMatchCondition(operationBodyMapper)) {
+					return new CandidateMapper(operationBodyMapper, null, removedOperationInvocation);
+				}
+			}
+		}
+		return null;
 	}
 
 	private boolean inlineMatchCondition(UMLOperationBodyMapper operationBodyMapper) {
@@ -1052,63 +1106,133 @@ public abstract class UMLClassBaseDiff implements Comparable<UMLClassBaseDiff> {
 
 	private void checkForExtractedOperations() {
 		List<UMLOperation> operationsToBeRemoved = new ArrayList<UMLOperation>();
-		for(Iterator<UMLOperation> addedOperationIterator = addedOperations.iterator(); addedOperationIterator.hasNext();) {
-			UMLOperation addedOperation = addedOperationIterator.next();
-			for(UMLOperationBodyMapper mapper : getOperationBodyMapperList()) {
-				if(!mapper.getNonMappedLeavesT1().isEmpty() || !mapper.getNonMappedInnerNodesT1().isEmpty() ||
-					!mapper.getReplacementsInvolvingMethodInvocation().isEmpty()) {
-					Set<OperationInvocation> operationInvocations = mapper.getOperation2().getAllOperationInvocations();
-					OperationInvocation addedOperationInvocation = null;
-					for(OperationInvocation invocation : operationInvocations) {
-						if(invocation.matchesOperation(addedOperation)) {
-							addedOperationInvocation = invocation;
-							break;
+		final List<UMLOperation> addedOperations = new ArrayList<UMLOperation>(this.addedOperations);
+		final List<UMLOperationBodyMapper> mappers = getOperationBodyMapperList();
+		final CandidateMapper[][] candidates = new CandidateMapper[addedOperations.size()][mappers.size()];
+		List<RecursiveAction> tasks = new ArrayList<RecursiveAction>();
+		for(int j=0; j<mappers.size(); j++) {
+			final int mapperIndex = j;
+			tasks.add(new RecursiveAction() {
+				@Override
+				protected void compute() {
+					for(int i=0; i<addedOperations.size(); i++) {
+						candidates[i][mapperIndex] = extractedOperationCandidate(addedOperations.get(i), mappers.get(mapperIndex));
+					}
+				}
+			});
+		}
+		invokeAll(tasks);
+		for(int i=0; i<addedOperations.size(); i++) {
+			UMLOperation addedOperation = addedOperations.get(i);
+			for(int j=0; j<mappers.size(); j++) {
+				CandidateMapper candidate = candidates[i][j];
+				if(candidate != null) {
+					UMLOperationBodyMapper mapper = mappers.get(j);
+					ExtractOperationRefactoring extractOperationRefactoring = null;
+					if(candidate.delegateMethod == null) {
+						extractOperationRefactoring = new ExtractOperationRefactoring(candidate.mapper, mapper.getOperation2(), candidate.invocation);
+					}
+					else {
+						extractOperationRefactoring = new ExtractOperationRefactoring(candidate.mapper, addedOperation,
+								mapper.getOperation1(), mapper.getOperation2(), candidate.invocation);
+					}
+					refactorings.add(extractOperationRefactoring);
+					refactorings.addAll(candidate.mapper.getRefactorings());
+					mapper.addAdditionalMapper(candidate.mapper);
+					operationsToBeRemoved.add(addedOperation);
+				}
+			}
+		}
+		this.addedOperations.removeAll(operationsToBeRemoved);
+	}
+
+	//the mapper of an extract candidate changes the non-mapped nodes of the mapper it extends, so the candidates of the same mapper are evaluated in order
+	private CandidateMapper extractedOperationCandidate(UMLOperation addedOperation, UMLOperationBodyMapper mapper) {
+		if(!mapper.getNonMappedLeavesT1().isEmpty() || !mapper.getNonMappedInnerNodesT1().isEmpty() ||
+			!mapper.getReplacementsInvolvingMethodInvocation().isEmpty()) {
+			Set<OperationInvocation> operationInvocations = mapper.getOperation2().getAllOperationInvocations();
+			OperationInvocation addedOperationInvocation = null;
+			for(OperationInvocation invocation : operationInvocations) {
+				if(invocation.matchesOperation(addedOperation)) {
+					addedOperationInvocation = invocation;
+					break;
+				}
+			}
+			if(addedOperationInvocation != null) {
+				List<UMLParameter> originalMethodParameters = mapper.getOperation1().getParametersWithoutReturnType();
+				Map<UMLParameter, UMLParameter> originalMethodParametersPassedAsArgumentsMappedToCalledMethodParameters = new LinkedHashMap<UMLParameter, UMLParameter>();
+				List<String> arguments = addedOperationInvocation.getArguments();
+				List<UMLParameter> parameters = addedOperation.getParametersWithoutReturnType();
+				Map<String, String> parameterToArgumentMap = new LinkedHashMap<String, String>();
+				//special handling for methods with varargs parameter for which no argument is passed in the matching invocation
+				int size = Math.min(arguments.size(), parameters.size());
+				for(int i=0; i<size; i++) {
+					String argumentName = arguments.get(i);
+					String parameterName = parameters.get(i).getName();
+					parameterToArgumentMap.put(parameterName, argumentName);
+					for(UMLParameter originalMethodParameter : originalMethodParameters) {
+						if(originalMethodParameter.getName().equals(argumentName)) {
+							originalMethodParametersPassedAsArgumentsMappedToCalledMethodParameters.put(originalMethodParameter, parameters.get(i));
 						}
 					}
-					if(addedOperationInvocation != null) {
-						List<UMLParameter> originalMethodParameters = mapper.getOperation1().getParametersWithoutReturnType();
-						Map<UMLParameter, UMLParameter> originalMethodParametersPassedAsArgumentsMappedToCalledMethodParameters = new LinkedHashMap<UMLParameter, UMLParameter>();
-						List<String> arguments = addedOperationInvocation.getArguments();
-						List<UMLParameter> parameters = addedOperation.getParametersWithoutReturnType();
-						Map<String, String> parameterToArgumentMap = new LinkedHashMap<String, String>();
-						//special handling for methods with varargs parameter for which no argument is passed in the matching invocation
-						int size = Math.min(arguments.size(), parameters.size());
-						for(int i=0; i<size; i++) {
-							String argumentName = arguments.get(i);
-							String parameterName = parameters.get(i).getName();
-							parameterToArgumentMap.put(parameterName, argumentName);
-							for(UMLParameter originalMethodParameter : originalMethodParameters) {
-								if(originalMethodParameter.getName().equals(argumentName)) {
-									originalMethodParametersPassedAsArgumentsMappedToCalledMethodParameters.put(originalMethodParameter, parameters.get(i));
-								}
+				}
+				if(parameterTypesMatch(originalMethodParametersPassedAsArgumentsMappedToCalledMethodParameters)) {
+					UMLOperation delegateMethod = findDelegateMethod(addedOperation, mapper, addedOperationInvocation);
+					UMLOperationBodyMapper operationBodyMapper = new UMLOperationBodyMapper(mapper,
+							delegateMethod != null ? delegateMethod : addedOperation,
+							new LinkedHashMap<String, String>(), parameterToArgumentMap);
+					operationBodyMapper.getMappings();
+					if(extractMatchCondition(operationBodyMapper)) {
+						return new CandidateMapper(operationBodyMapper, delegateMethod, addedOperationInvocation);
+					}
+				}
+			}
+		}
+		return null;
+	}
+
+	//runs the tasks as subtasks when the diff is itself running in a fork/join pool, and one after the other otherwise
+	private static void invokeAll(List<RecursiveAction> tasks) {
+		if(tasks.size() > 1 && ForkJoinTask.inForkJoinPool()) {
+			final DetectionStatistics statistics = DetectionStatistics.current();
+			if(statistics != null) {
+				//the tasks run by other threads work for the commit of this one
+				List<RecursiveAction> scopedTasks = new ArrayList<RecursiveAction>(tasks.size());
+				for(final RecursiveAction task : tasks) {
+					scopedTasks.add(new RecursiveAction() {
+						@Override
+						protected void compute() {
+							DetectionStatistics.Scope scope = DetectionStatistics.enter(statistics);
+							try {
+								task.invoke();
 							}
-						}
-						if(parameterTypesMatch(originalMethodParametersPassedAsArgumentsMappedToCalledMethodParameters)) {
-							UMLOperation delegateMethod = findDelegateMethod(addedOperation, mapper, addedOperationInvocation);
-							UMLOperationBodyMapper operationBodyMapper = new UMLOperationBodyMapper(mapper,
-									delegateMethod != null ? delegateMethod : addedOperation,
-									new LinkedHashMap<String, String>(), parameterToArgumentMap);
-							operationBodyMapper.getMappings();
-							if(extractMatchCondition(operationBodyMapper)) {
-								ExtractOperationRefactoring extractOperationRefactoring = null;
-								if(delegateMethod == null) {
-									extractOperationRefactoring = new ExtractOperationRefactoring(operationBodyMapper, mapper.getOperation2(), addedOperationInvocation);
-								}
-								else {
-									extractOperationRefactoring = new ExtractOperationRefactoring(operationBodyMapper, addedOperation,
-											mapper.getOperation1(), mapper.getOperation2(), addedOperationInvocation);
-								}
-								refactorings.add(extractOperationRefactoring);
-								refactorings.addAll(operationBodyMapper.getRefactorings());
-								mapper.addAdditionalMapper(operationBodyMapper);
-								operationsToBeRemoved.add(addedOperation);
+							finally {
+								DetectionStatistics.leave(scope);
 							}
 						}
-					}
+					});
 				}
+				tasks = scopedTasks;
 			}
+			ForkJoinTask.invokeAll(tasks);
+		}
+		else {
+			for(RecursiveAction task : tasks) {
+				task.invoke();
+			}
+		}
+	}
+
+	private static class CandidateMapper {
+		private final UMLOperationBodyMapper mapper;
+		private final UMLOperation delegateMethod;
+		private final OperationInvocation invocation;
+
+		private CandidateMapper(UMLOperationBodyMapper mapper, UMLOperation delegateMethod, OperationInvocation invocation) {
+			this.mapper = mapper;
+			this.delegateMethod = delegateMethod;
+			this.invocation = invocation;
 		}
-		addedOperations.removeAll(operationsToBeRemoved);
 	}
 
 	private boolean extractMatchCondition(UMLOperationBodyMapper operationBodyMapper) {
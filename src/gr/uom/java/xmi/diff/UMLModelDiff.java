@@ -19,6 +19,8 @@ import gr.uom.java.xmi.decomposition.replacement.Replacement.ReplacementType;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
@@ -28,11 +30,23 @@ import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
 
+import org.refactoringminer.api.DetectionStatistics;
+import org.refactoringminer.api.DetectionStatistics.Phase;
+import org.refactoringminer.api.DetectionStatistics.PhaseTimer;
 import org.refactoringminer.api.Refactoring;
+import org.refactoringminer.api.RefactoringType;
 import org.refactoringminer.util.PrefixSuffixUtils;
 
 public class UMLModelDiff {
    private static final int MAXIMUM_NUMBER_OF_COMPARED_METHODS = 100;
+   private static final Set<RefactoringType> CLASS_REFACTORING_TYPES = EnumSet.of(RefactoringType.RENAME_CLASS, RefactoringType.MOVE_CLASS,
+		   RefactoringType.MOVE_RENAME_CLASS, RefactoringType.RENAME_PACKAGE, RefactoringType.MOVE_SOURCE_FOLDER);
+   //the refactoring types reported by the model level phases of getRefactorings, rather than by the class diffs
+   private static final Set<RefactoringType> MODEL_REFACTORING_TYPES = EnumSet.of(RefactoringType.RENAME_CLASS, RefactoringType.MOVE_CLASS,
+		   RefactoringType.MOVE_RENAME_CLASS, RefactoringType.RENAME_PACKAGE, RefactoringType.MOVE_SOURCE_FOLDER,
+		   RefactoringType.CONVERT_ANONYMOUS_CLASS_TO_TYPE, RefactoringType.EXTRACT_SUPERCLASS, RefactoringType.EXTRACT_INTERFACE,
+		   RefactoringType.MOVE_OPERATION, RefactoringType.PULL_UP_OPERATION, RefactoringType.PUSH_DOWN_OPERATION, RefactoringType.EXTRACT_AND_MOVE_OPERATION,
+		   RefactoringType.MOVE_ATTRIBUTE, RefactoringType.PULL_UP_ATTRIBUTE, RefactoringType.PUSH_DOWN_ATTRIBUTE);
    private List<UMLClass> addedClasses;
    private List<UMLClass> removedClasses;
    
@@ -49,6 +63,13 @@ public class UMLModelDiff {
    private List<UMLClassRenameDiff> classRenameDiffList;
    private List<Refactoring> refactorings;
    private Set<String> deletedFolderPaths;
+   //added and removed classes grouped by name, in the order of the lists
+   private Map<String, List<UMLClass>> addedClassesByName;
+   private Map<String, List<UMLClass>> removedClassesByName;
+   //built on demand from the class diff lists, and discarded whenever the lists change
+   private ClassDiffIndex classDiffIndex;
+   //null when all refactoring types are considered
+   private Set<RefactoringType> refactoringTypesToConsider;
    
    public UMLModelDiff() {
       this.addedClasses = new ArrayList<UMLClass>();
@@ -65,18 +86,72 @@ public class UMLModelDiff {
       this.classRenameDiffList = new ArrayList<UMLClassRenameDiff>();
       this.refactorings = new ArrayList<Refactoring>();
       this.deletedFolderPaths = new LinkedHashSet<String>();
+      this.addedClassesByName = new HashMap<String, List<UMLClass>>();
+      this.removedClassesByName = new HashMap<String, List<UMLClass>>();
+   }
+
+   /**
+    * Restricts the analysis to the phases that can lead to a refactoring of the given types.
+    * The refactorings of other types may still be reported, as a by-product of a phase that is needed.
+    */
+   public void setRefactoringTypesToConsider(Set<RefactoringType> refactoringTypesToConsider) {
+      this.refactoringTypesToConsider = refactoringTypesToConsider;
+   }
+
+   /**
+    * @return false if only class moves and renames are considered, which are detected without matching the operations of the classes
+    */
+   public boolean requiresOperationMatching() {
+      if(refactoringTypesToConsider == null)
+         return true;
+      for(RefactoringType type : refactoringTypesToConsider) {
+         if(!CLASS_REFACTORING_TYPES.contains(type))
+            return true;
+      }
+      return false;
+   }
+
+   private boolean considers(RefactoringType... types) {
+      return UMLClassBaseDiff.considers(refactoringTypesToConsider, types);
    }
 
    public void reportAddedClass(UMLClass umlClass) {
-	   if(!addedClasses.contains(umlClass))
+	   if(addToIndex(addedClassesByName, umlClass))
 		   this.addedClasses.add(umlClass);
    }
 
    public void reportRemovedClass(UMLClass umlClass) {
-	   if(!removedClasses.contains(umlClass))
+	   if(addToIndex(removedClassesByName, umlClass))
 		   this.removedClasses.add(umlClass);
    }
 
+   private static boolean addToIndex(Map<String, List<UMLClass>> index, UMLClass umlClass) {
+	   List<UMLClass> classes = index.get(umlClass.getName());
+	   if(classes == null) {
+		   classes = new ArrayList<UMLClass>(1);
+		   index.put(umlClass.getName(), classes);
+	   }
+	   else if(classes.contains(umlClass)) {
+		   return false;
+	   }
+	   classes.add(umlClass);
+	   return true;
+   }
+
+   private static void removeFromIndex(Map<String, List<UMLClass>> index, UMLClass umlClass) {
+	   List<UMLClass> classes = index.get(umlClass.getName());
+	   if(classes != null) {
+		   classes.remove(umlClass);
+		   if(classes.isEmpty())
+			   index.remove(umlClass.getName());
+	   }
+   }
+
+   private void removeAddedClass(UMLClass umlClass) {
+	   if(addedClasses.remove(umlClass))
+		   removeFromIndex(addedClassesByName, umlClass);
+   }
+
    public void reportAddedGeneralization(UMLGeneralization umlGeneralization) {
       this.addedGeneralizations.add(umlGeneralization);
    }
@@ -95,46 +170,105 @@ public class UMLModelDiff {
 
    public void addUMLClassDiff(UMLClassDiff classDiff) {
       this.commonClassDiffList.add(classDiff);
+      this.classDiffIndex = null;
    }
 
-   private UMLClassBaseDiff getUMLClassDiff(String className) {
-      for(UMLClassDiff classDiff : commonClassDiffList) {
-         if(classDiff.matches(className))
-            return classDiff;
-      }
-      for(UMLClassMoveDiff classDiff : classMoveDiffList) {
-         if(classDiff.matches(className))
-            return classDiff;
-      }
-      for(UMLClassMoveDiff classDiff : innerClassMoveDiffList) {
-         if(classDiff.matches(className))
-            return classDiff;
+   private ClassDiffIndex getClassDiffIndex() {
+      if(classDiffIndex == null) {
+         classDiffIndex = new ClassDiffIndex();
+         for(UMLClassDiff classDiff : commonClassDiffList) {
+            classDiffIndex.add(classDiff);
+         }
+         for(UMLClassMoveDiff classDiff : classMoveDiffList) {
+            classDiffIndex.add(classDiff);
+         }
+         for(UMLClassMoveDiff classDiff : innerClassMoveDiffList) {
+            classDiffIndex.add(classDiff);
+         }
+         for(UMLClassRenameDiff classDiff : classRenameDiffList) {
+            classDiffIndex.add(classDiff);
+         }
+         for(UMLClassMoveDiff classDiff : classMoveDiffList) {
+            classDiffIndex.addMove(classDiff);
+         }
+         for(UMLClassRenameDiff classDiff : classRenameDiffList) {
+            classDiffIndex.addRename(classDiff);
+         }
       }
-      for(UMLClassRenameDiff classDiff : classRenameDiffList) {
-         if(classDiff.matches(className))
-            return classDiff;
+      return classDiffIndex;
+   }
+
+   private UMLClassBaseDiff getUMLClassDiff(String className) {
+      return getClassDiffIndex().byName.get(className);
+   }
+
+   private UMLClassBaseDiff getUMLClassDiff(UMLType type) {
+      List<UMLClassBaseDiff> classDiffs = getClassDiffIndex().bySimpleName.get(simpleName(type.getClassType()));
+      if(classDiffs != null) {
+         for(UMLClassBaseDiff classDiff : classDiffs) {
+            if(classDiff.matches(type))
+               return classDiff;
+         }
       }
       return null;
    }
 
-   private UMLClassBaseDiff getUMLClassDiff(UMLType type) {
-      for(UMLClassDiff classDiff : commonClassDiffList) {
-         if(classDiff.matches(type))
-            return classDiff;
+   private static String simpleName(String name) {
+      return name.substring(name.lastIndexOf(".") + 1);
+   }
+
+   /**
+    * Lookup tables over the common, moved, inner moved and renamed class diffs. Each table keeps the diffs
+    * in the order the lists are searched, so a lookup returns the same diff as a scan of the lists.
+    */
+   private static class ClassDiffIndex {
+      private final Map<String, UMLClassBaseDiff> byName = new HashMap<String, UMLClassBaseDiff>();
+      //a diff is found by a type if one of its class names ends with "." followed by the type,
+      //so both names have the same last segment as the type
+      private final Map<String, List<UMLClassBaseDiff>> bySimpleName = new HashMap<String, List<UMLClassBaseDiff>>();
+      private final Map<String, List<UMLClassMoveDiff>> movesByOriginalName = new HashMap<String, List<UMLClassMoveDiff>>();
+      private final Map<String, List<UMLClassRenameDiff>> renamesByOriginalName = new HashMap<String, List<UMLClassRenameDiff>>();
+
+      private void add(UMLClassBaseDiff classDiff) {
+         String originalName = classDiff.getOriginalClass().getName();
+         String nextName = classDiff.getNextClass().getName();
+         if(!byName.containsKey(originalName))
+            byName.put(originalName, classDiff);
+         if(!byName.containsKey(nextName))
+            byName.put(nextName, classDiff);
+         addToSimpleName(simpleName(originalName), classDiff);
+         if(!simpleName(nextName).equals(simpleName(originalName)))
+            addToSimpleName(simpleName(nextName), classDiff);
       }
-      for(UMLClassMoveDiff classDiff : classMoveDiffList) {
-         if(classDiff.matches(type))
-            return classDiff;
+
+      private void addToSimpleName(String simpleName, UMLClassBaseDiff classDiff) {
+         List<UMLClassBaseDiff> classDiffs = bySimpleName.get(simpleName);
+         if(classDiffs == null) {
+            classDiffs = new ArrayList<UMLClassBaseDiff>(1);
+            bySimpleName.put(simpleName, classDiffs);
+         }
+         classDiffs.add(classDiff);
       }
-      for(UMLClassMoveDiff classDiff : innerClassMoveDiffList) {
-         if(classDiff.matches(type))
-            return classDiff;
+
+      private void addMove(UMLClassMoveDiff classDiff) {
+         String originalName = classDiff.getOriginalClass().getName();
+         List<UMLClassMoveDiff> classDiffs = movesByOriginalName.get(originalName);
+         if(classDiffs == null) {
+            classDiffs = new ArrayList<UMLClassMoveDiff>(1);
+            movesByOriginalName.put(originalName, classDiffs);
+         }
+         classDiffs.add(classDiff);
       }
-      for(UMLClassRenameDiff classDiff : classRenameDiffList) {
-         if(classDiff.matches(type))
-            return classDiff;
+
+      private void addRename(UMLClassRenameDiff classDiff) {
+         String originalName = classDiff.getOriginalClass().getName();
+         List<UMLClassRenameDiff> classDiffs = renamesByOriginalName.get(originalName);
+         if(classDiffs == null) {
+            classDiffs = new ArrayList<UMLClassRenameDiff>(1);
+            renamesByOriginalName.put(originalName, classDiffs);
+         }
+         classDiffs.add(classDiff);
       }
-      return null;
    }
 
    private UMLClassBaseDiff getUMLClassDiffWithAttribute(Replacement pattern) {
@@ -305,33 +439,33 @@ public class UMLModelDiff {
    }
 
    public UMLClass getAddedClass(String className) {
-      for(UMLClass umlClass : addedClasses) {
-         if(umlClass.getName().equals(className))
-            return umlClass;
-      }
-      return null;
+      List<UMLClass> classes = addedClassesByName.get(className);
+      return classes != null ? classes.get(0) : null;
    }
 
    public UMLClass getRemovedClass(String className) {
-      for(UMLClass umlClass : removedClasses) {
-         if(umlClass.getName().equals(className))
-            return umlClass;
-      }
-      return null;
+      List<UMLClass> classes = removedClassesByName.get(className);
+      return classes != null ? classes.get(0) : null;
    }
 
    private String isRenamedClass(UMLClass umlClass) {
-      for(UMLClassRenameDiff renameDiff : classRenameDiffList) {
-         if(renameDiff.getOriginalClass().equals(umlClass))
-            return renameDiff.getRenamedClass().getName();
+      List<UMLClassRenameDiff> renameDiffs = getClassDiffIndex().renamesByOriginalName.get(umlClass.getName());
+      if(renameDiffs != null) {
+         for(UMLClassRenameDiff renameDiff : renameDiffs) {
+            if(renameDiff.getOriginalClass().equals(umlClass))
+               return renameDiff.getRenamedClass().getName();
+         }
       }
       return null;
    }
 
    private String isMovedClass(UMLClass umlClass) {
-      for(UMLClassMoveDiff moveDiff : classMoveDiffList) {
-         if(moveDiff.getOriginalClass().equals(umlClass))
-            return moveDiff.getMovedClass().getName();
+      List<UMLClassMoveDiff> moveDiffs = getClassDiffIndex().movesByOriginalName.get(umlClass.getName());
+      if(moveDiffs != null) {
+         for(UMLClassMoveDiff moveDiff : moveDiffs) {
+            if(moveDiff.getOriginalClass().equals(umlClass))
+               return moveDiff.getMovedClass().getName();
+         }
       }
       return null;
    }
@@ -383,7 +517,7 @@ public class UMLModelDiff {
       }
    }
 
-   public void checkForMovedClasses(Map<String, String> renamedFileHints, String projectRoot, UMLClassMatcher matcher) {
+   public void checkForMovedClasses(Map<String, String> renamedFileHints, String projectRoot, Set<String> repositoryDirectories, UMLClassMatcher matcher) {
 	   for(Iterator<UMLClass> removedClassIterator = removedClasses.iterator(); removedClassIterator.hasNext();) {
 		   UMLClass removedClass = removedClassIterator.next();
 		   TreeSet<UMLClassMoveDiff> diffSet = new TreeSet<UMLClassMoveDiff>(new ClassMoveComparator());
@@ -396,8 +530,15 @@ public class UMLModelDiff {
 				   removedClassSourceFolder = removedClassSourceFile.substring(0, removedClassSourceFile.lastIndexOf("/")).replaceAll("/", UMLModelASTReader.systemFileSeparator);
 			   }
 			   String removedFileFolderPathAsString = projectRoot + File.separator + removedClassSourceFolder;
-			   File removedFileFolderPath = new File(removedFileFolderPathAsString);
-			   if(!removedFileFolderPath.exists()) {
+			   boolean removedFileFolderExists;
+			   if(repositoryDirectories != null) {
+				   removedFileFolderExists = removedClassSourceFolder.isEmpty() ||
+						   repositoryDirectories.contains(removedClassSourceFile.substring(0, removedClassSourceFile.lastIndexOf("/")));
+			   }
+			   else {
+				   removedFileFolderExists = new File(removedFileFolderPathAsString).exists();
+			   }
+			   if(!removedFileFolderExists) {
 				   deletedFolderPaths.add(removedFileFolderPathAsString);
 			   }
 			   if(matcher.match(removedClass, addedClass, renamedFile)) {
@@ -409,10 +550,12 @@ public class UMLModelDiff {
 		   }
 		   if(!diffSet.isEmpty()) {
 			   UMLClassMoveDiff minClassMoveDiff = diffSet.first();
-			   minClassMoveDiff.process();
+			   if(requiresOperationMatching())
+				   minClassMoveDiff.process();
 			   classMoveDiffList.add(minClassMoveDiff);
-			   addedClasses.remove(minClassMoveDiff.getMovedClass());
+			   removeAddedClass(minClassMoveDiff.getMovedClass());
 			   removedClassIterator.remove();
+			   removeFromIndex(removedClassesByName, removedClass);
 		   }
 	   }
 
@@ -429,6 +572,7 @@ public class UMLModelDiff {
 		   }
 	   }
 	   this.classMoveDiffList.removeAll(innerClassMoveDiffList);
+	   this.classDiffIndex = null;
    }
 
    private boolean conflictingMoveOfTopLevelClass(UMLClass removedClass, UMLClass addedClass) {
@@ -462,10 +606,12 @@ public class UMLModelDiff {
          }
          if(!diffSet.isEmpty()) {
             UMLClassRenameDiff minClassRenameDiff = diffSet.first();
-            minClassRenameDiff.process();
+            if(requiresOperationMatching())
+               minClassRenameDiff.process();
             classRenameDiffList.add(minClassRenameDiff);
-            addedClasses.remove(minClassRenameDiff.getRenamedClass());
+            removeAddedClass(minClassRenameDiff.getRenamedClass());
             removedClassIterator.remove();
+            removeFromIndex(removedClassesByName, removedClass);
          }
       }
       
@@ -480,6 +626,7 @@ public class UMLModelDiff {
          }
       }
       this.classMoveDiffList.removeAll(innerClassMoveDiffList);
+      this.classDiffIndex = null;
    }
 
    private boolean innerClassWithTheSameName(UMLClass removedClass, UMLClass addedClass) {
@@ -975,26 +1122,43 @@ public class UMLModelDiff {
 
    public List<Refactoring> getRefactorings() {
       Set<Refactoring> refactorings = new LinkedHashSet<Refactoring>();
-      refactorings.addAll(getMoveClassRefactorings());
-      refactorings.addAll(getRenameClassRefactorings());
-      refactorings.addAll(identifyConvertAnonymousClassToTypeRefactorings());
-      refactorings.addAll(identifyExtractSuperclassRefactorings());
+      if(considers(RefactoringType.MOVE_CLASS, RefactoringType.RENAME_PACKAGE, RefactoringType.MOVE_SOURCE_FOLDER))
+         refactorings.addAll(getMoveClassRefactorings());
+      if(considers(RefactoringType.RENAME_CLASS, RefactoringType.MOVE_RENAME_CLASS))
+         refactorings.addAll(getRenameClassRefactorings());
+      if(!requiresOperationMatching())
+         return new ArrayList<Refactoring>(refactorings);
+      if(considers(RefactoringType.CONVERT_ANONYMOUS_CLASS_TO_TYPE))
+         refactorings.addAll(identifyConvertAnonymousClassToTypeRefactorings());
+      //the pulled up members are removed from the subclasses, before looking for attribute renames and member moves
+      if(considers(RefactoringType.EXTRACT_SUPERCLASS, RefactoringType.EXTRACT_INTERFACE,
+            RefactoringType.RENAME_ATTRIBUTE, RefactoringType.REPLACE_ATTRIBUTE, RefactoringType.MOVE_RENAME_ATTRIBUTE,
+            RefactoringType.MOVE_OPERATION, RefactoringType.PULL_UP_OPERATION, RefactoringType.PUSH_DOWN_OPERATION,
+            RefactoringType.EXTRACT_OPERATION, RefactoringType.EXTRACT_AND_MOVE_OPERATION,
+            RefactoringType.MOVE_ATTRIBUTE, RefactoringType.PULL_UP_ATTRIBUTE, RefactoringType.PUSH_DOWN_ATTRIBUTE))
+         refactorings.addAll(identifyExtractSuperclassRefactorings());
       Map<Replacement, Set<CandidateAttributeRefactoring>> map = new LinkedHashMap<Replacement, Set<CandidateAttributeRefactoring>>();
-      for(UMLClassDiff classDiff : commonClassDiffList) {
-         refactorings.addAll(classDiff.getRefactorings());
-		 extractRenamePatterns(classDiff, map);
-      }
-      for(UMLClassMoveDiff classDiff : classMoveDiffList) {
-         refactorings.addAll(classDiff.getRefactorings());
-		 extractRenamePatterns(classDiff, map);
-      }
-      for(UMLClassMoveDiff classDiff : innerClassMoveDiffList) {
-         refactorings.addAll(classDiff.getRefactorings());
-		 extractRenamePatterns(classDiff, map);
-      }
-      for(UMLClassRenameDiff classDiff : classRenameDiffList) {
-         refactorings.addAll(classDiff.getRefactorings());
-		 extractRenamePatterns(classDiff, map);
+      if(considersClassDiffRefactorings()) {
+         for(UMLClassDiff classDiff : commonClassDiffList) {
+            classDiff.setRefactoringTypesToConsider(refactoringTypesToConsider);
+            refactorings.addAll(classDiff.getRefactorings());
+            extractRenamePatterns(classDiff, map);
+         }
+         for(UMLClassMoveDiff classDiff : classMoveDiffList) {
+            classDiff.setRefactoringTypesToConsider(refactoringTypesToConsider);
+            refactorings.addAll(classDiff.getRefactorings());
+            extractRenamePatterns(classDiff, map);
+         }
+         for(UMLClassMoveDiff classDiff : innerClassMoveDiffList) {
+            classDiff.setRefactoringTypesToConsider(refactoringTypesToConsider);
+            refactorings.addAll(classDiff.getRefactorings());
+            extractRenamePatterns(classDiff, map);
+         }
+         for(UMLClassRenameDiff classDiff : classRenameDiffList) {
+            classDiff.setRefactoringTypesToConsider(refactoringTypesToConsider);
+            refactorings.addAll(classDiff.getRefactorings());
+            extractRenamePatterns(classDiff, map);
+         }
       }
 	  for(Replacement pattern : map.keySet()) {
 		 UMLClassBaseDiff diff = getUMLClassDiffWithAttribute(pattern);
@@ -1047,18 +1211,36 @@ public class UMLModelDiff {
 			 }
 		 }
 	  }
-      checkForOperationMovesBetweenCommonClasses();
-      checkForExtractedAndMovedOperations(getOperationBodyMappersInCommonClasses(), getAddedOperationsInCommonClasses());
-      checkForExtractedAndMovedOperations(getOperationBodyMappersInMovedAndRenamedClasses(), getAddedOperationsInMovedAndRenamedClasses());
-      checkForOperationMovesIncludingAddedClasses();
-      checkForOperationMovesIncludingRemovedClasses();
-      refactorings.addAll(checkForAttributeMovesBetweenCommonClasses());
-      refactorings.addAll(checkForAttributeMovesIncludingAddedClasses());
-      refactorings.addAll(checkForAttributeMovesIncludingRemovedClasses());
+      //the attribute moves are ranked by their compatibility with the operation moves
+      if(considers(RefactoringType.MOVE_OPERATION, RefactoringType.PULL_UP_OPERATION, RefactoringType.PUSH_DOWN_OPERATION,
+            RefactoringType.EXTRACT_OPERATION, RefactoringType.EXTRACT_AND_MOVE_OPERATION,
+            RefactoringType.MOVE_ATTRIBUTE, RefactoringType.PULL_UP_ATTRIBUTE, RefactoringType.PUSH_DOWN_ATTRIBUTE)) {
+         checkForOperationMovesBetweenCommonClasses();
+         checkForExtractedAndMovedOperations(getOperationBodyMappersInCommonClasses(), getAddedOperationsInCommonClasses());
+         checkForExtractedAndMovedOperations(getOperationBodyMappersInMovedAndRenamedClasses(), getAddedOperationsInMovedAndRenamedClasses());
+         checkForOperationMovesIncludingAddedClasses();
+         checkForOperationMovesIncludingRemovedClasses();
+      }
+      if(considers(RefactoringType.MOVE_ATTRIBUTE, RefactoringType.PULL_UP_ATTRIBUTE, RefactoringType.PUSH_DOWN_ATTRIBUTE)) {
+         refactorings.addAll(checkForAttributeMovesBetweenCommonClasses());
+         refactorings.addAll(checkForAttributeMovesIncludingAddedClasses());
+         refactorings.addAll(checkForAttributeMovesIncludingRemovedClasses());
+      }
       refactorings.addAll(this.refactorings);
       return new ArrayList<Refactoring>(refactorings);
    }
 
+   //the class diffs report the refactorings within the bodies of their operations, and the candidate attribute renames
+   private boolean considersClassDiffRefactorings() {
+      if(refactoringTypesToConsider == null)
+         return true;
+      for(RefactoringType type : refactoringTypesToConsider) {
+         if(!MODEL_REFACTORING_TYPES.contains(type))
+            return true;
+      }
+      return false;
+   }
+
    private void extractRenamePatterns(UMLClassBaseDiff classDiff, Map<Replacement, Set<CandidateAttributeRefactoring>> map) {
 	  for(CandidateAttributeRefactoring candidate : classDiff.getCandidateAttributeRenames()) {
 		 String before = PrefixSuffixUtils.normalize(candidate.getOriginalVariableName());
@@ -1076,6 +1258,7 @@ public class UMLModelDiff {
    }
 
    private void checkForExtractedAndMovedOperations(List<UMLOperationBodyMapper> mappers, List<UMLOperation> addedOperations) {
+      PhaseTimer timer = DetectionStatistics.start(Phase.EXTRACTED_AND_MOVED_OPERATIONS);
       for(Iterator<UMLOperation> addedOperationIterator = addedOperations.iterator(); addedOperationIterator.hasNext();) {
     	  UMLOperation addedOperation = addedOperationIterator.next();
     	  for(UMLOperationBodyMapper mapper : mappers) {
@@ -1174,6 +1357,7 @@ public class UMLModelDiff {
             }
          }
       }
+      DetectionStatistics.stop(timer);
    }
 
    private boolean extractAndMoveMatchCondition(UMLOperationBodyMapper operationBodyMapper) {
@@ -1198,9 +1382,7 @@ public class UMLModelDiff {
       for(UMLClass removedClass : removedClasses) {
     	  removedOperations.addAll(removedClass.getOperations());
       }
-      if(removedOperations.size() <= MAXIMUM_NUMBER_OF_COMPARED_METHODS || addedOperations.size() <= MAXIMUM_NUMBER_OF_COMPARED_METHODS) {
-    	  checkForOperationMoves(addedOperations, removedOperations);
-      }
+      checkForOperationMoves(addedOperations, removedOperations);
    }
 
    private void checkForOperationMovesIncludingAddedClasses() {
@@ -1212,17 +1394,13 @@ public class UMLModelDiff {
       /*for(UMLClass removedClass : removedClasses) {
     	  removedOperations.addAll(removedClass.getOperations());
       }*/
-      if(removedOperations.size() <= MAXIMUM_NUMBER_OF_COMPARED_METHODS || addedOperations.size() <= MAXIMUM_NUMBER_OF_COMPARED_METHODS) {
-    	  checkForOperationMoves(addedOperations, removedOperations);
-      }
+      checkForOperationMoves(addedOperations, removedOperations);
    }
 
    private void checkForOperationMovesBetweenCommonClasses() {
       List<UMLOperation> addedOperations = getAddedOperationsInCommonClasses();
       List<UMLOperation> removedOperations = getRemovedOperationsInCommonClasses();
-      if(removedOperations.size() <= MAXIMUM_NUMBER_OF_COMPARED_METHODS || addedOperations.size() <= MAXIMUM_NUMBER_OF_COMPARED_METHODS) {
-    	  checkForOperationMoves(addedOperations, removedOperations);
-      }
+      checkForOperationMoves(addedOperations, removedOperations);
    }
 
    private void checkForOperationMovesBetweenRemovedAndAddedClasses() {
@@ -1248,9 +1426,7 @@ public class UMLModelDiff {
 			   removedOperations.addAll(removedClass.getOperations());
 		   }
 	   }
-	   if(removedOperations.size() <= MAXIMUM_NUMBER_OF_COMPARED_METHODS || addedOperations.size() <= MAXIMUM_NUMBER_OF_COMPARED_METHODS) {
-		   checkForOperationMoves(addedOperations, removedOperations);
-	   }
+	   checkForOperationMoves(addedOperations, removedOperations);
    }
 
    private boolean outerClassMovedOrRenamed(UMLClass umlClass) {
@@ -1272,12 +1448,21 @@ public class UMLModelDiff {
    }
 
    private void checkForOperationMoves(List<UMLOperation> addedOperations, List<UMLOperation> removedOperations) {
+	   PhaseTimer timer = DetectionStatistics.start(Phase.OPERATION_MOVES);
+	   //beyond the maximum number of compared methods, only the pairs of operations with similar statements are compared;
+	   //operations without statements (abstract, native or empty) are then never candidates, since their body mappers have no mappings
+	   boolean comparePairsOfSimilarOperations = removedOperations.size() > MAXIMUM_NUMBER_OF_COMPARED_METHODS && addedOperations.size() > MAXIMUM_NUMBER_OF_COMPARED_METHODS;
 	   if(addedOperations.size() <= removedOperations.size()) {
+	      OperationSimilarityIndex similarityIndex = comparePairsOfSimilarOperations ? new OperationSimilarityIndex(removedOperations) : null;
 	      for(Iterator<UMLOperation> addedOperationIterator = addedOperations.iterator(); addedOperationIterator.hasNext();) {
 	         UMLOperation addedOperation = addedOperationIterator.next();
+	         Set<UMLOperation> candidates = similarityIndex != null ? similarityIndex.candidates(addedOperation) : null;
 	         TreeMap<Integer, List<UMLOperationBodyMapper>> operationBodyMapperMap = new TreeMap<Integer, List<UMLOperationBodyMapper>>();
 	         for(Iterator<UMLOperation> removedOperationIterator = removedOperations.iterator(); removedOperationIterator.hasNext();) {
 	            UMLOperation removedOperation = removedOperationIterator.next();
+	            if(candidates != null && !candidates.contains(removedOperation)) {
+	               continue;
+	            }
 	            
 	            UMLOperationBodyMapper operationBodyMapper = new UMLOperationBodyMapper(removedOperation, addedOperation);
 	            operationBodyMapper.getMappings();
@@ -1339,11 +1524,16 @@ public class UMLModelDiff {
 	      }
       }
       else {
+    	  OperationSimilarityIndex similarityIndex = comparePairsOfSimilarOperations ? new OperationSimilarityIndex(addedOperations) : null;
     	  for(Iterator<UMLOperation> removedOperationIterator = removedOperations.iterator(); removedOperationIterator.hasNext();) {
 	         UMLOperation removedOperation = removedOperationIterator.next();
+	         Set<UMLOperation> candidates = similarityIndex != null ? similarityIndex.candidates(removedOperation) : null;
 	         TreeMap<Integer, List<UMLOperationBodyMapper>> operationBodyMapperMap = new TreeMap<Integer, List<UMLOperationBodyMapper>>();
 	         for(Iterator<UMLOperation> addedOperationIterator = addedOperations.iterator(); addedOperationIterator.hasNext();) {
 	            UMLOperation addedOperation = addedOperationIterator.next();
+	            if(candidates != null && !candidates.contains(addedOperation)) {
+	               continue;
+	            }
 	            
 	            UMLOperationBodyMapper operationBodyMapper = new UMLOperationBodyMapper(removedOperation, addedOperation);
 	            operationBodyMapper.getMappings();
@@ -1404,6 +1594,7 @@ public class UMLModelDiff {
 	         }
 	      }
       }
+      DetectionStatistics.stop(timer);
    }
 
    private boolean sameSourceAndTargetClass(List<UMLOperationBodyMapper> mappers) {
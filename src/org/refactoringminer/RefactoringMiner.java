@@ -1,10 +1,9 @@
 package org.refactoringminer;
 
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.List;
 
 import org.eclipse.jgit.lib.Repository;
@@ -14,10 +13,14 @@ import org.refactoringminer.api.Refactoring;
 import org.refactoringminer.api.RefactoringHandler;
 import org.refactoringminer.rm1.GitHistoryRefactoringMinerImpl;
 import org.refactoringminer.util.GitServiceImpl;
+import org.refactoringminer.util.RefactoringWriter;
 
 public class RefactoringMiner {
+	private static boolean jsonOutput;
+	private static boolean asyncOutput;
 
 	public static void main(String[] args) throws Exception {
+		args = parseOutputOptions(args);
 		if (args.length < 1) {
 			throw argumentException();
 		}
@@ -54,10 +57,9 @@ public class RefactoringMiner {
 		GitService gitService = new GitServiceImpl();
 		try (Repository repo = gitService.openRepository(folder)) {
 			Path folderPath = Paths.get(folder);
-			String fileName = (branch == null) ? "all_refactorings.csv" : "all_refactorings_" + branch + ".csv";
-			String filePath = folderPath.toString() + "/" + fileName;
-			Files.deleteIfExists(Paths.get(filePath));
-			saveToFile(filePath, getResultHeader());
+			String fileName = (branch == null) ? "all_refactorings" : "all_refactorings_" + branch;
+			String filePath = folderPath.toString() + "/" + fileName + (jsonOutput ? ".jsonl" : ".csv");
+			final RefactoringWriter writer = openResultWriter(filePath);
 
 			GitHistoryRefactoringMiner detector = new GitHistoryRefactoringMinerImpl();
 			detector.detectAll(repo, branch, new RefactoringHandler() {
@@ -68,14 +70,21 @@ public class RefactoringMiner {
 					} else {
 						System.out.println(refactorings.size() + " refactorings found in commit " + commitId);
 
-						for (Refactoring ref : refactorings) {
-							saveToFile(filePath, getResultRefactoringDescription(commitId, ref));
+						try {
+							writer.write(commitId, refactorings);
+						} catch (IOException e) {
+							e.printStackTrace();
 						}
 					}
 				}
 
 				@Override
 				public void onFinish(int refactoringsCount, int commitsCount, int errorCommitsCount) {
+					try {
+						writer.close();
+					} catch (IOException e) {
+						e.printStackTrace();
+					}
 					System.out.println("Finish mining, result is saved to file: " + filePath);
 					System.out.println(String.format("Total count: [Commits: %d, Errors: %d, Refactorings: %d]",
 							commitsCount, errorCommitsCount, refactoringsCount));
@@ -102,13 +111,12 @@ public class RefactoringMiner {
 			Path folderPath = Paths.get(folder);
 			String fileName = null;
 			if (endCommit == null) {
-				fileName = "refactorings_" + startCommit + "_begin" + ".csv";
+				fileName = "refactorings_" + startCommit + "_begin";
 			} else {
-				fileName = "refactorings_" + startCommit + "_" + endCommit + ".csv";
+				fileName = "refactorings_" + startCommit + "_" + endCommit;
 			}
-			String filePath = folderPath.toString() + "/" + fileName;
-			Files.deleteIfExists(Paths.get(filePath));
-			saveToFile(filePath, getResultHeader());
+			String filePath = folderPath.toString() + "/" + fileName + (jsonOutput ? ".jsonl" : ".csv");
+			final RefactoringWriter writer = openResultWriter(filePath);
 
 			GitHistoryRefactoringMiner detector = new GitHistoryRefactoringMinerImpl();
 			detector.detectBetweenCommits(repo, startCommit, endCommit, new RefactoringHandler() {
@@ -118,14 +126,21 @@ public class RefactoringMiner {
 						System.out.println("No refactorings found in commit " + commitId);
 					} else {
 						System.out.println(refactorings.size() + " refactorings found in commit " + commitId);
-						for (Refactoring ref : refactorings) {
-							saveToFile(filePath, getResultRefactoringDescription(commitId, ref));
+						try {
+							writer.write(commitId, refactorings);
+						} catch (IOException e) {
+							e.printStackTrace();
 						}
 					}
 				}
 
 				@Override
 				public void onFinish(int refactoringsCount, int commitsCount, int errorCommitsCount) {
+					try {
+						writer.close();
+					} catch (IOException e) {
+						e.printStackTrace();
+					}
 					System.out.println("Finish mining, result is saved to file: " + filePath);
 					System.out.println(String.format("Total count: [Commits: %d, Errors: %d, Refactorings: %d]",
 							commitsCount, errorCommitsCount, refactoringsCount));
@@ -152,13 +167,12 @@ public class RefactoringMiner {
 			Path folderPath = Paths.get(folder);
 			String fileName = null;
 			if (endTag == null) {
-				fileName = "refactorings_" + startTag + "_begin" + ".csv";
+				fileName = "refactorings_" + startTag + "_begin";
 			} else {
-				fileName = "refactorings_" + startTag + "_" + endTag + ".csv";
+				fileName = "refactorings_" + startTag + "_" + endTag;
 			}
-			String filePath = folderPath.toString() + "/" + fileName;
-			Files.deleteIfExists(Paths.get(filePath));
-			saveToFile(filePath, getResultHeader());
+			String filePath = folderPath.toString() + "/" + fileName + (jsonOutput ? ".jsonl" : ".csv");
+			final RefactoringWriter writer = openResultWriter(filePath);
 
 			GitHistoryRefactoringMiner detector = new GitHistoryRefactoringMinerImpl();
 			detector.detectBetweenTags(repo, startTag, endTag, new RefactoringHandler() {
@@ -168,14 +182,21 @@ public class RefactoringMiner {
 						System.out.println("No refactorings found in commit " + commitId);
 					} else {
 						System.out.println(refactorings.size() + " refactorings found in commit " + commitId);
-						for (Refactoring ref : refactorings) {
-							saveToFile(filePath, getResultRefactoringDescription(commitId, ref));
+						try {
+							writer.write(commitId, refactorings);
+						} catch (IOException e) {
+							e.printStackTrace();
 						}
 					}
 				}
 
 				@Override
 				public void onFinish(int refactoringsCount, int commitsCount, int errorCommitsCount) {
+					try {
+						writer.close();
+					} catch (IOException e) {
+						e.printStackTrace();
+					}
 					System.out.println("Finish mining, result is saved to file: " + filePath);
 					System.out.println(String.format("Total count: [Commits: %d, Errors: %d, Refactorings: %d]",
 							commitsCount, errorCommitsCount, refactoringsCount));
@@ -231,34 +252,36 @@ public class RefactoringMiner {
 				"-bt <git-repo-folder> <start-tag> <end-tag>\t\t\tDetect refactorings Between <start-tag> and <end-tag> for project <git-repo-folder>");
 		System.out.println(
 				"-c <git-repo-folder> <commit-sha1>\t\t\t\tDetect refactorings at specified commit <commit-sha1> for project <git-repo-folder>");
+		System.out.println(
+				"-json\t\t\t\t\t\t\t\tSave the refactorings detected by -a, -bc and -bt as JSON lines instead of CSV");
+		System.out.println(
+				"-async\t\t\t\t\t\t\t\tSave the refactorings detected by -a, -bc and -bt from a separate thread");
 	}
 
 	private static IllegalArgumentException argumentException() {
 		return new IllegalArgumentException("Type `RefactoringMiner -h` to show usage.");
 	}
 
-	private static String getResultRefactoringDescription(String commitId, Refactoring ref) {
-		StringBuilder builder = new StringBuilder();
-		builder.append(commitId);
-		builder.append(";");
-		builder.append(ref.getName());
-		builder.append(";");
-		builder.append(ref);
-		return builder.toString();
+	private static RefactoringWriter openResultWriter(String filePath) throws IOException {
+		Path path = Paths.get(filePath);
+		return jsonOutput ? RefactoringWriter.jsonLines(path, asyncOutput) : RefactoringWriter.csv(path, asyncOutput);
 	}
 
-	private static void saveToFile(String fileName, String content) {
-		Path path = Paths.get(fileName);
-		byte[] contentBytes = (content + System.lineSeparator()).getBytes();
-		try {
-			Files.write(path, contentBytes, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
-		} catch (IOException e) {
-			e.printStackTrace();
+	/**
+	 * Removes the options of the result file from the arguments.
+	 */
+	private static String[] parseOutputOptions(String[] args) {
+		List<String> remaining = new ArrayList<String>(args.length);
+		for (String arg : args) {
+			if (arg.equalsIgnoreCase("-json")) {
+				jsonOutput = true;
+			} else if (arg.equalsIgnoreCase("-async")) {
+				asyncOutput = true;
+			} else {
+				remaining.add(arg);
+			}
 		}
-	}
-
-	private static String getResultHeader() {
-		return "CommitId;RefactoringType;RefactoringDetail";
+		return remaining.toArray(new String[remaining.size()]);
 	}
 
 }
@@ -0,0 +1,85 @@
+package org.refactoringminer.api;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.jgit.revwalk.RevCommit;
+
+/**
+ * Outcome of the analysis of a single commit: either the refactorings detected in it, or the exception that
+ * prevented its analysis.
+ */
+public class CommitRefactorings {
+	private final String commitId;
+	private final RevCommit commit;
+	private final List<Refactoring> refactorings;
+	private final Exception exception;
+	private final DetectionStatistics statistics;
+
+	public CommitRefactorings(String commitId, RevCommit commit, List<Refactoring> refactorings) {
+		this(commitId, commit, refactorings, null);
+	}
+
+	public CommitRefactorings(String commitId, RevCommit commit, List<Refactoring> refactorings, DetectionStatistics statistics) {
+		this(commitId, commit, refactorings, null, statistics);
+	}
+
+	public CommitRefactorings(String commitId, Exception exception) {
+		this(commitId, exception, null);
+	}
+
+	public CommitRefactorings(String commitId, Exception exception, DetectionStatistics statistics) {
+		this(commitId, null, Collections.<Refactoring>emptyList(), exception, statistics);
+	}
+
+	private CommitRefactorings(String commitId, RevCommit commit, List<Refactoring> refactorings, Exception exception, DetectionStatistics statistics) {
+		this.commitId = commitId;
+		this.commit = commit;
+		this.refactorings = refactorings;
+		this.exception = exception;
+		this.statistics = statistics;
+	}
+
+	/**
+	 * @return The SHA key that identifies the commit.
+	 */
+	public String getCommitId() {
+		return commitId;
+	}
+
+	/**
+	 * @return The metadata of the commit, or null if it is not available (e.g., the commit was analyzed through the GitHub API).
+	 */
+	public RevCommit getCommit() {
+		return commit;
+	}
+
+	/**
+	 * @return The refactorings detected in the commit, empty if the analysis failed.
+	 */
+	public List<Refactoring> getRefactorings() {
+		return refactorings;
+	}
+
+	/**
+	 * @return The exception thrown during the analysis of the commit, or null if the analysis succeeded.
+	 */
+	public Exception getException() {
+		return exception;
+	}
+
+	/**
+	 * @return The time and work spent in each phase of the analysis of the commit, or null if they were not collected.
+	 */
+	public DetectionStatistics getStatistics() {
+		return statistics;
+	}
+
+	public boolean isError() {
+		return exception != null;
+	}
+
+	public String toString() {
+		return isError() ? commitId + " failed: " + exception : commitId + " " + refactorings;
+	}
+}
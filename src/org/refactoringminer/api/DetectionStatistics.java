@@ -0,0 +1,324 @@
+package org.refactoringminer.api;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Wall time, CPU time, allocated bytes and number of runs of each phase of the analysis of a commit, along with
+ * counters of the work done by the diff. The times of a phase exclude the phases nested in it; e.g., the time of
+ * {@link Phase#REFACTORINGS} excludes the operation moves found while computing the refactorings.
+ * <p>
+ * The statistics of a commit are collected by the thread analyzing it, which makes them current with
+ * {@link #setCurrent(DetectionStatistics)}. Tasks run by other threads on behalf of the commit make them current with
+ * {@link #enter(DetectionStatistics)}, and their CPU time and allocated bytes are charged to the running phase.
+ * CPU time and allocated bytes are zero if the JVM does not measure them, and a phase interrupted by an exception
+ * is not recorded.
+ * </p>
+ */
+public class DetectionStatistics {
+	public enum Phase {
+		/** Finding the changed files, and checking them out or reading their contents from the repository. */
+		CHECKOUT,
+		/** Parsing the changed files into the models of the commit and its parent. */
+		PARSING,
+		/** Diffing the models, which matches the operations of the common, moved and renamed classes. */
+		MODEL_DIFF,
+		OPERATION_MOVES,
+		EXTRACTED_AND_MOVED_OPERATIONS,
+		/** Computing the refactorings from the model diff, except for the phases above. */
+		REFACTORINGS
+	}
+
+	public enum Counter {
+		/** Operation body mappers that compared the statements of two operations. */
+		MAPPERS,
+		/** Pairs of leaf statements compared by the mappers. */
+		LEAF_COMPARISONS,
+		EDIT_DISTANCE_CALLS
+	}
+
+	private static final ThreadLocal<DetectionStatistics> CURRENT = new ThreadLocal<DetectionStatistics>();
+	//set once statistics are first made current, so that the counting and timing calls of the diff skip the
+	//thread-local lookup as long as no statistics are collected
+	private static volatile boolean enabled;
+	private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+	private static final boolean CPU_TIME_SUPPORTED = THREAD_MX_BEAN.isCurrentThreadCpuTimeSupported() && THREAD_MX_BEAN.isThreadCpuTimeEnabled();
+	private static final boolean ALLOCATED_BYTES_SUPPORTED = allocatedBytesSupported();
+
+	private final AtomicLongArray wallTimes = new AtomicLongArray(Phase.values().length);
+	private final AtomicLongArray cpuTimes = new AtomicLongArray(Phase.values().length);
+	private final AtomicLongArray allocatedBytes = new AtomicLongArray(Phase.values().length);
+	private final AtomicLongArray runs = new AtomicLongArray(Phase.values().length);
+	private final LongAdder[] counters = new LongAdder[Counter.values().length];
+	private final AtomicInteger commitsCount = new AtomicInteger();
+	//innermost phase being timed by the thread analyzing the commit
+	private volatile PhaseTimer runningTimer;
+
+	/**
+	 * Creates the statistics of a single commit.
+	 */
+	public DetectionStatistics() {
+		this(1);
+	}
+
+	private DetectionStatistics(int commitsCount) {
+		for (int i = 0; i < counters.length; i++) {
+			counters[i] = new LongAdder();
+		}
+		this.commitsCount.set(commitsCount);
+	}
+
+	/**
+	 * @return empty statistics, to be summed up with {@link #add(DetectionStatistics)}
+	 */
+	public static DetectionStatistics total() {
+		return new DetectionStatistics(0);
+	}
+
+	/**
+	 * @return the statistics of the commit analyzed by the current thread, or null if they are not collected
+	 */
+	public static DetectionStatistics current() {
+		return CURRENT.get();
+	}
+
+	public static void setCurrent(DetectionStatistics statistics) {
+		if (statistics == null) {
+			CURRENT.remove();
+		} else {
+			enabled = true;
+			CURRENT.set(statistics);
+		}
+	}
+
+	/**
+	 * Starts timing a phase of the commit analyzed by the current thread, pausing the phase it is nested in.
+	 * @return the timer to pass to {@link #stop(PhaseTimer)}, or null if no statistics are collected
+	 */
+	public static PhaseTimer start(Phase phase) {
+		if (!enabled) {
+			return null;
+		}
+		DetectionStatistics statistics = CURRENT.get();
+		if (statistics == null) {
+			return null;
+		}
+		long wallTime = System.nanoTime();
+		long cpuTime = cpuTime();
+		long allocated = allocatedBytes();
+		PhaseTimer outer = statistics.runningTimer;
+		if (outer != null) {
+			outer.charge(wallTime, cpuTime, allocated);
+		}
+		PhaseTimer timer = new PhaseTimer(statistics, phase, outer, wallTime, cpuTime, allocated);
+		statistics.runningTimer = timer;
+		statistics.runs.incrementAndGet(phase.ordinal());
+		return timer;
+	}
+
+	/**
+	 * Stops timing a phase, and resumes the phase it is nested in.
+	 */
+	public static void stop(PhaseTimer timer) {
+		if (timer == null) {
+			return;
+		}
+		long wallTime = System.nanoTime();
+		long cpuTime = cpuTime();
+		long allocated = allocatedBytes();
+		timer.charge(wallTime, cpuTime, allocated);
+		if (timer.outer != null) {
+			timer.outer.resume(wallTime, cpuTime, allocated);
+		}
+		timer.statistics.runningTimer = timer.outer;
+	}
+
+	public static void count(Counter counter) {
+		if (!enabled) {
+			return;
+		}
+		DetectionStatistics statistics = CURRENT.get();
+		if (statistics != null) {
+			statistics.counters[counter.ordinal()].increment();
+		}
+	}
+
+	/**
+	 * Makes the given statistics current in a task run on behalf of their commit, until {@link #leave(Scope)}.
+	 * If the current thread is not the one analyzing the commit, its CPU time and allocated bytes are charged
+	 * to the phase running when the task ends.
+	 * @return the scope to pass to {@link #leave(Scope)}, or null if {@code statistics} is null
+	 */
+	public static Scope enter(DetectionStatistics statistics) {
+		if (statistics == null) {
+			return null;
+		}
+		DetectionStatistics previous = CURRENT.get();
+		enabled = true;
+		CURRENT.set(statistics);
+		return new Scope(statistics, previous);
+	}
+
+	public static void leave(Scope scope) {
+		if (scope == null) {
+			return;
+		}
+		if (scope.charged) {
+			PhaseTimer timer = scope.statistics.runningTimer;
+			if (timer != null) {
+				scope.statistics.cpuTimes.addAndGet(timer.phase.ordinal(), cpuTime() - scope.cpuStart);
+				scope.statistics.allocatedBytes.addAndGet(timer.phase.ordinal(), allocatedBytes() - scope.allocatedStart);
+			}
+		}
+		setCurrent(scope.previous);
+	}
+
+	/**
+	 * Adds the statistics of other commits to these.
+	 */
+	public void add(DetectionStatistics other) {
+		for (Phase phase : Phase.values()) {
+			int i = phase.ordinal();
+			wallTimes.addAndGet(i, other.wallTimes.get(i));
+			cpuTimes.addAndGet(i, other.cpuTimes.get(i));
+			allocatedBytes.addAndGet(i, other.allocatedBytes.get(i));
+			runs.addAndGet(i, other.runs.get(i));
+		}
+		for (Counter counter : Counter.values()) {
+			counters[counter.ordinal()].add(other.getCount(counter));
+		}
+		commitsCount.addAndGet(other.getCommitsCount());
+	}
+
+	/**
+	 * @return the number of commits these statistics were collected from
+	 */
+	public int getCommitsCount() {
+		return commitsCount.get();
+	}
+
+	/**
+	 * @return the elapsed time of the phase in nanoseconds
+	 */
+	public long getWallTime(Phase phase) {
+		return wallTimes.get(phase.ordinal());
+	}
+
+	/**
+	 * @return the CPU time spent in the phase in nanoseconds, by all the threads working on it
+	 */
+	public long getCpuTime(Phase phase) {
+		return cpuTimes.get(phase.ordinal());
+	}
+
+	public long getAllocatedBytes(Phase phase) {
+		return allocatedBytes.get(phase.ordinal());
+	}
+
+	/**
+	 * @return the number of times the phase was run
+	 */
+	public long getRuns(Phase phase) {
+		return runs.get(phase.ordinal());
+	}
+
+	public long getCount(Counter counter) {
+		return counters[counter.ordinal()].sum();
+	}
+
+	/**
+	 * @return the elapsed time of all phases in nanoseconds
+	 */
+	public long getTotalWallTime() {
+		long total = 0;
+		for (Phase phase : Phase.values()) {
+			total += getWallTime(phase);
+		}
+		return total;
+	}
+
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append(String.format("%d commits, %d ms", getCommitsCount(), getTotalWallTime() / 1000000));
+		for (Phase phase : Phase.values()) {
+			sb.append(String.format("%n  %-30s %8d ms wall %8d ms cpu %10d KB allocated %8d runs", phase,
+					getWallTime(phase) / 1000000, getCpuTime(phase) / 1000000, getAllocatedBytes(phase) / 1024, getRuns(phase)));
+		}
+		for (Counter counter : Counter.values()) {
+			sb.append(String.format("%n  %-30s %12d", counter, getCount(counter)));
+		}
+		return sb.toString();
+	}
+
+	private static long cpuTime() {
+		return CPU_TIME_SUPPORTED ? THREAD_MX_BEAN.getCurrentThreadCpuTime() : 0;
+	}
+
+	private static long allocatedBytes() {
+		return ALLOCATED_BYTES_SUPPORTED ? ((com.sun.management.ThreadMXBean) THREAD_MX_BEAN).getThreadAllocatedBytes(Thread.currentThread().getId()) : 0;
+	}
+
+	private static boolean allocatedBytesSupported() {
+		try {
+			return THREAD_MX_BEAN instanceof com.sun.management.ThreadMXBean &&
+					((com.sun.management.ThreadMXBean) THREAD_MX_BEAN).isThreadAllocatedMemorySupported() &&
+					((com.sun.management.ThreadMXBean) THREAD_MX_BEAN).isThreadAllocatedMemoryEnabled();
+		} catch (LinkageError e) {
+			// not a HotSpot based JVM
+			return false;
+		}
+	}
+
+	public static class PhaseTimer {
+		private final DetectionStatistics statistics;
+		private final Phase phase;
+		private final PhaseTimer outer;
+		private long wallStart;
+		private long cpuStart;
+		private long allocatedStart;
+
+		private PhaseTimer(DetectionStatistics statistics, Phase phase, PhaseTimer outer, long wallStart, long cpuStart, long allocatedStart) {
+			this.statistics = statistics;
+			this.phase = phase;
+			this.outer = outer;
+			this.wallStart = wallStart;
+			this.cpuStart = cpuStart;
+			this.allocatedStart = allocatedStart;
+		}
+
+		//charges the phase with the time elapsed since it was started or last charged
+		private void charge(long wallTime, long cpuTime, long allocated) {
+			int i = phase.ordinal();
+			statistics.wallTimes.addAndGet(i, wallTime - wallStart);
+			statistics.cpuTimes.addAndGet(i, cpuTime - cpuStart);
+			statistics.allocatedBytes.addAndGet(i, allocated - allocatedStart);
+			resume(wallTime, cpuTime, allocated);
+		}
+
+		private void resume(long wallTime, long cpuTime, long allocated) {
+			wallStart = wallTime;
+			cpuStart = cpuTime;
+			allocatedStart = allocated;
+		}
+	}
+
+	public static class Scope {
+		private final DetectionStatistics statistics;
+		private final DetectionStatistics previous;
+		//false if the task runs in the thread that already works for the commit, whose time is charged by the phase timers
+		private final boolean charged;
+		private final long cpuStart;
+		private final long allocatedStart;
+
+		private Scope(DetectionStatistics statistics, DetectionStatistics previous) {
+			this.statistics = statistics;
+			this.previous = previous;
+			this.charged = previous != statistics;
+			this.cpuStart = charged ? cpuTime() : 0;
+			this.allocatedStart = charged ? allocatedBytes() : 0;
+		}
+	}
+}
@@ -1,5 +1,7 @@
 package org.refactoringminer.api;
 
+import java.util.stream.Stream;
+
 import org.eclipse.jgit.lib.Repository;
 
 /**
@@ -51,6 +53,51 @@ public interface GitHistoryRefactoringMiner {
 	void detectBetweenCommits(Repository repository, String startCommitId, String endCommitId, RefactoringHandler handler)
 			throws Exception;
 	
+	/**
+	 * Same as {@link #detectAll(Repository, String, RefactoringHandler)}, but the commits are analyzed lazily,
+	 * as the returned stream is consumed. An implementation analyzing commits in parallel may analyze a bounded number
+	 * of commits ahead of the last one pulled, so a consumer that stops pulling (e.g., with {@code limit} or a
+	 * short-circuiting operation) does not stop the analysis by itself. The stream must be closed, e.g., with
+	 * try-with-resources, to stop the analysis ahead, whose results are discarded, and to release the history walk.
+	 * The default implementation throws {@link UnsupportedOperationException}.
+	 * 
+	 * @param repository A git repository (from JGit library).
+	 * @param branch A branch to start the log lookup. If null, commits from all branches are analyzed.
+	 * @return The results of the analyzed commits, in the order the commits are walked.
+	 * @throws Exception propagated from JGit library.
+	 */
+	default Stream<CommitRefactorings> streamAll(Repository repository, String branch) throws Exception {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Same as {@link #detectBetweenTags(Repository, String, String, RefactoringHandler)}, with the commits analyzed
+	 * lazily as in {@link #streamAll(Repository, String)}.
+	 * 
+	 * @param repository A git repository (from JGit library).
+	 * @param startTag An annotated tag to start the log lookup.
+	 * @param endTag An annotated tag to end the log lookup.
+	 * @return The results of the analyzed commits, in the order the commits are walked.
+	 * @throws Exception propagated from JGit library.
+	 */
+	default Stream<CommitRefactorings> streamBetweenTags(Repository repository, String startTag, String endTag) throws Exception {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Same as {@link #detectBetweenCommits(Repository, String, String, RefactoringHandler)}, with the commits analyzed
+	 * lazily as in {@link #streamAll(Repository, String)}.
+	 * 
+	 * @param repository A git repository (from JGit library).
+	 * @param startCommitId The SHA key that identifies the commit to start the log lookup.
+	 * @param endCommitId The SHA key that identifies the commit to end the log lookup.
+	 * @return The results of the analyzed commits, in the order the commits are walked.
+	 * @throws Exception propagated from JGit library.
+	 */
+	default Stream<CommitRefactorings> streamBetweenCommits(Repository repository, String startCommitId, String endCommitId) throws Exception {
+		throw new UnsupportedOperationException();
+	}
+
 	/**
 	 * Fetch new commits from the remote repo and detect all refactorings performed in these
 	 * commits.
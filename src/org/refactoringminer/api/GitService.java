@@ -1,8 +1,14 @@
 package org.refactoringminer.api;
 
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.revwalk.RevCommit;
 import org.eclipse.jgit.revwalk.RevWalk;
@@ -43,5 +49,42 @@ public interface GitService {
 
 	void fileTreeDiff(Repository repository, RevCommit currentCommit, List<String> filesBefore, List<String> filesCurrent, Map<String, String> renamedFilesHint) throws Exception;
 
+	/**
+	 * Same as {@link #fileTreeDiff(Repository, RevCommit, List, List, Map)}, but collects the blob ids of the changed Java files,
+	 * so that their contents can be read from the git object database instead of requiring a checkout.
+	 * The default implementation throws {@link UnsupportedOperationException}, so that checkout-free mining
+	 * requires a service implementing this method, such as {@code GitServiceImpl}.
+	 * 
+	 * @param repository The repository object (JGit library).
+	 * @param currentCommit The commit to be compared with its first parent.
+	 * @param fileBlobsBefore Receives the blob ids of the changed files in the parent commit, keyed by path.
+	 * @param fileBlobsCurrent Receives the blob ids of the changed files in the current commit, keyed by path.
+	 * @param renamedFilesHint Receives the renamed files.
+	 * @param repositoryDirectoriesCurrent Receives the parent directories of the changed files in the parent commit that still exist in the current commit.
+	 * @throws Exception propagated from JGit library.
+	 */
+	default void fileTreeDiff(Repository repository, RevCommit currentCommit, Map<String, ObjectId> fileBlobsBefore, Map<String, ObjectId> fileBlobsCurrent, Map<String, String> renamedFilesHint, Set<String> repositoryDirectoriesCurrent) throws Exception {
+		throw new UnsupportedOperationException("Checkout-free mining is not supported by " + getClass().getName());
+	}
+
+	/**
+	 * Read the contents of the given blobs from the git object database.
+	 * 
+	 * @param repository The repository object (JGit library).
+	 * @param fileBlobs The blob ids keyed by file path.
+	 * @return The file contents keyed by file path, in the iteration order of {@code fileBlobs}.
+	 * @throws Exception propagated from JGit library.
+	 */
+	default Map<String, String> readFileContents(Repository repository, Map<String, ObjectId> fileBlobs) throws Exception {
+		Map<String, String> fileContents = new LinkedHashMap<String, String>();
+		try (ObjectReader reader = repository.newObjectReader()) {
+			for (Map.Entry<String, ObjectId> entry : fileBlobs.entrySet()) {
+				byte[] bytes = reader.open(entry.getValue(), Constants.OBJ_BLOB).getCachedBytes();
+				fileContents.put(entry.getKey(), new String(bytes, StandardCharsets.UTF_8));
+			}
+		}
+		return fileContents;
+	}
+
 	Churn churn(Repository repository, RevCommit currentCommit) throws Exception;
 }
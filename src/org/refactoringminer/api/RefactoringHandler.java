@@ -59,4 +59,21 @@ public abstract class RefactoringHandler {
 	 * @param errorCommitsCount Total number of commits not analyzed due to errors.
 	 */
 	public void onFinish(int refactoringsCount, int commitsCount, int errorCommitsCount) {}
+
+	/**
+	 * This method is called after each commit is analyzed, before its refactorings or exception are handled,
+	 * if the miner collects statistics.
+	 * You may override this method to find out where the analysis of a commit spends its time.
+	 * 
+	 * @param commitId The SHA key that identifies the commit.
+	 * @param statistics Time and work spent in each phase of the analysis of the commit.
+	 */
+	public void handleStatistics(String commitId, DetectionStatistics statistics) {}
+
+	/**
+	 * This method is called after all commits are analyzed, before {@link #onFinish(int, int, int)}, if the miner collects statistics.
+	 * 
+	 * @param statistics Time and work spent in each phase of the analysis, summed over all analyzed commits.
+	 */
+	public void onFinish(DetectionStatistics statistics) {}
 }
@@ -2,6 +2,7 @@ package org.refactoringminer.rm1;
 
 import gr.uom.java.xmi.UMLModel;
 import gr.uom.java.xmi.UMLModelASTReader;
+import gr.uom.java.xmi.diff.UMLModelDiff;
 
 import java.io.File;
 import java.io.FileInputStream;
@@ -10,22 +11,44 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URL;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Properties;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.revwalk.RevCommit;
 import org.eclipse.jgit.revwalk.RevWalk;
@@ -33,6 +56,10 @@ import org.kohsuke.github.GHCommit;
 import org.kohsuke.github.GHRepository;
 import org.kohsuke.github.GitHub;
 import org.refactoringminer.api.Churn;
+import org.refactoringminer.api.CommitRefactorings;
+import org.refactoringminer.api.DetectionStatistics;
+import org.refactoringminer.api.DetectionStatistics.Phase;
+import org.refactoringminer.api.DetectionStatistics.PhaseTimer;
 import org.refactoringminer.api.GitHistoryRefactoringMiner;
 import org.refactoringminer.api.GitService;
 import org.refactoringminer.api.Refactoring;
@@ -46,6 +73,21 @@ public class GitHistoryRefactoringMinerImpl implements GitHistoryRefactoringMine
 
 	Logger logger = LoggerFactory.getLogger(GitHistoryRefactoringMinerImpl.class);
 	private Set<RefactoringType> refactoringTypesToConsider = null;
+	private boolean checkoutFree = false;
+	private int numberOfThreads = 1;
+	private boolean orderedDelivery = true;
+	private volatile UMLModelCache modelCache = null;
+	private boolean reusePreviousCommitModels = false;
+	private ForkJoinPool parsingPool = null;
+	private boolean lazyOperationBodies = false;
+	private ForkJoinPool diffPool = null;
+	private boolean collectStatistics = false;
+	private final Map<ObjectId, UMLModelCache> previousCommitFragments = Collections.synchronizedMap(new LinkedHashMap<ObjectId, UMLModelCache>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<ObjectId, UMLModelCache> eldest) {
+			return size() > 2 * Math.max(1, numberOfThreads);
+		}
+	});
 	
 	public GitHistoryRefactoringMinerImpl() {
 		this.setRefactoringTypesToConsider(
@@ -84,7 +126,128 @@ public class GitHistoryRefactoringMinerImpl implements GitHistoryRefactoringMine
 		}
 	}
 	
+	/**
+	 * When enabled, the models of each commit and its parent are built from the blobs in the git object database,
+	 * so the working tree is never checked out.
+	 */
+	public void setCheckoutFree(boolean checkoutFree) {
+		this.checkoutFree = checkoutFree;
+	}
+
+	public boolean isCheckoutFree() {
+		return checkoutFree;
+	}
+
+	/**
+	 * Sets the number of worker threads used to analyze commits. With more than one thread, each worker builds
+	 * its own models in memory from the git object database (see {@link #setCheckoutFree(boolean)}), since a
+	 * checkout would be shared by all workers.
+	 */
+	public void setNumberOfThreads(int numberOfThreads) {
+		this.numberOfThreads = Math.max(1, numberOfThreads);
+	}
+
+	public int getNumberOfThreads() {
+		return numberOfThreads;
+	}
+
+	/**
+	 * When analyzing commits in parallel, controls whether the handler receives the results in the order
+	 * the commits are walked (default), or as soon as each commit is analyzed.
+	 */
+	public void setOrderedDelivery(boolean orderedDelivery) {
+		this.orderedDelivery = orderedDelivery;
+	}
+
+	public boolean isOrderedDelivery() {
+		return orderedDelivery;
+	}
+
+	/**
+	 * Enables a cache of the models parsed from each file blob in checkout-free mode, keeping up to
+	 * {@code maxEntries} files. The diff only reads the models it compares, so the cached models are shared by
+	 * the commits analyzed by all workers. A model is never shared by the two sides of the same commit, though,
+	 * because the operation body mappers tell the statements of the two sides apart by identity.
+	 * A size of zero disables the cache.
+	 */
+	public void setModelCacheSize(int maxEntries) {
+		if (maxEntries > 0) {
+			this.modelCache = new UMLModelCache(maxEntries);
+		}
+		else {
+			this.modelCache = null;
+		}
+	}
+
+	UMLModelCache getModelCache() {
+		return modelCache;
+	}
+
+	/**
+	 * Enables model reuse along a history walk in checkout-free mode: the file models built for a commit are kept
+	 * under the id of its parent, and the models of that parent, when analyzed next, are patched together from them,
+	 * parsing only the files whose content differs. In a linear history, the files a commit shares with its neighbor
+	 * are then parsed once instead of twice. Since the walk visits children before their parents, and the models are
+	 * kept by parent id rather than by worker, parallel workers reuse them too, as long as the analysis of a child
+	 * has completed when the analysis of its parent starts. A few of these model sets are kept at a time, twice as many
+	 * as the number of threads.
+	 */
+	public void setReusePreviousCommitModels(boolean reusePreviousCommitModels) {
+		this.reusePreviousCommitModels = reusePreviousCommitModels;
+	}
+
+	/**
+	 * Sets the number of threads used to parse the files of a single commit, which pays off for commits touching
+	 * many files (e.g., package renames). The pool is shared by all commit workers. The resulting models are the same
+	 * as with a single thread.
+	 */
+	public void setNumberOfParsingThreads(int numberOfParsingThreads) {
+		if (parsingPool != null) {
+			parsingPool.shutdown();
+		}
+		this.parsingPool = numberOfParsingThreads > 1 ? new ForkJoinPool(numberOfParsingThreads) : null;
+	}
+
+	/**
+	 * Defers the decomposition of each method body into statements until the body is first compared, so that the
+	 * bodies of methods that are never compared are not decomposed. Until then, only the text of the file is kept,
+	 * and a body is decomposed from its own text parsed again. Bodies with syntax errors are still decomposed eagerly,
+	 * since the parser may recover them differently on their own. The detected refactorings are the same as with eager
+	 * decomposition.
+	 */
+	public void setLazyOperationBodies(boolean lazyOperationBodies) {
+		this.lazyOperationBodies = lazyOperationBodies;
+	}
+
+	/**
+	 * Sets the number of threads used to diff the classes common to a commit and its parent. The pool is shared by
+	 * all commit workers. The detected refactorings are the same as with a single thread.
+	 */
+	public void setNumberOfDiffThreads(int numberOfDiffThreads) {
+		if (diffPool != null) {
+			diffPool.shutdown();
+		}
+		this.diffPool = numberOfDiffThreads > 1 ? new ForkJoinPool(numberOfDiffThreads) : null;
+	}
+
+	/**
+	 * When enabled, the time and work spent in each phase of the analysis of a commit are passed to
+	 * {@link RefactoringHandler#handleStatistics(String, DetectionStatistics)}, and summed over all analyzed commits in
+	 * {@link RefactoringHandler#onFinish(DetectionStatistics)}. The commits returned by the streams carry their statistics.
+	 */
+	public void setCollectStatistics(boolean collectStatistics) {
+		this.collectStatistics = collectStatistics;
+	}
+
+	public boolean isCollectStatistics() {
+		return collectStatistics;
+	}
+
 	private void detect(GitService gitService, Repository repository, final RefactoringHandler handler, Iterator<RevCommit> i) {
+		if (numberOfThreads > 1) {
+			detectInParallel(gitService, repository, handler, i);
+			return;
+		}
 		int commitsCount = 0;
 		int errorCommitsCount = 0;
 		int refactoringsCount = 0;
@@ -93,18 +256,24 @@ public class GitHistoryRefactoringMinerImpl implements GitHistoryRefactoringMine
 		File projectFolder = metadataFolder.getParentFile();
 		String projectName = projectFolder.getName();
 		
+		DetectionStatistics totalStatistics = collectStatistics ? DetectionStatistics.total() : null;
 		long time = System.currentTimeMillis();
 		while (i.hasNext()) {
 			RevCommit currentCommit = i.next();
+			DetectionStatistics statistics = startStatistics();
 			try {
 				List<Refactoring> refactoringsAtRevision = detectRefactorings(gitService, repository, handler, projectFolder, currentCommit);
 				refactoringsCount += refactoringsAtRevision.size();
 				
 			} catch (Exception e) {
 				logger.warn(String.format("Ignored revision %s due to error", currentCommit.getId().getName()), e);
+				reportStatistics(handler, currentCommit.getId().getName());
 				handler.handleException(currentCommit.getId().getName(),e);
 				errorCommitsCount++;
 			}
+			if (statistics != null) {
+				totalStatistics.add(statistics);
+			}
 
 			commitsCount++;
 			long time2 = System.currentTimeMillis();
@@ -113,44 +282,228 @@ public class GitHistoryRefactoringMinerImpl implements GitHistoryRefactoringMine
 				logger.info(String.format("Processing %s [Commits: %d, Errors: %d, Refactorings: %d]", projectName, commitsCount, errorCommitsCount, refactoringsCount));
 			}
 		}
+		previousCommitFragments.clear();
+
+		finishStatistics(handler, projectName, totalStatistics);
+		handler.onFinish(refactoringsCount, commitsCount, errorCommitsCount);
+		logger.info(String.format("Analyzed %s [Commits: %d, Errors: %d, Refactorings: %d]", projectName, commitsCount, errorCommitsCount, refactoringsCount));
+	}
+
+	private void detectInParallel(final GitService gitService, final Repository repository, final RefactoringHandler handler, Iterator<RevCommit> i) {
+		int commitsCount = 0;
+		int errorCommitsCount = 0;
+		int refactoringsCount = 0;
+
+		File metadataFolder = repository.getDirectory();
+		final File projectFolder = metadataFolder.getParentFile();
+		String projectName = projectFolder.getName();
+
+		ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads);
+		CompletionService<CommitAnalysis> completionService = new ExecutorCompletionService<CommitAnalysis>(executor);
+		// bounds the number of analyzed commits waiting to be delivered
+		int maxPending = 2 * numberOfThreads;
+		Deque<Future<CommitAnalysis>> pending = new ArrayDeque<Future<CommitAnalysis>>();
+		DetectionStatistics totalStatistics = collectStatistics ? DetectionStatistics.total() : null;
+		long time = System.currentTimeMillis();
+		try {
+			while (i.hasNext() || !pending.isEmpty()) {
+				if (i.hasNext() && pending.size() < maxPending) {
+					// the walk is not thread safe, so commits are always pulled from this thread
+					final RevCommit currentCommit = i.next();
+					Callable<CommitAnalysis> task = new Callable<CommitAnalysis>() {
+						@Override
+						public CommitAnalysis call() {
+							DetectionStatistics statistics = startStatistics();
+							try {
+								return new CommitAnalysis(currentCommit, detectRefactoringsInMemory(gitService, repository, projectFolder, currentCommit), null, statistics);
+							} catch (Exception e) {
+								return new CommitAnalysis(currentCommit, Collections.<Refactoring>emptyList(), e, statistics);
+							} finally {
+								DetectionStatistics.setCurrent(null);
+							}
+						}
+					};
+					pending.add(orderedDelivery ? executor.submit(task) : completionService.submit(task));
+					continue;
+				}
+				Future<CommitAnalysis> future;
+				if (orderedDelivery) {
+					future = pending.poll();
+				} else {
+					future = completionService.take();
+					pending.remove(future);
+				}
+				CommitAnalysis analysis = future.get();
+				String commitId = analysis.commit.getId().getName();
+				if (analysis.statistics != null) {
+					handler.handleStatistics(commitId, analysis.statistics);
+					totalStatistics.add(analysis.statistics);
+				}
+				if (analysis.exception != null) {
+					logger.warn(String.format("Ignored revision %s due to error", commitId), analysis.exception);
+					handler.handleException(commitId, analysis.exception);
+					errorCommitsCount++;
+				} else {
+					handler.handle(commitId, analysis.refactorings);
+					handler.handle(analysis.commit, analysis.refactorings);
+					refactoringsCount += analysis.refactorings.size();
+				}
+
+				commitsCount++;
+				long time2 = System.currentTimeMillis();
+				if ((time2 - time) > 20000) {
+					time = time2;
+					logger.info(String.format("Processing %s [Commits: %d, Errors: %d, Refactorings: %d]", projectName, commitsCount, errorCommitsCount, refactoringsCount));
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		} finally {
+			executor.shutdownNow();
+			previousCommitFragments.clear();
+		}
 
+		finishStatistics(handler, projectName, totalStatistics);
 		handler.onFinish(refactoringsCount, commitsCount, errorCommitsCount);
 		logger.info(String.format("Analyzed %s [Commits: %d, Errors: %d, Refactorings: %d]", projectName, commitsCount, errorCommitsCount, refactoringsCount));
 	}
 
+	private static class CommitAnalysis {
+		private final RevCommit commit;
+		private final List<Refactoring> refactorings;
+		private final Exception exception;
+		private final DetectionStatistics statistics;
+
+		private CommitAnalysis(RevCommit commit, List<Refactoring> refactorings, Exception exception, DetectionStatistics statistics) {
+			this.commit = commit;
+			this.refactorings = refactorings;
+			this.exception = exception;
+			this.statistics = statistics;
+		}
+	}
+
+	/**
+	 * @return the statistics of the commit about to be analyzed by the current thread, or null if they are not collected
+	 */
+	private DetectionStatistics startStatistics() {
+		if (!collectStatistics) {
+			return null;
+		}
+		DetectionStatistics statistics = new DetectionStatistics();
+		DetectionStatistics.setCurrent(statistics);
+		return statistics;
+	}
+
+	/**
+	 * Passes the statistics of the commit analyzed by the current thread to the handler, and stops collecting them.
+	 */
+	private void reportStatistics(RefactoringHandler handler, String commitId) {
+		DetectionStatistics statistics = DetectionStatistics.current();
+		if (statistics != null) {
+			DetectionStatistics.setCurrent(null);
+			handler.handleStatistics(commitId, statistics);
+		}
+	}
+
+	private void finishStatistics(RefactoringHandler handler, String projectName, DetectionStatistics totalStatistics) {
+		if (totalStatistics != null) {
+			handler.onFinish(totalStatistics);
+			logger.info(String.format("Statistics of %s: %s", projectName, totalStatistics));
+		}
+	}
+
 	protected List<Refactoring> detectRefactorings(GitService gitService, Repository repository, final RefactoringHandler handler, File projectFolder, RevCommit currentCommit) throws Exception {
+		if (checkoutFree) {
+			List<Refactoring> refactoringsAtRevision = detectRefactoringsInMemory(gitService, repository, projectFolder, currentCommit);
+			reportStatistics(handler, currentCommit.getId().getName());
+			handler.handle(currentCommit.getId().getName(), refactoringsAtRevision);
+			handler.handle(currentCommit, refactoringsAtRevision);
+			return refactoringsAtRevision;
+		}
 		List<Refactoring> refactoringsAtRevision;
 		String commitId = currentCommit.getId().getName();
 		List<String> filesBefore = new ArrayList<String>();
 		List<String> filesCurrent = new ArrayList<String>();
 		Map<String, String> renamedFilesHint = new HashMap<String, String>();
+		PhaseTimer timer = DetectionStatistics.start(Phase.CHECKOUT);
 		gitService.fileTreeDiff(repository, currentCommit, filesBefore, filesCurrent, renamedFilesHint);
+		DetectionStatistics.stop(timer);
 		// If no java files changed, there is no refactoring. Also, if there are
 		// only ADD's or only REMOVE's there is no refactoring
 		if (!filesBefore.isEmpty() && !filesCurrent.isEmpty() && currentCommit.getParentCount() > 0) {
 			// Checkout and build model for parent commit
 			String parentCommit = currentCommit.getParent(0).getName();
+			timer = DetectionStatistics.start(Phase.CHECKOUT);
 			gitService.checkout(repository, parentCommit);
+			DetectionStatistics.stop(timer);
+			timer = DetectionStatistics.start(Phase.PARSING);
 			UMLModel parentUMLModel = createModel(projectFolder, filesBefore);
+			DetectionStatistics.stop(timer);
 			
 			// Checkout and build model for current commit
+			timer = DetectionStatistics.start(Phase.CHECKOUT);
 			gitService.checkout(repository, commitId);
+			DetectionStatistics.stop(timer);
+			timer = DetectionStatistics.start(Phase.PARSING);
 			UMLModel currentUMLModel = createModel(projectFolder, filesCurrent);
+			DetectionStatistics.stop(timer);
 			
 			// Diff between currentModel e parentModel
-			refactoringsAtRevision = parentUMLModel.diff(currentUMLModel, renamedFilesHint).getRefactorings();
-			refactoringsAtRevision = filter(refactoringsAtRevision);
+			refactoringsAtRevision = diff(parentUMLModel, currentUMLModel, renamedFilesHint);
 			
 		} else {
 			//logger.info(String.format("Ignored revision %s with no changes in java files", commitId));
 			refactoringsAtRevision = Collections.emptyList();
 		}
+		reportStatistics(handler, commitId);
 		handler.handle(commitId, refactoringsAtRevision);
 		handler.handle(currentCommit, refactoringsAtRevision);
 
 		return refactoringsAtRevision;
 	}
 
+	protected List<Refactoring> detectRefactoringsInMemory(GitService gitService, Repository repository, File projectFolder, RevCommit currentCommit) throws Exception {
+		List<Refactoring> refactoringsAtRevision;
+		Map<String, ObjectId> fileBlobsBefore = new LinkedHashMap<String, ObjectId>();
+		Map<String, ObjectId> fileBlobsCurrent = new LinkedHashMap<String, ObjectId>();
+		Map<String, String> renamedFilesHint = new HashMap<String, String>();
+		Set<String> repositoryDirectoriesCurrent = new HashSet<String>();
+		PhaseTimer timer = DetectionStatistics.start(Phase.CHECKOUT);
+		gitService.fileTreeDiff(repository, currentCommit, fileBlobsBefore, fileBlobsCurrent, renamedFilesHint, repositoryDirectoriesCurrent);
+		DetectionStatistics.stop(timer);
+		// If no java files changed, there is no refactoring. Also, if there are
+		// only ADD's or only REMOVE's there is no refactoring
+		if (!fileBlobsBefore.isEmpty() && !fileBlobsCurrent.isEmpty() && currentCommit.getParentCount() > 0) {
+			// files whose content did not change (e.g., only their mode did) must not share model objects between the two models
+			Set<String> unchangedFiles = new HashSet<String>();
+			for (Map.Entry<String, ObjectId> entry : fileBlobsCurrent.entrySet()) {
+				if (entry.getValue().equals(fileBlobsBefore.get(entry.getKey()))) {
+					unchangedFiles.add(entry.getKey());
+				}
+			}
+			UMLModelCache commitFragments = reusePreviousCommitModels ? new UMLModelCache(Integer.MAX_VALUE) : null;
+			UMLModelCache previousFragments = reusePreviousCommitModels ? previousCommitFragments.remove(currentCommit.getId()) : null;
+			timer = DetectionStatistics.start(Phase.PARSING);
+			UMLModel parentUMLModel = createModel(gitService, repository, projectFolder, fileBlobsBefore, null, Collections.<String>emptySet(), previousFragments, commitFragments);
+			UMLModel currentUMLModel = createModel(gitService, repository, projectFolder, fileBlobsCurrent, repositoryDirectoriesCurrent, unchangedFiles, previousFragments, commitFragments);
+			DetectionStatistics.stop(timer);
+			if (commitFragments != null) {
+				for (RevCommit parent : currentCommit.getParents()) {
+					previousCommitFragments.put(parent.getId(), commitFragments);
+				}
+			}
+			
+			// Diff between currentModel e parentModel
+			refactoringsAtRevision = diff(parentUMLModel, currentUMLModel, renamedFilesHint);
+		} else {
+			refactoringsAtRevision = Collections.emptyList();
+		}
+		return refactoringsAtRevision;
+	}
+
 	protected List<Refactoring> detectRefactorings(final RefactoringHandler handler, File projectFolder, String cloneURL, String currentCommitId) {
 		List<Refactoring> refactoringsAtRevision = Collections.emptyList();
 		try {
@@ -160,26 +513,31 @@ public class GitHistoryRefactoringMinerImpl implements GitHistoryRefactoringMine
 			String parentCommitId = populateWithGitHubAPI(cloneURL, currentCommitId, filesBefore, filesCurrent, renamedFilesHint);
 			File currentFolder = new File(projectFolder.getParentFile(), projectFolder.getName() + "-" + currentCommitId);
 			File parentFolder = new File(projectFolder.getParentFile(), projectFolder.getName() + "-" + parentCommitId);
+			PhaseTimer timer = DetectionStatistics.start(Phase.CHECKOUT);
 			if (!currentFolder.exists()) {	
 				downloadAndExtractZipFile(projectFolder, cloneURL, currentCommitId);
 			}
 			if (!parentFolder.exists()) {	
 				downloadAndExtractZipFile(projectFolder, cloneURL, parentCommitId);
 			}
+			DetectionStatistics.stop(timer);
 			if (currentFolder.exists() && parentFolder.exists()) {
+				timer = DetectionStatistics.start(Phase.PARSING);
 				UMLModel currentUMLModel = createModel(currentFolder, filesCurrent);
 				UMLModel parentUMLModel = createModel(parentFolder, filesBefore);
+				DetectionStatistics.stop(timer);
 				// Diff between currentModel e parentModel
-				refactoringsAtRevision = parentUMLModel.diff(currentUMLModel, renamedFilesHint).getRefactorings();
-				refactoringsAtRevision = filter(refactoringsAtRevision);
+				refactoringsAtRevision = diff(parentUMLModel, currentUMLModel, renamedFilesHint);
 			}
 			else {
 				logger.warn(String.format("Folder %s not found", currentFolder.getPath()));
 			}
 		} catch (Exception e) {
 			logger.warn(String.format("Ignored revision %s due to error", currentCommitId), e);
+			reportStatistics(handler, currentCommitId);
 			handler.handleException(currentCommitId, e);
 		}
+		reportStatistics(handler, currentCommitId);
 		handler.handle(currentCommitId, refactoringsAtRevision);
 
 		return refactoringsAtRevision;
@@ -257,6 +615,16 @@ public class GitHistoryRefactoringMinerImpl implements GitHistoryRefactoringMine
 		return parentCommitId;
 	}
 
+	private List<Refactoring> diff(UMLModel parentUMLModel, UMLModel currentUMLModel, Map<String, String> renamedFilesHint) {
+		PhaseTimer timer = DetectionStatistics.start(Phase.MODEL_DIFF);
+		UMLModelDiff modelDiff = parentUMLModel.diff(currentUMLModel, renamedFilesHint, diffPool, refactoringTypesToConsider);
+		DetectionStatistics.stop(timer);
+		timer = DetectionStatistics.start(Phase.REFACTORINGS);
+		List<Refactoring> refactoringsAtRevision = modelDiff.getRefactorings();
+		DetectionStatistics.stop(timer);
+		return filter(refactoringsAtRevision);
+	}
+
 	protected List<Refactoring> filter(List<Refactoring> refactoringsAtRevision) {
 		if (this.refactoringTypesToConsider == null) {
 			return refactoringsAtRevision;
@@ -303,15 +671,87 @@ public class GitHistoryRefactoringMinerImpl implements GitHistoryRefactoringMine
 	}
 
 	protected UMLModel createModel(File projectFolder, List<String> files) throws Exception {
+		if (parsingPool != null || lazyOperationBodies) {
+			return new UMLModelASTReader(projectFolder, files, parsingPool, lazyOperationBodies).getUmlModel();
+		}
 		return new UMLModelASTReader(projectFolder, files).getUmlModel();
 	}
 
+	protected UMLModel createModel(File projectFolder, Map<String, String> fileContents, Set<String> repositoryDirectories) throws Exception {
+		if (parsingPool != null || lazyOperationBodies) {
+			return new UMLModelASTReader(projectFolder, fileContents, repositoryDirectories, parsingPool, lazyOperationBodies).getUmlModel();
+		}
+		return new UMLModelASTReader(projectFolder, fileContents, repositoryDirectories).getUmlModel();
+	}
+
+	/**
+	 * Builds a model from the given blobs, reusing the file models found in the model cache or in the file models
+	 * kept from the analysis of a child commit, and parsing only the remaining files.
+	 * 
+	 * @param uncachedFiles Files that must be parsed again, because they are also part of the other model of the same commit,
+	 * whose statements must be distinct instances.
+	 * @param previousFragments The file models kept from the analysis of a child commit, if any.
+	 * @param commitFragments Receives the file models of this commit, if model reuse between commits is enabled.
+	 */
+	protected UMLModel createModel(GitService gitService, Repository repository, File projectFolder, Map<String, ObjectId> fileBlobs, Set<String> repositoryDirectories,
+			Set<String> uncachedFiles, UMLModelCache previousFragments, UMLModelCache commitFragments) throws Exception {
+		UMLModelCache cache = modelCache;
+		if (cache == null && commitFragments == null) {
+			PhaseTimer timer = DetectionStatistics.start(Phase.CHECKOUT);
+			Map<String, String> fileContents = gitService.readFileContents(repository, fileBlobs);
+			DetectionStatistics.stop(timer);
+			return createModel(projectFolder, fileContents, repositoryDirectories);
+		}
+		Map<String, UMLModel> fragments = new LinkedHashMap<String, UMLModel>();
+		Map<String, ObjectId> missingBlobs = new LinkedHashMap<String, ObjectId>();
+		for (Map.Entry<String, ObjectId> entry : fileBlobs.entrySet()) {
+			UMLModel fragment = null;
+			if (!uncachedFiles.contains(entry.getKey())) {
+				if (previousFragments != null) {
+					fragment = previousFragments.get(entry.getValue(), entry.getKey());
+				}
+				if (fragment == null && cache != null) {
+					fragment = cache.get(entry.getValue(), entry.getKey());
+				}
+			}
+			fragments.put(entry.getKey(), fragment);
+			if (fragment == null) {
+				missingBlobs.put(entry.getKey(), entry.getValue());
+			}
+		}
+		PhaseTimer timer = DetectionStatistics.start(Phase.CHECKOUT);
+		Map<String, String> missingContents = gitService.readFileContents(repository, missingBlobs);
+		DetectionStatistics.stop(timer);
+		for (Map.Entry<String, String> entry : missingContents.entrySet()) {
+			UMLModel fragment = createModel(projectFolder, Collections.singletonMap(entry.getKey(), entry.getValue()), null);
+			if (cache != null && !uncachedFiles.contains(entry.getKey())) {
+				cache.put(missingBlobs.get(entry.getKey()), entry.getKey(), fragment);
+			}
+			fragments.put(entry.getKey(), fragment);
+		}
+		if (commitFragments != null) {
+			for (Map.Entry<String, UMLModel> entry : fragments.entrySet()) {
+				if (!uncachedFiles.contains(entry.getKey())) {
+					commitFragments.put(fileBlobs.get(entry.getKey()), entry.getKey(), entry.getValue());
+				}
+			}
+		}
+		// assembled in the order of the changed files, as if all of them were parsed together
+		UMLModel model = new UMLModel(projectFolder.getPath());
+		model.setRepositoryDirectories(repositoryDirectories);
+		for (UMLModel fragment : fragments.values()) {
+			model.addAll(fragment);
+		}
+		return model;
+	}
+
 	@Override
 	public void detectAtCommit(Repository repository, String cloneURL, String commitId, RefactoringHandler handler) {
 		File metadataFolder = repository.getDirectory();
 		File projectFolder = metadataFolder.getParentFile();
 		GitService gitService = new GitServiceImpl();
 		RevWalk walk = new RevWalk(repository);
+		startStatistics();
 		try {
 			RevCommit commit = walk.parseCommit(repository.resolve(commitId));
 			if (commit.getParentCount() > 0) {
@@ -325,8 +765,10 @@ public class GitHistoryRefactoringMinerImpl implements GitHistoryRefactoringMine
 			this.detectRefactorings(handler, projectFolder, cloneURL, commitId);
 		} catch (Exception e) {
 			logger.warn(String.format("Ignored revision %s due to error", commitId), e);
+			reportStatistics(handler, commitId);
 			handler.handleException(commitId, e);
 		} finally {
+			DetectionStatistics.setCurrent(null);
 			walk.close();
 			walk.dispose();
 		}
@@ -375,6 +817,143 @@ public class GitHistoryRefactoringMinerImpl implements GitHistoryRefactoringMine
 		}
 	}
 
+	@Override
+	public Stream<CommitRefactorings> streamAll(Repository repository, String branch) throws Exception {
+		GitService gitService = new GitServiceImpl();
+		return stream(gitService, repository, gitService.createAllRevsWalk(repository, branch));
+	}
+
+	@Override
+	public Stream<CommitRefactorings> streamBetweenTags(Repository repository, String startTag, String endTag) throws Exception {
+		GitService gitService = new GitServiceImpl();
+		return stream(gitService, repository, gitService.createRevsWalkBetweenTags(repository, startTag, endTag));
+	}
+
+	@Override
+	public Stream<CommitRefactorings> streamBetweenCommits(Repository repository, String startCommitId, String endCommitId) throws Exception {
+		GitService gitService = new GitServiceImpl();
+		return stream(gitService, repository, gitService.createRevsWalkBetweenCommits(repository, startCommitId, endCommitId));
+	}
+
+	private Stream<CommitRefactorings> stream(GitService gitService, Repository repository, final RevWalk walk) {
+		final CommitIterator iterator = new CommitIterator(gitService, repository, walk.iterator());
+		Spliterator<CommitRefactorings> spliterator = Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL);
+		return StreamSupport.stream(spliterator, false).onClose(new Runnable() {
+			@Override
+			public void run() {
+				iterator.close();
+				walk.dispose();
+			}
+		});
+	}
+
+	/**
+	 * Analyzes the walked commits on demand. With more than one thread, up to {@code 2 * numberOfThreads} commits
+	 * following the last requested one are analyzed ahead, as in {@link #detectInParallel}. Closing the iterator cancels
+	 * the analyses that have not started; those already running are not interrupted, and their results are discarded.
+	 * The analyzing threads are daemon threads, so that a stream that is neither exhausted nor closed does not keep
+	 * the JVM alive, and they terminate once the last commit of the walk is analyzed, the iterator is closed, or they
+	 * have been idle for {@link #IDLE_THREAD_TIMEOUT_SECONDS}, e.g., in an abandoned stream.
+	 */
+	private class CommitIterator implements Iterator<CommitRefactorings> {
+		private static final long IDLE_THREAD_TIMEOUT_SECONDS = 10;
+		private final GitService gitService;
+		private final Repository repository;
+		private final File projectFolder;
+		private final Iterator<RevCommit> commits;
+		private final ExecutorService executor;
+		private final Deque<Future<CommitRefactorings>> pending = new ArrayDeque<Future<CommitRefactorings>>();
+
+		private CommitIterator(GitService gitService, Repository repository, Iterator<RevCommit> commits) {
+			this.gitService = gitService;
+			this.repository = repository;
+			this.projectFolder = repository.getDirectory().getParentFile();
+			this.commits = commits;
+			if (numberOfThreads > 1) {
+				ThreadPoolExecutor executor = new ThreadPoolExecutor(numberOfThreads, numberOfThreads,
+						IDLE_THREAD_TIMEOUT_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+					private final AtomicInteger count = new AtomicInteger();
+
+					@Override
+					public Thread newThread(Runnable r) {
+						Thread thread = new Thread(r, "CommitIterator-" + count.getAndIncrement());
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+				executor.allowCoreThreadTimeOut(true);
+				this.executor = executor;
+			}
+			else {
+				this.executor = null;
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return !pending.isEmpty() || commits.hasNext();
+		}
+
+		@Override
+		public CommitRefactorings next() {
+			if (executor == null) {
+				return analyze(commits.next(), false);
+			}
+			// the walk is not thread safe, so commits are always pulled from the consumer thread
+			while (commits.hasNext() && pending.size() < 2 * numberOfThreads) {
+				final RevCommit commit = commits.next();
+				pending.add(executor.submit(new Callable<CommitRefactorings>() {
+					@Override
+					public CommitRefactorings call() {
+						return analyze(commit, true);
+					}
+				}));
+			}
+			if (!commits.hasNext()) {
+				// the submitted commits are still analyzed
+				executor.shutdown();
+			}
+			if (pending.isEmpty()) {
+				throw new NoSuchElementException();
+			}
+			try {
+				return pending.poll().get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException(e);
+			} catch (ExecutionException e) {
+				throw new RuntimeException(e.getCause());
+			}
+		}
+
+		private CommitRefactorings analyze(RevCommit commit, boolean inMemory) {
+			String commitId = commit.getId().getName();
+			DetectionStatistics statistics = startStatistics();
+			try {
+				List<Refactoring> refactorings = inMemory ?
+						detectRefactoringsInMemory(gitService, repository, projectFolder, commit) :
+						detectRefactorings(gitService, repository, new RefactoringHandler() {}, projectFolder, commit);
+				return new CommitRefactorings(commitId, commit, refactorings, statistics);
+			} catch (Exception e) {
+				logger.warn(String.format("Ignored revision %s due to error", commitId), e);
+				return new CommitRefactorings(commitId, e, statistics);
+			} finally {
+				DetectionStatistics.setCurrent(null);
+			}
+		}
+
+		private void close() {
+			if (executor != null) {
+				for (Future<CommitRefactorings> future : pending) {
+					future.cancel(false);
+				}
+				pending.clear();
+				executor.shutdownNow();
+			}
+			previousCommitFragments.clear();
+		}
+	}
+
 	@Override
 	public Churn churnAtCommit(Repository repository, String commitId, RefactoringHandler handler) {
 		GitService gitService = new GitServiceImpl();
@@ -0,0 +1,82 @@
+package org.refactoringminer.rm1;
+
+import gr.uom.java.xmi.UMLModel;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.jgit.lib.ObjectId;
+
+/**
+ * Least-recently-used cache of the model fragments (classes, generalizations and realizations) parsed from
+ * a single Java file. Entries are keyed by blob id and path, since the same content stored under another path
+ * yields classes with a different source file. The cache can be shared by several threads.
+ */
+public class UMLModelCache {
+	private final Map<Key, UMLModel> fragments;
+	private int hits;
+	private int misses;
+
+	public UMLModelCache(final int maxEntries) {
+		this.fragments = new LinkedHashMap<Key, UMLModel>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, UMLModel> eldest) {
+				return size() > maxEntries;
+			}
+		};
+	}
+
+	public synchronized UMLModel get(ObjectId blobId, String filePath) {
+		UMLModel fragment = fragments.get(new Key(blobId, filePath));
+		if (fragment != null) {
+			hits++;
+		}
+		else {
+			misses++;
+		}
+		return fragment;
+	}
+
+	public synchronized void put(ObjectId blobId, String filePath, UMLModel fragment) {
+		fragments.put(new Key(blobId, filePath), fragment);
+	}
+
+	public synchronized int size() {
+		return fragments.size();
+	}
+
+	public synchronized int getHits() {
+		return hits;
+	}
+
+	public synchronized int getMisses() {
+		return misses;
+	}
+
+	private static final class Key {
+		private final ObjectId blobId;
+		private final String filePath;
+
+		private Key(ObjectId blobId, String filePath) {
+			this.blobId = blobId;
+			this.filePath = filePath;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * blobId.hashCode() + filePath.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (o instanceof Key) {
+				Key other = (Key)o;
+				return blobId.equals(other.blobId) && filePath.equals(other.filePath);
+			}
+			return false;
+		}
+	}
+}
@@ -0,0 +1,538 @@
+package org.refactoringminer.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.refactoringminer.api.CommitRefactorings;
+import org.refactoringminer.api.DetectionStatistics;
+import org.refactoringminer.api.Refactoring;
+import org.refactoringminer.api.RefactoringHandler;
+import org.refactoringminer.api.RefactoringType;
+
+/**
+ * Handler that hands the results of the analyzed commits over to consumer threads through a bounded queue, so that
+ * a slow handler (e.g., one storing the refactorings in a database) does not stall the analysis.
+ * The consumers deliver the queued results in batches to {@link #handleBatch(List)}, which passes them on to a
+ * delegate handler, or can be overridden to process a whole batch at once (e.g., with a bulk insert).
+ * With a single consumer, the results are delivered in the order they were handled; with more consumers, batches
+ * are processed concurrently. {@link #onFinish(int, int, int)} waits until all queued results are delivered.
+ * An exception thrown while delivering the results is rethrown by the next call of the analysis to this handler.
+ * <p>
+ * When the queue is full, the {@link OverflowPolicy} decides whether the analysis waits for the consumers, the result
+ * is dropped, or it is spilled to a temporary file. Spilled results are read back when the queue is drained, with
+ * stand-ins for their refactorings (see {@link OverflowPolicy#SPILL}).
+ * </p>
+ */
+public class AsyncRefactoringHandler extends RefactoringHandler {
+	public enum OverflowPolicy {
+		/**
+		 * The analysis waits until the consumers make room in the queue.
+		 */
+		BLOCK,
+		/**
+		 * The result is discarded, and counted by {@link AsyncRefactoringHandler#getDroppedCount()}.
+		 */
+		DROP,
+		/**
+		 * The result is written to a temporary file, and read back when the queue is drained. Its commit, statistics
+		 * and exception are delivered as for a queued result, but its refactorings are stand-ins keeping only their
+		 * type, name and description: they are not instances of the refactoring classes of the detection, and give no
+		 * access to the code elements involved. Handlers needing those should use {@link #BLOCK}.
+		 */
+		SPILL
+	}
+
+	private final RefactoringHandler delegate;
+	private final int capacity;
+	private final int batchSize;
+	private final OverflowPolicy policy;
+	private final Deque<CommitRefactorings> queue = new ArrayDeque<CommitRefactorings>();
+	//guards the results waiting to be handed over, and the writes to the spill file
+	private final ReentrantLock producerLock = new ReentrantLock();
+	//guards the queue and the number of spilled results; the spill file is never accessed while holding it
+	private final ReentrantLock lock = new ReentrantLock();
+	private final ReentrantLock spillReadLock = new ReentrantLock();
+	private final Condition notEmpty = lock.newCondition();
+	private final Condition notFull = lock.newCondition();
+	private final Thread[] consumers;
+	private final AtomicInteger droppedCount = new AtomicInteger();
+	private File spillFile;
+	private DataOutputStream spillOut;
+	private DataInputStream spillIn;
+	private int spilledCount;
+	//commits and statistics of the spilled results, in the order they were spilled, kept in memory since they are small
+	private final Queue<CommitRefactorings> spilledMetadata = new ConcurrentLinkedQueue<CommitRefactorings>();
+	private boolean finished;
+	//result handled by its commit id, waiting for the call with the commit metadata
+	private CommitRefactorings pending;
+	//statistics handled before the result of their commit
+	private String pendingStatisticsCommitId;
+	private DetectionStatistics pendingStatistics;
+	private DetectionStatistics totalStatistics;
+	private volatile RuntimeException failure;
+
+	/**
+	 * @param delegate The handler receiving the results, from the consumer threads.
+	 * @param capacity Maximum number of results waiting to be delivered.
+	 * @param numberOfConsumers Number of threads delivering the results.
+	 * @param batchSize Maximum number of results delivered by a single call to {@link #handleBatch(List)}.
+	 */
+	public AsyncRefactoringHandler(RefactoringHandler delegate, int capacity, int numberOfConsumers, int batchSize, OverflowPolicy policy) {
+		this.delegate = delegate;
+		this.capacity = Math.max(1, capacity);
+		this.batchSize = Math.max(1, batchSize);
+		this.policy = policy;
+		this.consumers = new Thread[Math.max(1, numberOfConsumers)];
+		for (int i = 0; i < consumers.length; i++) {
+			consumers[i] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					consume();
+				}
+			}, "AsyncRefactoringHandler-" + i);
+			consumers[i].setDaemon(true);
+			consumers[i].start();
+		}
+	}
+
+	/**
+	 * For subclasses overriding {@link #handleBatch(List)}, without a delegate handler.
+	 */
+	protected AsyncRefactoringHandler(int capacity, int numberOfConsumers, int batchSize, OverflowPolicy policy) {
+		this(null, capacity, numberOfConsumers, batchSize, policy);
+	}
+
+	/**
+	 * Called from the consumer threads with the next results, in the order they were queued.
+	 * The default implementation passes each result on to the delegate handler.
+	 */
+	protected void handleBatch(List<CommitRefactorings> batch) {
+		for (CommitRefactorings result : batch) {
+			if (result.getStatistics() != null) {
+				delegate.handleStatistics(result.getCommitId(), result.getStatistics());
+			}
+			if (result.isError()) {
+				delegate.handleException(result.getCommitId(), result.getException());
+			} else {
+				delegate.handle(result.getCommitId(), result.getRefactorings());
+				if (result.getCommit() != null) {
+					delegate.handle(result.getCommit(), result.getRefactorings());
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return The number of results dropped because the queue was full.
+	 */
+	public int getDroppedCount() {
+		return droppedCount.get();
+	}
+
+	@Override
+	public boolean skipCommit(String commitId) {
+		return delegate != null && delegate.skipCommit(commitId);
+	}
+
+	@Override
+	public void handle(String commitId, List<Refactoring> refactorings) {
+		producerLock.lock();
+		try {
+			checkFailure();
+			flushPending();
+			pending = new CommitRefactorings(commitId, null, refactorings, takeStatistics(commitId));
+		} finally {
+			producerLock.unlock();
+		}
+	}
+
+	@Override
+	public void handle(RevCommit commitData, List<Refactoring> refactorings) {
+		producerLock.lock();
+		try {
+			checkFailure();
+			String commitId = commitData.getId().getName();
+			DetectionStatistics statistics;
+			if (pending != null && pending.getRefactorings() == refactorings && pending.getCommitId().equals(commitId)) {
+				statistics = pending.getStatistics();
+				pending = null;
+			} else {
+				flushPending();
+				statistics = takeStatistics(commitId);
+			}
+			enqueue(new CommitRefactorings(commitId, commitData, refactorings, statistics));
+		} finally {
+			producerLock.unlock();
+		}
+	}
+
+	@Override
+	public void handleException(String commitId, Exception e) {
+		producerLock.lock();
+		try {
+			checkFailure();
+			flushPending();
+			enqueue(new CommitRefactorings(commitId, e, takeStatistics(commitId)));
+		} finally {
+			producerLock.unlock();
+		}
+	}
+
+	/**
+	 * Keeps the statistics until the result of their commit is handled, to deliver them along with it.
+	 */
+	@Override
+	public void handleStatistics(String commitId, DetectionStatistics statistics) {
+		producerLock.lock();
+		try {
+			checkFailure();
+			flushPending();
+			pendingStatisticsCommitId = commitId;
+			pendingStatistics = statistics;
+		} finally {
+			producerLock.unlock();
+		}
+	}
+
+	/**
+	 * Keeps the statistics until {@link #onFinish(int, int, int)}, which passes them to the delegate handler
+	 * after all the queued results are delivered.
+	 */
+	@Override
+	public void onFinish(DetectionStatistics statistics) {
+		totalStatistics = statistics;
+	}
+
+	/**
+	 * Waits until all the queued results are delivered, and then calls the {@code onFinish} of the delegate handler.
+	 * An exception thrown by the delegate while delivering the results is rethrown here.
+	 */
+	@Override
+	public void onFinish(int refactoringsCount, int commitsCount, int errorCommitsCount) {
+		producerLock.lock();
+		try {
+			if (failure == null) {
+				flushPending();
+			}
+		} finally {
+			producerLock.unlock();
+			lock.lock();
+			try {
+				finished = true;
+				notEmpty.signalAll();
+			} finally {
+				lock.unlock();
+			}
+		}
+		boolean interrupted = false;
+		for (Thread consumer : consumers) {
+			while (consumer.isAlive()) {
+				try {
+					consumer.join();
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+		closeSpillFile();
+		if (failure != null) {
+			throw failure;
+		}
+		if (delegate != null) {
+			if (totalStatistics != null) {
+				delegate.onFinish(totalStatistics);
+			}
+			delegate.onFinish(refactoringsCount, commitsCount, errorCommitsCount);
+		}
+	}
+
+	private DetectionStatistics takeStatistics(String commitId) {
+		DetectionStatistics statistics = null;
+		if (pendingStatistics != null && pendingStatisticsCommitId.equals(commitId)) {
+			statistics = pendingStatistics;
+		}
+		pendingStatisticsCommitId = null;
+		pendingStatistics = null;
+		return statistics;
+	}
+
+	private void flushPending() {
+		if (pending != null) {
+			CommitRefactorings result = pending;
+			pending = null;
+			enqueue(result);
+		}
+	}
+
+	private void checkFailure() {
+		RuntimeException e = failure;
+		if (e != null) {
+			throw e;
+		}
+	}
+
+	private void enqueue(CommitRefactorings result) {
+		lock.lock();
+		try {
+			if (queue.size() < capacity && spilledCount == 0) {
+				queue.add(result);
+				notEmpty.signal();
+				return;
+			}
+			switch (policy) {
+			case BLOCK:
+				boolean interrupted = false;
+				while (queue.size() >= capacity && failure == null) {
+					try {
+						notFull.await();
+					} catch (InterruptedException e) {
+						interrupted = true;
+					}
+				}
+				if (interrupted) {
+					Thread.currentThread().interrupt();
+				}
+				checkFailure();
+				queue.add(result);
+				notEmpty.signal();
+				return;
+			case DROP:
+				droppedCount.incrementAndGet();
+				return;
+			case SPILL:
+				break;
+			}
+		} finally {
+			lock.unlock();
+		}
+		// the consumers go on draining the queue while the result is written; no other result is queued meanwhile,
+		// since the producers hold the producer lock
+		try {
+			writeSpilled(result);
+		} catch (IOException e) {
+			throw new RuntimeException("Error spilling the refactorings of commit " + result.getCommitId(), e);
+		}
+		spilledMetadata.add(new CommitRefactorings(result.getCommitId(), result.getCommit(), null, result.getStatistics()));
+		lock.lock();
+		try {
+			spilledCount++;
+			notEmpty.signal();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void consume() {
+		List<CommitRefactorings> batch = new ArrayList<CommitRefactorings>(batchSize);
+		while (true) {
+			int spilled = 0;
+			lock.lock();
+			try {
+				while (queue.isEmpty() && spilledCount == 0 && !finished) {
+					notEmpty.awaitUninterruptibly();
+				}
+				if (queue.isEmpty() && spilledCount == 0) {
+					return;
+				}
+				// spilled results are always newer than the queued ones
+				while (batch.size() < batchSize && !queue.isEmpty()) {
+					batch.add(queue.poll());
+				}
+				if (queue.isEmpty()) {
+					spilled = Math.min(batchSize - batch.size(), spilledCount);
+					spilledCount -= spilled;
+				}
+				notFull.signalAll();
+			} finally {
+				lock.unlock();
+			}
+			if (spilled > 0) {
+				spillReadLock.lock();
+				try {
+					for (int i = 0; i < spilled; i++) {
+						batch.add(readSpilled());
+					}
+				} catch (IOException e) {
+					setFailure(new RuntimeException("Error reading spilled refactorings", e));
+					return;
+				} finally {
+					spillReadLock.unlock();
+				}
+			}
+			if (failure == null) {
+				try {
+					handleBatch(batch);
+				} catch (RuntimeException e) {
+					setFailure(e);
+				}
+			}
+			batch.clear();
+		}
+	}
+
+	private void setFailure(RuntimeException e) {
+		if (failure == null) {
+			failure = e;
+		}
+		lock.lock();
+		try {
+			notFull.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void writeSpilled(CommitRefactorings result) throws IOException {
+		if (spillOut == null) {
+			spillFile = File.createTempFile("refactorings", ".spill");
+			spillFile.deleteOnExit();
+			spillOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(spillFile)));
+			spillIn = new DataInputStream(new BufferedInputStream(new FileInputStream(spillFile)));
+		}
+		writeString(result.getCommitId());
+		spillOut.writeBoolean(result.isError());
+		if (result.isError()) {
+			writeException(result.getException());
+		} else {
+			spillOut.writeInt(result.getRefactorings().size());
+			for (Refactoring refactoring : result.getRefactorings()) {
+				writeString(refactoring.getRefactoringType().name());
+				writeString(refactoring.getName());
+				writeString(refactoring.toString());
+			}
+		}
+		// the consumers read what is written, without another buffer in between
+		spillOut.flush();
+	}
+
+	private CommitRefactorings readSpilled() throws IOException {
+		CommitRefactorings metadata = spilledMetadata.poll();
+		String commitId = readString();
+		if (spillIn.readBoolean()) {
+			return new CommitRefactorings(commitId, readException(), metadata.getStatistics());
+		}
+		int count = spillIn.readInt();
+		List<Refactoring> refactorings = count == 0 ? Collections.<Refactoring>emptyList() : new ArrayList<Refactoring>(count);
+		for (int i = 0; i < count; i++) {
+			refactorings.add(new SpilledRefactoring(RefactoringType.valueOf(readString()), readString(), readString()));
+		}
+		return new CommitRefactorings(commitId, metadata.getCommit(), refactorings, metadata.getStatistics());
+	}
+
+	/**
+	 * Writes the exception serialized, or, if it cannot be serialized, a {@code RuntimeException} with its description
+	 * and stack trace.
+	 */
+	private void writeException(Exception e) throws IOException {
+		byte[] bytes;
+		try {
+			bytes = serialize(e);
+		} catch (NotSerializableException nse) {
+			RuntimeException replacement = new RuntimeException(e.toString());
+			replacement.setStackTrace(e.getStackTrace());
+			bytes = serialize(replacement);
+		}
+		spillOut.writeInt(bytes.length);
+		spillOut.write(bytes);
+	}
+
+	private static byte[] serialize(Exception e) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(e);
+		out.close();
+		return bytes.toByteArray();
+	}
+
+	private Exception readException() throws IOException {
+		byte[] bytes = new byte[spillIn.readInt()];
+		spillIn.readFully(bytes);
+		ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes));
+		try {
+			return (Exception)in.readObject();
+		} catch (ClassNotFoundException e) {
+			throw new IOException(e);
+		} finally {
+			in.close();
+		}
+	}
+
+	private void writeString(String s) throws IOException {
+		byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		spillOut.writeInt(bytes.length);
+		spillOut.write(bytes);
+	}
+
+	private String readString() throws IOException {
+		byte[] bytes = new byte[spillIn.readInt()];
+		spillIn.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private void closeSpillFile() {
+		if (spillFile != null) {
+			try {
+				spillOut.close();
+				spillIn.close();
+			} catch (IOException e) {
+				// the file is deleted anyway
+			}
+			spillFile.delete();
+			spillFile = null;
+		}
+	}
+
+	private static class SpilledRefactoring implements Refactoring {
+		private static final long serialVersionUID = 1L;
+		private final RefactoringType refactoringType;
+		private final String name;
+		private final String description;
+
+		private SpilledRefactoring(RefactoringType refactoringType, String name, String description) {
+			this.refactoringType = refactoringType;
+			this.name = name;
+			this.description = description;
+		}
+
+		@Override
+		public RefactoringType getRefactoringType() {
+			return refactoringType;
+		}
+
+		@Override
+		public String getName() {
+			return name;
+		}
+
+		@Override
+		public String toString() {
+			return description;
+		}
+	}
+}
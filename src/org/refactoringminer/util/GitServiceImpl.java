@@ -4,8 +4,10 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.eclipse.jgit.api.CheckoutCommand;
 import org.eclipse.jgit.api.Git;
@@ -16,6 +18,7 @@ import org.eclipse.jgit.diff.DiffEntry.ChangeType;
 import org.eclipse.jgit.diff.Edit.Type;
 import org.eclipse.jgit.diff.RenameDetector;
 import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
 import org.eclipse.jgit.lib.Ref;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.lib.RepositoryBuilder;
@@ -317,6 +320,59 @@ public class GitServiceImpl implements GitService {
         }
 	}
 
+	@Override
+	public void fileTreeDiff(Repository repository, RevCommit currentCommit, Map<String, ObjectId> fileBlobsBefore, Map<String, ObjectId> fileBlobsCurrent, Map<String, String> renamedFilesHint, Set<String> repositoryDirectoriesCurrent) throws Exception {
+		if (currentCommit.getParentCount() > 0) {
+			ObjectId oldTree = currentCommit.getParent(0).getTree();
+			ObjectId newTree = currentCommit.getTree();
+			final TreeWalk tw = new TreeWalk(repository);
+			try {
+				tw.setRecursive(true);
+				tw.addTree(oldTree);
+				tw.addTree(newTree);
+
+				final RenameDetector rd = new RenameDetector(repository);
+				rd.setRenameScore(80);
+				rd.addAll(DiffEntry.scan(tw));
+
+				ObjectReader reader = tw.getObjectReader();
+				Set<String> foldersBefore = new LinkedHashSet<String>();
+				for (DiffEntry diff : rd.compute(reader, null)) {
+					ChangeType changeType = diff.getChangeType();
+					String oldPath = diff.getOldPath();
+					String newPath = diff.getNewPath();
+					if (changeType != ChangeType.ADD) {
+						if (isJavafile(oldPath)) {
+							fileBlobsBefore.put(oldPath, diff.getOldId().toObjectId());
+							if (oldPath.contains("/")) {
+								foldersBefore.add(oldPath.substring(0, oldPath.lastIndexOf("/")));
+							}
+						}
+					}
+					if (changeType != ChangeType.DELETE) {
+						if (isJavafile(newPath)) {
+							fileBlobsCurrent.put(newPath, diff.getNewId().toObjectId());
+						}
+					}
+					if (changeType == ChangeType.RENAME && diff.getScore() >= rd.getRenameScore()) {
+						if (isJavafile(oldPath) && isJavafile(newPath)) {
+							renamedFilesHint.put(oldPath, newPath);
+						}
+					}
+				}
+				for (String folder : foldersBefore) {
+					TreeWalk folderWalk = TreeWalk.forPath(reader, folder, currentCommit.getTree());
+					if (folderWalk != null) {
+						repositoryDirectoriesCurrent.add(folder);
+						folderWalk.close();
+					}
+				}
+			} finally {
+				tw.close();
+			}
+		}
+	}
+
 	private boolean isJavafile(String path) {
 		return path.endsWith(".java");
 	}
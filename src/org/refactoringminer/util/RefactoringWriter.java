@@ -0,0 +1,215 @@
+package org.refactoringminer.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.refactoringminer.api.Refactoring;
+
+/**
+ * Streaming writer of detected refactorings to a result file, which is kept open for the whole analysis.
+ * The refactorings of a commit are written and flushed together, so that the file holds every analyzed commit
+ * even if the analysis is interrupted.
+ * With an asynchronous writer, the records are formatted by the caller and written to the file by a separate thread,
+ * so that the analysis does not wait for the file; a failure of the writer thread is reported by the next call.
+ */
+public abstract class RefactoringWriter implements Closeable {
+	private final Writer out;
+	private final ExecutorService executor;
+	private volatile IOException failure;
+
+	protected RefactoringWriter(Path path, boolean async) throws IOException {
+		this.out = Files.newBufferedWriter(path, StandardCharsets.UTF_8);
+		this.executor = async ? Executors.newSingleThreadExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "RefactoringWriter " + path.getFileName());
+				thread.setDaemon(true);
+				return thread;
+			}
+		}) : null;
+		String header = getHeader();
+		if(header != null) {
+			List<String> lines = new ArrayList<String>(1);
+			lines.add(header);
+			submit(lines);
+		}
+	}
+
+	/**
+	 * Writes the refactorings of a commit as semicolon separated {@code CommitId;RefactoringType;RefactoringDetail} lines.
+	 */
+	public static RefactoringWriter csv(Path path, boolean async) throws IOException {
+		return new RefactoringWriter(path, async) {
+			@Override
+			protected String getHeader() {
+				return "CommitId;RefactoringType;RefactoringDetail";
+			}
+
+			@Override
+			protected String format(String commitId, Refactoring refactoring) {
+				StringBuilder builder = new StringBuilder();
+				builder.append(commitId);
+				builder.append(";");
+				builder.append(refactoring.getName());
+				builder.append(";");
+				builder.append(refactoring);
+				return builder.toString();
+			}
+		};
+	}
+
+	/**
+	 * Writes the refactorings of a commit as JSON lines, one object with the commit, type and description of a refactoring per line.
+	 */
+	public static RefactoringWriter jsonLines(Path path, boolean async) throws IOException {
+		return new RefactoringWriter(path, async) {
+			@Override
+			protected String getHeader() {
+				return null;
+			}
+
+			@Override
+			protected String format(String commitId, Refactoring refactoring) {
+				StringBuilder builder = new StringBuilder();
+				builder.append("{\"commitId\":");
+				appendJSONString(builder, commitId);
+				builder.append(",\"type\":");
+				appendJSONString(builder, refactoring.getName());
+				builder.append(",\"description\":");
+				appendJSONString(builder, refactoring.toString());
+				builder.append("}");
+				return builder.toString();
+			}
+		};
+	}
+
+	/**
+	 * @return the first line of the file, or null if the format has none
+	 */
+	protected abstract String getHeader();
+
+	protected abstract String format(String commitId, Refactoring refactoring);
+
+	/**
+	 * Writes the refactorings detected in a commit and flushes them to the file.
+	 */
+	public void write(String commitId, List<Refactoring> refactorings) throws IOException {
+		if(refactorings.isEmpty()) {
+			checkFailure();
+			return;
+		}
+		List<String> lines = new ArrayList<String>(refactorings.size());
+		for(Refactoring refactoring : refactorings) {
+			lines.add(format(commitId, refactoring));
+		}
+		submit(lines);
+	}
+
+	/**
+	 * Waits for the pending records to be written and closes the file.
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			if(executor != null) {
+				executor.shutdown();
+				boolean interrupted = false;
+				while(true) {
+					try {
+						if(executor.awaitTermination(1, TimeUnit.MINUTES)) {
+							break;
+						}
+					} catch (InterruptedException e) {
+						interrupted = true;
+					}
+				}
+				if(interrupted) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		}
+		finally {
+			out.close();
+		}
+		checkFailure();
+	}
+
+	private void submit(final List<String> lines) throws IOException {
+		checkFailure();
+		if(executor == null) {
+			writeLines(lines);
+		}
+		else {
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					if(failure != null) {
+						return;
+					}
+					try {
+						writeLines(lines);
+					} catch (IOException e) {
+						failure = e;
+					}
+				}
+			});
+		}
+	}
+
+	private void writeLines(List<String> lines) throws IOException {
+		for(String line : lines) {
+			out.write(line);
+			out.write(System.lineSeparator());
+		}
+		out.flush();
+	}
+
+	private void checkFailure() throws IOException {
+		IOException e = failure;
+		if(e != null) {
+			throw new IOException("Error writing refactorings", e);
+		}
+	}
+
+	private static void appendJSONString(StringBuilder builder, String s) {
+		builder.append('"');
+		for(int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			switch(c) {
+			case '"':
+				builder.append("\\\"");
+				break;
+			case '\\':
+				builder.append("\\\\");
+				break;
+			case '\n':
+				builder.append("\\n");
+				break;
+			case '\r':
+				builder.append("\\r");
+				break;
+			case '\t':
+				builder.append("\\t");
+				break;
+			default:
+				if(c < 0x20) {
+					builder.append(String.format("\\u%04x", (int)c));
+				}
+				else {
+					builder.append(c);
+				}
+			}
+		}
+		builder.append('"');
+	}
+}